@@ -0,0 +1,143 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.fulfillment.OrderDataBuilder;
+import org.openlmis.fulfillment.extension.point.OrderNumberGenerator;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Compares the throughput of the order number generators when orders are inserted from several
+ * threads at once, each order in its own transaction. The results are logged.
+ */
+@SpringBootTest
+@DirtiesContext
+@RunWith(SpringRunner.class)
+public class OrderNumberGeneratorBenchmarkIntegrationTest {
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(OrderNumberGeneratorBenchmarkIntegrationTest.class);
+
+  private static final int THREADS = 8;
+  private static final int ORDERS_PER_THREAD = 250;
+
+  @Autowired
+  @Qualifier("Base36EncodedOrderNumberGenerator")
+  private OrderNumberGenerator base36EncodedOrderNumberGenerator;
+
+  @Autowired
+  @Qualifier("SequenceOrderNumberGenerator")
+  private OrderNumberGenerator sequenceOrderNumberGenerator;
+
+  @Autowired
+  private OrderRepository orderRepository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private Collection<UUID> createdOrderIds = new ConcurrentLinkedQueue<>();
+
+  @After
+  public void tearDown() {
+    orderRepository.deleteAll(orderRepository.findAllById(createdOrderIds));
+  }
+
+  @Test
+  public void shouldCompareThroughputOfGeneratorsUnderConcurrentInserts() throws Exception {
+    // each generator runs twice, the first runs warm up the persistence layer
+    insertConcurrently("Base36EncodedOrderNumberGenerator", base36EncodedOrderNumberGenerator);
+    insertConcurrently("SequenceOrderNumberGenerator", sequenceOrderNumberGenerator);
+    insertConcurrently("Base36EncodedOrderNumberGenerator", base36EncodedOrderNumberGenerator);
+
+    Set<String> codes = ConcurrentHashMap.newKeySet();
+    int rejected = insertConcurrently("SequenceOrderNumberGenerator", order -> {
+      String code = sequenceOrderNumberGenerator.generate(order);
+      codes.add(code);
+      return code;
+    });
+
+    assertEquals(0, rejected);
+    assertEquals(THREADS * ORDERS_PER_THREAD, codes.size());
+  }
+
+  private int insertConcurrently(String name, OrderNumberGenerator generator)
+      throws InterruptedException {
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    AtomicInteger rejected = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    long start = System.nanoTime();
+
+    for (int i = 0; i < THREADS; ++i) {
+      executor.execute(() -> {
+        for (int j = 0; j < ORDERS_PER_THREAD; ++j) {
+          try {
+            transaction.execute(status -> insert(generator));
+          } catch (DataIntegrityViolationException ex) {
+            rejected.incrementAndGet();
+          }
+        }
+      });
+    }
+
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES));
+
+    long millis = Math.max(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), 1);
+    int orders = THREADS * ORDERS_PER_THREAD;
+
+    LOGGER.info("{}: inserted {} orders with {} threads in {} ms ({} orders/s), {} rejected",
+        name, orders, THREADS, millis, orders * 1000L / millis, rejected.get());
+
+    return rejected.get();
+  }
+
+  private Order insert(OrderNumberGenerator generator) {
+    Order order = new OrderDataBuilder()
+        .withoutId()
+        .withoutLineItems()
+        .build();
+
+    order.setOrderCode(generator.generate(order));
+    order = orderRepository.save(order);
+    createdOrderIds.add(order.getId());
+
+    return order;
+  }
+}
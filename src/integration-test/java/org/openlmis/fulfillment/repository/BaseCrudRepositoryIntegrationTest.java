@@ -15,8 +15,12 @@
 
 package org.openlmis.fulfillment.repository;
 
+import java.util.HashSet;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -55,6 +59,16 @@ public abstract class BaseCrudRepositoryIntegrationTest<T extends BaseEntity> {
     return this.instanceNumber.incrementAndGet();
   }
 
+  /**
+   * Generate a set of random ids, e.g. to check queries with many parameters.
+   */
+  Set<UUID> randomIds(int size) {
+    return Stream
+        .generate(UUID::randomUUID)
+        .limit(size)
+        .collect(Collectors.toCollection(HashSet::new));
+  }
+
   void assertInstance(T instance) {
     Assert.assertNotNull(instance.getId());
   }
@@ -0,0 +1,83 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.repository;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertThat;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+import org.openlmis.fulfillment.domain.OrderPostProcessingTask;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.repository.CrudRepository;
+
+public class OrderPostProcessingTaskRepositoryIntegrationTest
+    extends BaseCrudRepositoryIntegrationTest<OrderPostProcessingTask> {
+
+  @Autowired
+  private OrderPostProcessingTaskRepository orderPostProcessingTaskRepository;
+
+  @Override
+  protected CrudRepository<OrderPostProcessingTask, UUID> getRepository() {
+    return orderPostProcessingTaskRepository;
+  }
+
+  @Override
+  protected OrderPostProcessingTask generateInstance() {
+    return OrderPostProcessingTask.newInstance(UUID.randomUUID(), ZonedDateTime.now());
+  }
+
+  @Test
+  public void shouldFindOnlyDuePendingTasksOrderedByNextAttemptDate() {
+    ZonedDateTime now = ZonedDateTime.now();
+
+    OrderPostProcessingTask older = OrderPostProcessingTask
+        .newInstance(UUID.randomUUID(), now.minusMinutes(2));
+    OrderPostProcessingTask newer = OrderPostProcessingTask
+        .newInstance(UUID.randomUUID(), now.minusMinutes(1));
+    OrderPostProcessingTask notDue = OrderPostProcessingTask
+        .newInstance(UUID.randomUUID(), now.plusMinutes(1));
+    OrderPostProcessingTask failed = OrderPostProcessingTask
+        .newInstance(UUID.randomUUID(), now.minusMinutes(3));
+    failed.fail("error");
+
+    orderPostProcessingTaskRepository.saveAll(
+        Arrays.asList(newer, notDue, failed, older));
+    orderPostProcessingTaskRepository.flush();
+
+    List<OrderPostProcessingTask> found = orderPostProcessingTaskRepository
+        .findDueForUpdate(now, 10);
+
+    assertThat(found, contains(older, newer));
+  }
+
+  @Test
+  public void shouldLimitNumberOfDueTasks() {
+    ZonedDateTime now = ZonedDateTime.now();
+
+    for (int i = 0; i < 3; ++i) {
+      orderPostProcessingTaskRepository.save(OrderPostProcessingTask
+          .newInstance(UUID.randomUUID(), now.minusMinutes(i + 1)));
+    }
+    orderPostProcessingTaskRepository.flush();
+
+    assertThat(orderPostProcessingTaskRepository.findDueForUpdate(now, 2), hasSize(2));
+  }
+}
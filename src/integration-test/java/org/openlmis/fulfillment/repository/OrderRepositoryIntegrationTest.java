@@ -44,6 +44,9 @@ import org.openlmis.fulfillment.OrderDataBuilder;
 import org.openlmis.fulfillment.domain.BaseEntity;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.OrderSummary;
+import org.openlmis.fulfillment.service.CountMode;
+import org.openlmis.fulfillment.service.OrderSearchCursor;
 import org.openlmis.fulfillment.service.OrderSearchParams;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -458,6 +461,104 @@ public class OrderRepositoryIntegrationTest extends BaseCrudRepositoryIntegratio
     return orderRepository.save(generateInstance(OrderStatus.ORDERED));
   }
 
+  @Test
+  public void shouldFindOrdersWithoutCounting() {
+    Order one = orderRepository.save(generateInstance(OrderStatus.ORDERED));
+    Order two = orderRepository.save(generateInstance(OrderStatus.ORDERED));
+    Order three = orderRepository.save(generateInstance(OrderStatus.ORDERED));
+    Set<UUID> availableRequestingFacilities = newHashSet(one.getRequestingFacilityId(),
+        two.getRequestingFacilityId(), three.getRequestingFacilityId());
+    Sort sort = Sort.by(Sort.Direction.ASC, Order.CREATED_DATE);
+
+    Page<Order> page = orderRepository.searchOrders(new OrderSearchParams(), null,
+        PageRequest.of(0, 2, sort), CountMode.NONE, null, availableRequestingFacilities);
+    assertSearchOrders(page, one, two);
+    assertTrue(page.hasNext());
+
+    page = orderRepository.searchOrders(new OrderSearchParams(), null,
+        PageRequest.of(1, 2, sort), CountMode.NONE, null, availableRequestingFacilities);
+    assertSearchOrders(page, three);
+    assertFalse(page.hasNext());
+    assertEquals(3, page.getTotalElements());
+  }
+
+  @Test
+  public void shouldFindOrdersWithEstimatedCount() {
+    Order one = orderRepository.save(generateInstance(OrderStatus.ORDERED));
+
+    Page<Order> page = orderRepository.searchOrders(new OrderSearchParams(), null, pageable,
+        CountMode.ESTIMATED, null, Collections.singleton(one.getRequestingFacilityId()));
+
+    assertSearchOrders(page, one);
+    assertTrue(page.getTotalElements() >= 1);
+  }
+
+  @Test
+  public void shouldFindOrdersWithFacilityAndPeriodSetsLargerThanBindParameterLimit() {
+    Order one = orderRepository.save(generateInstance(OrderStatus.ORDERED));
+    Order two = orderRepository.save(generateInstance(OrderStatus.ORDERED));
+
+    // more elements than the 32767 bind parameters of a single PostgreSQL statement
+    Set<UUID> supplyingFacilities = randomIds(40000);
+    supplyingFacilities.add(one.getSupplyingFacilityId());
+    Set<UUID> requestingFacilities = randomIds(40000);
+    Set<UUID> periods = randomIds(40000);
+    periods.add(one.getProcessingPeriodId());
+    periods.add(two.getProcessingPeriodId());
+
+    for (CountMode countMode : CountMode.values()) {
+      Page<Order> page = orderRepository.searchOrders(new OrderSearchParams(), periods,
+          pageable, countMode, supplyingFacilities, requestingFacilities);
+
+      assertSearchOrders(page, one);
+    }
+
+    List<UUID> requesting = orderRepository
+        .getRequestingFacilities(Lists.newArrayList(supplyingFacilities));
+
+    assertThat(requesting, hasSize(1));
+    assertThat(requesting, hasItems(one.getRequestingFacilityId()));
+  }
+
+  @Test
+  public void shouldFindOrderSummariesByParameters() {
+    Order one = orderRepository.save(generateInstance(OrderStatus.ORDERED));
+    Order two = orderRepository.save(generateInstance(OrderStatus.SHIPPED));
+
+    OrderSearchParams params = new OrderSearchParams();
+    params.setStatus(newHashSet(two.getStatus().name()));
+
+    Page<OrderSummary> page = orderRepository.searchOrderSummaries(params, null, pageable,
+        CountMode.EXACT, null, newHashSet(one.getRequestingFacilityId(),
+            two.getRequestingFacilityId()));
+
+    assertThat(page.getContent(), hasSize(1));
+    assertEquals(1, page.getTotalElements());
+    assertEquals(OrderSummary.of(two).getId(), page.getContent().get(0).getId());
+    assertEquals(two.getOrderCode(), page.getContent().get(0).getOrderCode());
+    assertEquals(two.getStatus(), page.getContent().get(0).getStatus());
+  }
+
+  @Test
+  public void shouldSeekOrderSummaries() {
+    Order one = orderRepository.save(generateInstance(OrderStatus.ORDERED));
+    Order two = orderRepository.save(generateInstance(OrderStatus.ORDERED));
+    Order three = orderRepository.save(generateInstance(OrderStatus.ORDERED));
+    Set<UUID> availableRequestingFacilities = newHashSet(one.getRequestingFacilityId(),
+        two.getRequestingFacilityId(), three.getRequestingFacilityId());
+
+    Page<OrderSummary> page = orderRepository.seekOrders(new OrderSearchParams(), null, null,
+        2, null, availableRequestingFacilities);
+    assertThat(page.getContent(), hasSize(2));
+    assertTrue(page.hasNext());
+
+    OrderSearchCursor cursor = OrderSearchCursor.of(page.getContent().get(1));
+    page = orderRepository.seekOrders(new OrderSearchParams(), null, cursor, 2, null,
+        availableRequestingFacilities);
+    assertThat(page.getContent(), hasSize(1));
+    assertFalse(page.hasNext());
+  }
+
   private void assertSearchOrders(Page<Order> actual, Order... expected) {
     assertThat(actual.getContent(), hasSize(expected.length));
 
@@ -35,6 +35,7 @@ import static org.junit.Assert.assertThat;
 import com.google.common.collect.Lists;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import org.javers.core.Javers;
 import org.javers.core.commit.CommitMetadata;
@@ -51,6 +52,7 @@ import org.openlmis.fulfillment.domain.ProofOfDelivery;
 import org.openlmis.fulfillment.domain.ProofOfDeliveryLineItem;
 import org.openlmis.fulfillment.domain.ProofOfDeliveryStatus;
 import org.openlmis.fulfillment.domain.Shipment;
+import org.openlmis.fulfillment.service.CountMode;
 import org.openlmis.fulfillment.service.referencedata.OrderableDto;
 import org.openlmis.fulfillment.testutils.OrderableDataBuilder;
 import org.openlmis.fulfillment.testutils.ShipmentDataBuilder;
@@ -355,6 +357,26 @@ public class ProofOfDeliveryRepositoryIntegrationTest extends
     }
   }
 
+  @Test
+  public void shouldFindProofOfDeliveryWithFacilitySetsLargerThanBindParameterLimit() {
+    ProofOfDelivery proofOfDelivery = proofOfDeliveryRepository.save(generateInstance());
+
+    // more elements than the 32767 bind parameters of a single PostgreSQL statement
+    Set<UUID> receivingFacilityIds = randomIds(40000);
+    receivingFacilityIds.add(proofOfDelivery.getReceivingFacilityId());
+    Set<UUID> supplyingFacilityIds = randomIds(40000);
+    supplyingFacilityIds.add(proofOfDelivery.getSupplyingFacilityId());
+
+    for (CountMode countMode : CountMode.values()) {
+      Page<ProofOfDelivery> found = proofOfDeliveryRepository.search(null, null,
+          receivingFacilityIds, supplyingFacilityIds, singleton(proofOfDelivery.getProgramId()),
+          createPageable(10, 0), countMode);
+
+      assertThat(found.getContent(), hasSize(1));
+      assertThat(found, hasItem(hasProperty("id", is(proofOfDelivery.getId()))));
+    }
+  }
+
   @Test
   public void shouldFindAllProofOfDelivery() {
     List<ProofOfDelivery> list = Lists.newArrayList();
@@ -15,9 +15,11 @@
 
 package org.openlmis.fulfillment.web;
 
+import static com.google.common.collect.Sets.newHashSet;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
@@ -30,14 +32,17 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anySetOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.openlmis.fulfillment.domain.Order.ORDER_STATUS;
 import static org.openlmis.fulfillment.domain.OrderStatus.READY_TO_PACK;
+import static org.openlmis.fulfillment.i18n.MessageKeys.ORDER_EXISTS;
 import static org.openlmis.fulfillment.i18n.MessageKeys.ORDER_NOT_FOUND;
 import static org.openlmis.fulfillment.i18n.MessageKeys.ORDER_RETRY_INVALID_STATUS;
 import static org.openlmis.fulfillment.i18n.MessageKeys.PERMISSION_MISSING;
@@ -48,6 +53,8 @@ import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import guru.nidi.ramltester.junit.RamlMatchers;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.ZoneId;
@@ -58,9 +65,12 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -69,15 +79,21 @@ import org.mockito.Mockito;
 import org.openlmis.fulfillment.OrderDataBuilder;
 import org.openlmis.fulfillment.OrderLineItemDataBuilder;
 import org.openlmis.fulfillment.domain.ExternalStatus;
+import org.openlmis.fulfillment.domain.FileTemplate;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderLineItem;
 import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.OrderSummary;
 import org.openlmis.fulfillment.domain.VersionEntityReference;
 import org.openlmis.fulfillment.repository.OrderRepository;
 import org.openlmis.fulfillment.repository.ProofOfDeliveryRepository;
+import org.openlmis.fulfillment.service.CountMode;
+import org.openlmis.fulfillment.service.ExternalIdFilter;
 import org.openlmis.fulfillment.service.ObjReferenceExpander;
+import org.openlmis.fulfillment.service.OrderArchiveExporter;
 import org.openlmis.fulfillment.service.OrderFileStorage;
 import org.openlmis.fulfillment.service.OrderFtpSender;
+import org.openlmis.fulfillment.service.OrderSearchCursor;
 import org.openlmis.fulfillment.service.OrderSearchParams;
 import org.openlmis.fulfillment.service.OrderService;
 import org.openlmis.fulfillment.service.PageDto;
@@ -124,6 +140,7 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
 
   private static final String ID_URL = RESOURCE_URL + "/{id}";
   private static final String EXPORT_URL = ID_URL + "/export";
+  private static final String EXPORT_ALL_URL = RESOURCE_URL + "/export";
   private static final String RETRY_URL = ID_URL + "/retry";
   private static final String PRINT_URL = ID_URL + "/print";
 
@@ -159,6 +176,12 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
   @MockBean
   private OrderRepository orderRepository;
 
+  @MockBean
+  private ExternalIdFilter externalIdFilter;
+
+  @MockBean
+  private OrderArchiveExporter archiveExporter;
+
   @MockBean
   private OrderFileStorage orderStorage;
 
@@ -399,8 +422,8 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
         Sets.newHashSet(READY_TO_PACK.toString()), LocalDate.of(2018, 4, 5),
         LocalDate.of(2018, 5, 5));
 
-    given(orderService.searchOrders(params, pageable))
-        .willReturn(new PageImpl<>(Lists.newArrayList(firstOrder), pageable, 2));
+    given(orderService.searchOrderSummaries(params, pageable, CountMode.EXACT))
+        .willReturn(new PageImpl<>(Lists.newArrayList(OrderSummary.of(firstOrder)), pageable, 2));
 
     PageDto response = restAssured.given()
         .queryParam(SUPPLYING_FACILITY, firstOrder.getSupplyingFacilityId())
@@ -443,9 +466,81 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
     }
   }
 
+  @Test
+  public void shouldSkipCountIfRequested() {
+    given(orderService.searchOrderSummaries(any(OrderSearchParams.class), eq(pageable),
+        eq(CountMode.NONE)))
+        .willReturn(new PageImpl<>(Lists.newArrayList(OrderSummary.of(firstOrder)), pageable, 1));
+
+    restAssured.given()
+        .queryParam("count", "none")
+        .queryParam(PAGE, 0)
+        .queryParam(SIZE, 10)
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(RESOURCE_URL)
+        .then()
+        .statusCode(200)
+        .header(CountMode.HEADER, "none");
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldReturnBadRequestIfCountModeIsInvalid() {
+    restAssured.given()
+        .queryParam("count", "approximately")
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(RESOURCE_URL)
+        .then()
+        .statusCode(400);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldSeekOrdersIfCursorIsGiven() {
+    OrderSearchCursor cursor = new OrderSearchCursor(ZonedDateTime.now(), UUID.randomUUID());
+
+    given(orderService.seekOrders(any(OrderSearchParams.class), eq(cursor), eq(1)))
+        .willReturn(new PageImpl<>(Lists.newArrayList(OrderSummary.of(firstOrder)),
+            PageRequest.of(0, 1), 2));
+
+    PageDto response = restAssured.given()
+        .queryParam("cursor", cursor.encode())
+        .queryParam(SIZE, 1)
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(RESOURCE_URL)
+        .then()
+        .statusCode(200)
+        .header(OrderController.NEXT_CURSOR_HEADER,
+            OrderSearchCursor.of(OrderSummary.of(firstOrder)).encode())
+        .extract().as(PageDto.class);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+    assertThat(getPageContent(response, BasicOrderDto.class), hasSize(1));
+    verify(orderService, times(0))
+        .searchOrderSummaries(any(OrderSearchParams.class), any(), any(CountMode.class));
+  }
+
+  @Test
+  public void shouldReturnBadRequestIfCursorIsInvalid() {
+    restAssured.given()
+        .queryParam("cursor", "not a cursor")
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(RESOURCE_URL)
+        .then()
+        .statusCode(400);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void shouldThrowErrorIfOrderAlreadyExists() {
-    given(orderRepository.findByExternalId(any(UUID.class))).willReturn(firstOrder);
+    given(externalIdFilter.findOrder(any(UUID.class))).willReturn(firstOrder);
 
     restAssured.given()
         .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
@@ -456,7 +551,25 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
         .then()
         .statusCode(400);
 
-    verify(orderRepository, times(1)).findByExternalId(firstOrder.getExternalId());
+    verify(externalIdFilter, times(1)).findOrder(firstOrder.getExternalId());
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldThrowErrorIfOrderWasCreatedByAnotherInstance() {
+    given(orderService.createOrder(any(OrderDto.class), eq(user.getId())))
+        .willThrow(externalIdConflict());
+
+    restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(APPLICATION_JSON_VALUE)
+        .body(firstOrderDto)
+        .when()
+        .post(RESOURCE_URL)
+        .then()
+        .statusCode(400)
+        .body(MESSAGE_KEY, is(ORDER_EXISTS));
 
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
@@ -563,11 +676,10 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
   public void shouldReturnExistingOrdersInsteadOfCreatingNewOnes() {
     firstOrderDto.setExternalId(UUID.randomUUID());
 
-    given(orderRepository.findByExternalId(firstOrderDto.getExternalId())).willReturn(null);
-    given(orderRepository.findByExternalId(secondOrderDto.getExternalId())).willReturn(secondOrder);
-
-    given(orderService.createOrder(any(OrderDto.class), eq(user.getId())))
-        .willReturn(firstOrder);
+    given(externalIdFilter.findOrders(anySetOf(UUID.class)))
+        .willReturn(singletonList(secondOrder));
+    given(orderService.createOrders(anyListOf(OrderDto.class), any()))
+        .willReturn(singletonList(firstOrder));
 
     restAssured.given()
         .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
@@ -576,21 +688,27 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
         .when()
         .post(BATCH_URL)
         .then()
-        .statusCode(200);
+        .statusCode(200)
+        .body("id", contains(firstOrder.getId().toString(), secondOrder.getId().toString()));
 
-    ArgumentCaptor<OrderDto> orderCaptor = ArgumentCaptor.forClass(OrderDto.class);
-    verify(orderService, times(1)).createOrder(orderCaptor.capture(), eq(user.getId()));
-    verify(orderRepository, times(1)).findByExternalId(secondOrderDto.getExternalId());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
 
-    assertEquals(orderCaptor.getAllValues().size(), 1);
-    assertThat(orderCaptor.getAllValues().get(0).getExternalId(),
-        is(firstOrderDto.getExternalId()));
+    ArgumentCaptor<List> orderCaptor = ArgumentCaptor.forClass(List.class);
+    verify(orderService, times(1)).createOrders(orderCaptor.capture(), any());
+    verify(externalIdFilter, times(1)).findOrders(
+        newHashSet(firstOrderDto.getExternalId(), secondOrderDto.getExternalId()));
+
+    List<OrderDto> created = orderCaptor.getValue();
+    assertThat(created, hasSize(1));
+    assertThat(created.get(0).getExternalId(), is(firstOrderDto.getExternalId()));
   }
 
   @Test
   public void shouldCreateMultipleOrders() {
-    given(orderService.createOrder(any(OrderDto.class), eq(user.getId())))
-        .willReturn(firstOrder);
+    secondOrderDto.setExternalId(UUID.randomUUID());
+
+    given(orderService.createOrders(anyListOf(OrderDto.class), any()))
+        .willReturn(asList(firstOrder, secondOrder));
 
     restAssured.given()
         .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
@@ -599,17 +717,75 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
         .when()
         .post(BATCH_URL)
         .then()
-        .statusCode(200);
+        .statusCode(200)
+        .body("id", contains(firstOrder.getId().toString(), secondOrder.getId().toString()));
 
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
 
-    ArgumentCaptor<OrderDto> orderCaptor = ArgumentCaptor.forClass(OrderDto.class);
-    verify(orderService, times(2)).createOrder(orderCaptor.capture(), eq(user.getId()));
+    ArgumentCaptor<List> orderCaptor = ArgumentCaptor.forClass(List.class);
+    verify(orderService, times(1)).createOrders(orderCaptor.capture(), any());
 
-    assertThat(orderCaptor.getAllValues().get(0).getExternalId(),
-        is(firstOrderDto.getExternalId()));
-    assertThat(orderCaptor.getAllValues().get(1).getExternalId(),
-        is(secondOrderDto.getExternalId()));
+    List<OrderDto> created = orderCaptor.getValue();
+    assertThat(created, hasSize(2));
+    assertThat(created.get(0).getExternalId(), is(firstOrderDto.getExternalId()));
+    assertThat(created.get(1).getExternalId(), is(secondOrderDto.getExternalId()));
+  }
+
+  @Test
+  public void shouldCreateOrderOnceIfExternalIdIsRepeatedInBatch() {
+    given(orderService.createOrders(anyListOf(OrderDto.class), any()))
+        .willReturn(singletonList(firstOrder));
+
+    restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(APPLICATION_JSON_VALUE)
+        .body(asList(firstOrderDto, secondOrderDto))
+        .when()
+        .post(BATCH_URL)
+        .then()
+        .statusCode(200)
+        .body("id", contains(firstOrder.getId().toString(), firstOrder.getId().toString()));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+
+    ArgumentCaptor<List> orderCaptor = ArgumentCaptor.forClass(List.class);
+    verify(orderService, times(1)).createOrders(orderCaptor.capture(), any());
+
+    List<OrderDto> created = orderCaptor.getValue();
+    assertThat(created, hasSize(1));
+    assertThat(created.get(0).getExternalId(), is(firstOrderDto.getExternalId()));
+  }
+
+  @Test
+  public void shouldReturnOrdersCreatedByAnotherInstanceInsteadOfCreatingNewOnes() {
+    firstOrderDto.setExternalId(UUID.randomUUID());
+
+    given(orderService.createOrders(anyListOf(OrderDto.class), any()))
+        .willThrow(externalIdConflict())
+        .willReturn(singletonList(firstOrder));
+    given(orderRepository.findByExternalIdIn(anySetOf(UUID.class)))
+        .willReturn(singletonList(secondOrder));
+
+    restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(APPLICATION_JSON_VALUE)
+        .body(asList(firstOrderDto, secondOrderDto))
+        .when()
+        .post(BATCH_URL)
+        .then()
+        .statusCode(200)
+        .body("id", contains(firstOrder.getId().toString(), secondOrder.getId().toString()));
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+
+    ArgumentCaptor<List> orderCaptor = ArgumentCaptor.forClass(List.class);
+    verify(orderService, times(2)).createOrders(orderCaptor.capture(), any());
+    verify(orderRepository, times(1)).findByExternalIdIn(
+        newHashSet(firstOrderDto.getExternalId(), secondOrderDto.getExternalId()));
+
+    List<OrderDto> created = orderCaptor.getValue();
+    assertThat(created, hasSize(1));
+    assertThat(created.get(0).getExternalId(), is(firstOrderDto.getExternalId()));
   }
 
   @Test
@@ -770,6 +946,57 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldExportOrdersWithGivenIdsToZipArchive() throws IOException {
+    restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .queryParam("id", firstOrder.getId())
+        .queryParam("id", secondOrder.getId())
+        .when()
+        .get(EXPORT_ALL_URL)
+        .then()
+        .statusCode(200)
+        .contentType("application/zip");
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+    Set<UUID> ids = newHashSet(firstOrder.getId(), secondOrder.getId());
+    verify(archiveExporter).validateOrders(ids);
+    verify(archiveExporter).exportOrders(eq(ids), any(FileTemplate.class),
+        any(OutputStream.class));
+  }
+
+  @Test
+  public void shouldExportSearchedOrdersToZipArchive() throws IOException {
+    restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .queryParam(REQUESTING_FACILITY, firstOrder.getRequestingFacilityId())
+        .when()
+        .get(EXPORT_ALL_URL)
+        .then()
+        .statusCode(200)
+        .contentType("application/zip");
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+    verify(archiveExporter).exportOrders(any(OrderSearchParams.class), any(FileTemplate.class),
+        any(OutputStream.class));
+  }
+
+  @Test
+  public void shouldNotExportOrdersToZipArchiveIfTypeIsDifferentThanCsv() throws IOException {
+    restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .queryParam("id", firstOrder.getId())
+        .queryParam("type", "pdf")
+        .when()
+        .get(EXPORT_ALL_URL)
+        .then()
+        .statusCode(400);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+    verify(archiveExporter, never()).exportOrders(anyCollectionOf(UUID.class),
+        any(FileTemplate.class), any(OutputStream.class));
+  }
+
   @Test
   public void shouldReturnNotFoundErrorMessageForRetryEndpointWhenOrderDoesNotExist() {
     given(orderRepository.findById(firstOrder.getId())).willReturn(Optional.empty());
@@ -969,6 +1196,11 @@ public class OrderControllerIntegrationTest extends BaseWebIntegrationTest {
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  private PersistenceException externalIdConflict() {
+    return new PersistenceException(
+        new ConstraintViolationException("duplicate key", null, "orders_externalid_unique"));
+  }
+
   private List<StatusChangeDto> sampleStatusChanges() {
     UserDto user = new UserDto();
     user.setUsername("user");
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
@@ -60,6 +61,7 @@ import org.openlmis.fulfillment.domain.VersionEntityReference;
 import org.openlmis.fulfillment.repository.OrderRepository;
 import org.openlmis.fulfillment.repository.ProofOfDeliveryRepository;
 import org.openlmis.fulfillment.repository.ShipmentRepository;
+import org.openlmis.fulfillment.service.CountMode;
 import org.openlmis.fulfillment.service.FulfillmentNotificationService;
 import org.openlmis.fulfillment.service.JasperReportsViewService;
 import org.openlmis.fulfillment.service.PageDto;
@@ -174,7 +176,8 @@ public class ProofOfDeliveryControllerIntegrationTest extends BaseWebIntegration
     given(proofOfDeliveryService.search(
         isNull(),
         isNull(),
-        any(Pageable.class)))
+        any(Pageable.class),
+        eq(CountMode.EXACT)))
         .willReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     PageDto response = restAssured.given()
@@ -191,7 +194,7 @@ public class ProofOfDeliveryControllerIntegrationTest extends BaseWebIntegration
 
     assertTrue(response.getContent().iterator().hasNext());
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
-    verify(proofOfDeliveryService).search(null, null, pageable);
+    verify(proofOfDeliveryService).search(null, null, pageable, CountMode.EXACT);
   }
 
   @Test(expected = IllegalArgumentException.class)
@@ -226,7 +229,8 @@ public class ProofOfDeliveryControllerIntegrationTest extends BaseWebIntegration
     given(proofOfDeliveryService.search(
         any(UUID.class),
         isNull(),
-        any(Pageable.class)))
+        any(Pageable.class),
+        eq(CountMode.EXACT)))
         .willReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     PageDto response = restAssured.given()
@@ -250,7 +254,8 @@ public class ProofOfDeliveryControllerIntegrationTest extends BaseWebIntegration
 
     assertEquals(createDto(), getPageContent(response, ProofOfDeliveryDto.class).get(0));
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
-    verify(proofOfDeliveryService).search(proofOfDelivery.getShipment().getId(), null, pageable);
+    verify(proofOfDeliveryService)
+        .search(proofOfDelivery.getShipment().getId(), null, pageable, CountMode.EXACT);
   }
 
   @Test
@@ -258,7 +263,8 @@ public class ProofOfDeliveryControllerIntegrationTest extends BaseWebIntegration
     given(proofOfDeliveryService.search(
         isNull(),
         any(UUID.class),
-        any(Pageable.class)))
+        any(Pageable.class),
+        eq(CountMode.EXACT)))
         .willReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     PageDto response = restAssured.given()
@@ -284,7 +290,8 @@ public class ProofOfDeliveryControllerIntegrationTest extends BaseWebIntegration
 
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
     verify(proofOfDeliveryService)
-        .search(null, proofOfDelivery.getShipment().getOrder().getId(), pageable);
+        .search(null, proofOfDelivery.getShipment().getOrder().getId(), pageable,
+            CountMode.EXACT);
   }
 
   @Test
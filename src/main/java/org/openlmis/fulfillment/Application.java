@@ -19,6 +19,7 @@ import com.google.gson.internal.bind.TypeAdapters;
 import java.time.Clock;
 import java.time.ZoneId;
 import java.util.Locale;
+import java.util.concurrent.ThreadPoolExecutor;
 import org.apache.camel.CamelContext;
 import org.apache.camel.ProducerTemplate;
 import org.apache.camel.impl.DefaultCamelContext;
@@ -49,6 +50,8 @@ import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 import org.springframework.web.servlet.LocaleResolver;
@@ -70,6 +73,33 @@ public class Application {
   @Value("${spring.jpa.properties.hibernate.default_schema}")
   private String preferredSchema;
 
+  @Value("${request.split.poolSize}")
+  private int splitRequestPoolSize;
+
+  @Value("${request.split.queueCapacity}")
+  private int splitRequestQueueCapacity;
+
+  @Value("${permissionStrings.refresh.poolSize}")
+  private int permissionStringsRefreshPoolSize;
+
+  @Value("${permissionStrings.refresh.queueCapacity}")
+  private int permissionStringsRefreshQueueCapacity;
+
+  @Value("${referencedata.refresh.poolSize}")
+  private int referenceDataRefreshPoolSize;
+
+  @Value("${referencedata.refresh.queueCapacity}")
+  private int referenceDataRefreshQueueCapacity;
+
+  @Value("${order.postProcessing.workers}")
+  private int orderPostProcessingWorkers;
+
+  @Value("${order.export.poolSize}")
+  private int orderExportPoolSize;
+
+  @Value("${order.export.queueCapacity}")
+  private int orderExportQueueCapacity;
+
   @Autowired
   DialectName dialectName;
 
@@ -138,6 +168,89 @@ public class Application {
     return camelContext().createProducerTemplate();
   }
 
+  /**
+   * Creates the bounded executor used to send chunks of a split request concurrently. When the
+   * queue is full the chunk is sent by the calling thread.
+   */
+  @Bean
+  public ThreadPoolTaskExecutor splitRequestExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(splitRequestPoolSize);
+    executor.setMaxPoolSize(splitRequestPoolSize);
+    executor.setQueueCapacity(splitRequestQueueCapacity);
+    executor.setThreadNamePrefix("split-request-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    return executor;
+  }
+
+  /**
+   * Creates the executor used to revalidate users' permission strings in the background. When
+   * the queue is full the permission strings are revalidated by the calling thread.
+   */
+  @Bean
+  public ThreadPoolTaskExecutor permissionStringsRefreshExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(permissionStringsRefreshPoolSize);
+    executor.setMaxPoolSize(permissionStringsRefreshPoolSize);
+    executor.setQueueCapacity(permissionStringsRefreshQueueCapacity);
+    executor.setThreadNamePrefix("permission-strings-refresh-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    return executor;
+  }
+
+  /**
+   * Creates the executor used to revalidate locally indexed reference data in the background.
+   * When the queue is full the data is revalidated by the calling thread.
+   */
+  @Bean
+  public ThreadPoolTaskExecutor referenceDataRefreshExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(referenceDataRefreshPoolSize);
+    executor.setMaxPoolSize(referenceDataRefreshPoolSize);
+    executor.setQueueCapacity(referenceDataRefreshQueueCapacity);
+    executor.setThreadNamePrefix("referencedata-refresh-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    return executor;
+  }
+
+  /**
+   * Creates the bounded executor used to render the files of a bulk order export. When the
+   * queue is full the file is rendered by the calling thread.
+   */
+  @Bean
+  public ThreadPoolTaskExecutor orderExportExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(orderExportPoolSize);
+    executor.setMaxPoolSize(orderExportPoolSize);
+    executor.setQueueCapacity(orderExportQueueCapacity);
+    executor.setThreadNamePrefix("order-export-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    return executor;
+  }
+
+  /**
+   * Creates the scheduler that runs the order post processing workers, one thread per worker.
+   */
+  @Bean
+  public ThreadPoolTaskScheduler orderPostProcessingScheduler() {
+    ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    scheduler.setPoolSize(Math.max(1, orderPostProcessingWorkers));
+    scheduler.setThreadNamePrefix("order-post-processing-");
+    scheduler.setWaitForTasksToCompleteOnShutdown(true);
+    return scheduler;
+  }
+
+  /**
+   * Creates the scheduler that closes FTP sessions of order transfers which are no longer used.
+   */
+  @Bean
+  public ThreadPoolTaskScheduler ftpSessionEvictionScheduler() {
+    ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+    scheduler.setPoolSize(1);
+    scheduler.setThreadNamePrefix("ftp-session-eviction-");
+    return scheduler;
+  }
+
   /**
    * Creates new Clock.
    *
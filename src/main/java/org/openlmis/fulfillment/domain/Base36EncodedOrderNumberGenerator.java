@@ -18,12 +18,14 @@ package org.openlmis.fulfillment.domain;
 import java.math.BigInteger;
 import java.util.UUID;
 import org.openlmis.fulfillment.extension.point.OrderNumberGenerator;
+import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 
 /**
  * A default implementation of OrderNumberGenerator extension that encodes Order's id as Base36.
  * @see OrderNumberGenerator
  */
+@Primary
 @Component("Base36EncodedOrderNumberGenerator")
 public class Base36EncodedOrderNumberGenerator implements OrderNumberGenerator {
 
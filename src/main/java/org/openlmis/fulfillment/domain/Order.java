@@ -63,6 +63,14 @@ public class Order extends BaseEntity {
   public static final String ORDER_STATUS = "status";
   public static final String PROCESSING_PERIOD_ID = "processingPeriodId";
   public static final String CREATED_DATE = "createdDate";
+  public static final String EXTERNAL_ID = "externalId";
+  public static final String EMERGENCY = "emergency";
+  public static final String FACILITY_ID = "facilityId";
+  public static final String CREATED_BY_ID = "createdById";
+  public static final String RECEIVING_FACILITY_ID = "receivingFacilityId";
+  public static final String ORDER_CODE = "orderCode";
+  public static final String QUOTED_COST = "quotedCost";
+  public static final String UPDATE_DETAILS = "updateDetails";
 
 
   @Column(unique = true)
@@ -0,0 +1,147 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.domain;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Type;
+
+/**
+ * Outbox entry of an order that still has to be post-processed (exported, sent to the FTP server
+ * and announced by email). The entry is written in the transaction that creates the order and is
+ * removed once the post processing succeeded. The post processing is split into steps that are
+ * attempted one after another, so a failed step is retried without repeating the steps that
+ * already succeeded.
+ */
+@Entity
+@Table(name = "order_post_processing_tasks")
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+@Getter
+public class OrderPostProcessingTask extends BaseEntity {
+
+  @Column(nullable = false)
+  @Type(type = UUID_TYPE)
+  private UUID orderId;
+
+  @Column(nullable = false)
+  @Enumerated(EnumType.STRING)
+  private Status status;
+
+  @Column(nullable = false)
+  @Enumerated(EnumType.STRING)
+  private Step step;
+
+  @Column(nullable = false)
+  private int attempts;
+
+  @Column(nullable = false, columnDefinition = "timestamp with time zone")
+  private ZonedDateTime nextAttemptDate;
+
+  @Column(columnDefinition = TEXT_COLUMN_DEFINITION)
+  private String lastError;
+
+  @Column(nullable = false, columnDefinition = "timestamp with time zone")
+  private ZonedDateTime createdDate;
+
+  /**
+   * Creates a pending task for the given order that is due immediately.
+   *
+   * @param orderId id of the order to post-process.
+   * @param now     current date.
+   * @return new instance of OrderPostProcessingTask.
+   */
+  public static OrderPostProcessingTask newInstance(UUID orderId, ZonedDateTime now) {
+    OrderPostProcessingTask task = new OrderPostProcessingTask();
+    task.orderId = orderId;
+    task.status = Status.PENDING;
+    task.step = Step.TRANSFER;
+    task.attempts = 0;
+    task.nextAttemptDate = now;
+    task.createdDate = now;
+    return task;
+  }
+
+  /**
+   * Marks the start of a new attempt. Until the given date no other worker claims the task, so
+   * a task whose worker stopped is retried once the date has passed.
+   *
+   * @param leaseEnd date after which the task can be claimed again.
+   */
+  public void claim(ZonedDateTime leaseEnd) {
+    attempts++;
+    nextAttemptDate = leaseEnd;
+  }
+
+  /**
+   * Schedules the next attempt after a failed one.
+   */
+  public void retryAt(ZonedDateTime date, String error) {
+    nextAttemptDate = date;
+    lastError = error;
+  }
+
+  /**
+   * Moves the task to the step after the current one. The next step is due immediately and has
+   * all its attempts left.
+   *
+   * @param now current date.
+   * @return false if the current step is the last one.
+   */
+  public boolean nextStep(ZonedDateTime now) {
+    Step next = step.next();
+
+    if (null == next) {
+      return false;
+    }
+
+    step = next;
+    attempts = 0;
+    nextAttemptDate = now;
+    return true;
+  }
+
+  /**
+   * Gives up the task after the last failed attempt.
+   */
+  public void fail(String error) {
+    status = Status.FAILED;
+    lastError = error;
+  }
+
+  public enum Status {
+    PENDING, FAILED
+  }
+
+  public enum Step {
+    // the order file is sent to the FTP server of the supplying facility
+    TRANSFER,
+    // the user that created the order is notified, also when the transfer failed
+    NOTIFICATION;
+
+    Step next() {
+      Step[] steps = values();
+      return ordinal() + 1 < steps.length ? steps[ordinal() + 1] : null;
+    }
+  }
+}
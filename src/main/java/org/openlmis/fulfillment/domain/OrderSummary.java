@@ -0,0 +1,103 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.domain;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Read-only projection of the {@link Order} columns needed to present an order in search
+ * results. Instances are created directly from query results so they are never attached to the
+ * persistence context and do not load line items, status messages or status changes.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public final class OrderSummary {
+  private final UUID id;
+  private final UUID externalId;
+  private final Boolean emergency;
+  private final UUID facilityId;
+  private final UUID processingPeriodId;
+  private final ZonedDateTime createdDate;
+  private final UUID createdById;
+  private final UUID programId;
+  private final UUID requestingFacilityId;
+  private final UUID receivingFacilityId;
+  private final UUID supplyingFacilityId;
+  private final String orderCode;
+  private final OrderStatus status;
+  private final BigDecimal quotedCost;
+  private final UUID lastUpdaterId;
+  private final ZonedDateTime lastUpdatedDate;
+
+  /**
+   * Creates a summary of the given order.
+   */
+  public static OrderSummary of(Order order) {
+    UpdateDetailsHolder updateDetails = new UpdateDetailsHolder();
+    if (null != order.getUpdateDetails()) {
+      order.getUpdateDetails().export(updateDetails);
+    }
+
+    return new OrderSummary(order.getId(), order.getExternalId(), order.getEmergency(),
+        order.getFacilityId(), order.getProcessingPeriodId(), order.getCreatedDate(),
+        order.getCreatedById(), order.getProgramId(), order.getRequestingFacilityId(),
+        order.getReceivingFacilityId(), order.getSupplyingFacilityId(), order.getOrderCode(),
+        order.getStatus(), order.getQuotedCost(), updateDetails.updaterId,
+        updateDetails.updatedDate);
+  }
+
+  /**
+   * Export this summary to the given exporter. Reference data (facilities, program, period and
+   * creator) is not set.
+   *
+   * @param exporter exporter to export to
+   */
+  public void export(Order.Exporter exporter) {
+    exporter.setId(id);
+    exporter.setExternalId(externalId);
+    exporter.setEmergency(emergency);
+    exporter.setOrderCode(orderCode);
+    exporter.setStatus(status);
+    exporter.setQuotedCost(quotedCost);
+    exporter.setCreatedDate(createdDate);
+    if (null != lastUpdaterId || null != lastUpdatedDate) {
+      exporter.setUpdateDetails(new UpdateDetails(lastUpdaterId, lastUpdatedDate));
+    }
+  }
+
+  private static final class UpdateDetailsHolder implements UpdateDetails.Exporter {
+    private UUID updaterId;
+    private ZonedDateTime updatedDate;
+
+    @Override
+    public void setUpdaterId(UUID updaterId) {
+      this.updaterId = updaterId;
+    }
+
+    @Override
+    public void setUpdatedDate(ZonedDateTime updatedDate) {
+      this.updatedDate = updatedDate;
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.domain;
+
+import org.openlmis.fulfillment.extension.point.OrderNumberGenerator;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * An implementation of OrderNumberGenerator extension that takes order numbers from a database
+ * sequence. Each instance reserves a block of numbers with a single sequence call and hands them
+ * out from memory, so numbers are unique across instances without a database round trip per
+ * order. The sequence is incremented by the fixed block size and each value is the first number
+ * of a block. Numbers are encoded as Base36 and padded to 8 characters.
+ * @see OrderNumberGenerator
+ */
+@Component("SequenceOrderNumberGenerator")
+public class SequenceOrderNumberGenerator implements OrderNumberGenerator {
+
+  static final int LENGTH = 8;
+
+  // must match the increment of the order_number_blocks sequence created in the
+  // 20261017130000000__create_order_number_sequence.sql migration
+  static final int BLOCK_SIZE = 100;
+
+  private static final char[] DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+  private static final int RADIX = DIGITS.length;
+
+  @Autowired
+  private OrderRepository orderRepository;
+
+  private long next;
+  private long limit;
+
+  /**
+   * Generates unique number for given order.
+   */
+  public String generate(Order order) {
+    return encode(nextNumber());
+  }
+
+  synchronized long nextNumber() {
+    if (next >= limit) {
+      next = orderRepository.nextOrderNumberBlock();
+      limit = next + BLOCK_SIZE;
+    }
+
+    return next++;
+  }
+
+  /**
+   * Encodes the given number as upper case Base36, left padded with zeros. Numbers that do not
+   * fit into 8 characters are encoded with as many characters as needed.
+   */
+  static String encode(long number) {
+    char[] buffer = new char[13];
+    int position = buffer.length;
+    long remaining = number;
+
+    do {
+      buffer[--position] = DIGITS[(int) (remaining % RADIX)];
+      remaining /= RADIX;
+    } while (remaining > 0);
+
+    while (buffer.length - position < LENGTH) {
+      buffer[--position] = '0';
+    }
+
+    return new String(buffer, position, buffer.length - position);
+  }
+}
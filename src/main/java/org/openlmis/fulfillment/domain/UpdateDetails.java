@@ -31,6 +31,8 @@ import org.hibernate.annotations.Type;
 @EqualsAndHashCode
 @ToString
 public class UpdateDetails {
+  public static final String UPDATER_ID = "updaterId";
+  public static final String UPDATED_DATE = "updatedDate";
 
   @Type(type = UUID_TYPE)
   private final UUID updaterId;
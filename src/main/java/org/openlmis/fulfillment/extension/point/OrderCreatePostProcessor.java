@@ -16,15 +16,33 @@
 package org.openlmis.fulfillment.extension.point;
 
 import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderPostProcessingTask;
+import org.openlmis.fulfillment.domain.OrderPostProcessingTask.Step;
 import org.openlmis.fulfillment.service.DefaultOrderCreatePostProcessor;
 import org.springframework.stereotype.Component;
 
 /**
- * Extension point used for logic after creating an order.
+ * Extension point used for logic after creating an order. The order is post-processed by the
+ * workers of the order post processing outbox, without a transaction, so changes made to the
+ * given order are not saved.
  * @see DefaultOrderCreatePostProcessor
  */
 @Component
 public interface OrderCreatePostProcessor {
 
   void process(Order order);
+
+  /**
+   * Runs the current step of the given outbox task. Each step is retried on its own, so a failed
+   * step does not repeat the steps that already succeeded. Implementations that do not split
+   * their work run all of it in the first step.
+   *
+   * @param order order to post-process.
+   * @param task  outbox task of the order.
+   */
+  default void process(Order order, OrderPostProcessingTask task) {
+    if (Step.TRANSFER == task.getStep()) {
+      process(order);
+    }
+  }
 }
@@ -76,6 +76,8 @@ public abstract class MessageKeys {
   public static final String CONSTRAINT_VIOLATION =
       join(ERROR_PREFIX, "constraintViolation");
   public static final String ERROR_IO = join(ERROR_PREFIX, "io");
+  public static final String SEARCH_COUNT_MODE_INVALID =
+      join(ERROR_PREFIX, "search", "countMode", INVALID);
   public static final String ERROR_ENCODING =
       join(ERROR_PREFIX, ENCODING, NOT_SUPPORTED);
   public static final String ERROR_VALIDATION_GENERAL = join(VALIDATION_ERROR, "general");
@@ -92,6 +94,10 @@ public abstract class MessageKeys {
   public static final String ORDER_EXISTS = join(ERROR_PREFIX, ORDER, EXISTS);
   public static final String ORDER_NOT_FOUND = join(ERROR_PREFIX, ORDER, NOT_FOUND);
   public static final String ORDER_INVALID_STATUS = join(ERROR_PREFIX, ORDER, INVALID_STATUS);
+  public static final String ORDER_SEARCH_CURSOR_INVALID =
+      join(ERROR_PREFIX, ORDER, "searchCursor", INVALID);
+  public static final String ORDER_TRANSFER_FAILED =
+      join(ERROR_PREFIX, ORDER, "transfer", "failed");
 
   public static final String ORDER_RETRY_INVALID_STATUS =
       join(ERROR_PREFIX, ORDER_RETRY, INVALID_STATUS);
@@ -0,0 +1,46 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.repository;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+import org.openlmis.fulfillment.domain.OrderPostProcessingTask;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface OrderPostProcessingTaskRepository
+    extends JpaRepository<OrderPostProcessingTask, UUID> {
+
+  /**
+   * Locks pending tasks that are due. Tasks locked by other transactions are skipped, so
+   * concurrent workers never claim the same task. Must be called within a transaction.
+   */
+  @Query(value = "SELECT\n"
+      + "    t.*\n"
+      + "FROM\n"
+      + "    fulfillment.order_post_processing_tasks t\n"
+      + "WHERE\n"
+      + "    t.status = 'PENDING'\n"
+      + "    AND t.nextattemptdate <= :now\n"
+      + "ORDER BY t.nextattemptdate\n"
+      + "LIMIT :limit\n"
+      + "FOR UPDATE SKIP LOCKED",
+      nativeQuery = true)
+  List<OrderPostProcessingTask> findDueForUpdate(@Param("now") ZonedDateTime now,
+      @Param("limit") int limit);
+}
@@ -15,9 +15,18 @@
 
 package org.openlmis.fulfillment.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.repository.custom.OrderRepositoryCustom;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 
@@ -28,4 +37,24 @@ public interface OrderRepository extends PagingAndSortingRepository<Order, UUID>
 
   Order findByExternalId(@Param("externalId") UUID externalId);
 
+  List<Order> findByExternalIdIn(@Param("externalIds") Collection<UUID> externalIds);
+
+  @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.orderLineItems WHERE o.id IN :ids")
+  List<Order> findWithLineItemsByIdIn(@Param("ids") Collection<UUID> ids);
+
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+  @Query("SELECT o.externalId FROM Order o WHERE o.externalId IS NOT NULL")
+  Stream<UUID> streamAllExternalIds();
+
+  @Query("SELECT o.externalId FROM Order o"
+      + " WHERE o.externalId IS NOT NULL AND o.createdDate >= :since")
+  List<UUID> findExternalIdsCreatedSince(@Param("since") ZonedDateTime since);
+
+  /**
+   * Allocates the next block of order numbers and returns its first number. Values are never
+   * returned twice, even when the surrounding transaction is rolled back.
+   */
+  @Query(value = "SELECT nextval('fulfillment.order_number_blocks')", nativeQuery = true)
+  Long nextOrderNumberBlock();
+
 }
@@ -15,6 +15,7 @@
 
 package org.openlmis.fulfillment.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import org.openlmis.fulfillment.domain.TransferProperties;
@@ -28,5 +29,9 @@ public interface TransferPropertiesRepository
   TransferProperties findFirstByFacilityIdAndTransferType(@Param("facilityId") UUID facilityId,
       @Param("transferType") TransferType transferType);
 
+  List<TransferProperties> findByFacilityIdInAndTransferType(
+      @Param("facilityIds") Collection<UUID> facilityIds,
+      @Param("transferType") TransferType transferType);
+
   List<TransferProperties> findByTransferType(@Param("transferType") TransferType transferType);
 }
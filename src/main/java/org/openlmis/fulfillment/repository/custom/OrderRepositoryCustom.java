@@ -19,6 +19,9 @@ import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderSummary;
+import org.openlmis.fulfillment.service.CountMode;
+import org.openlmis.fulfillment.service.OrderSearchCursor;
 import org.openlmis.fulfillment.service.OrderSearchParams;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -32,5 +35,26 @@ public interface OrderRepositoryCustom {
   Page<Order> searchOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
       Pageable pageable);
 
+  Page<Order> searchOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      Pageable pageable, CountMode countMode, Set<UUID> availableSupplyingFacilities,
+      Set<UUID> availableRequestingFacilities);
+
+  Page<Order> searchOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      Pageable pageable, CountMode countMode);
+
+  Page<OrderSummary> searchOrderSummaries(OrderSearchParams params,
+      Set<UUID> processingPeriodIds, Pageable pageable, CountMode countMode,
+      Set<UUID> availableSupplyingFacilities, Set<UUID> availableRequestingFacilities);
+
+  Page<OrderSummary> searchOrderSummaries(OrderSearchParams params,
+      Set<UUID> processingPeriodIds, Pageable pageable, CountMode countMode);
+
+  Page<OrderSummary> seekOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      OrderSearchCursor cursor, int pageSize, Set<UUID> availableSupplyingFacilities,
+      Set<UUID> availableRequestingFacilities);
+
+  Page<OrderSummary> seekOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      OrderSearchCursor cursor, int pageSize);
+
   List<UUID> getRequestingFacilities(List<UUID> supplyingFacilityIds);
 }
@@ -15,29 +15,51 @@
 
 package org.openlmis.fulfillment.repository.custom.impl;
 
+import static org.openlmis.fulfillment.domain.BaseEntity.ID;
+import static org.openlmis.fulfillment.domain.Order.CREATED_BY_ID;
+import static org.openlmis.fulfillment.domain.Order.CREATED_DATE;
+import static org.openlmis.fulfillment.domain.Order.EMERGENCY;
+import static org.openlmis.fulfillment.domain.Order.EXTERNAL_ID;
+import static org.openlmis.fulfillment.domain.Order.FACILITY_ID;
+import static org.openlmis.fulfillment.domain.Order.ORDER_CODE;
 import static org.openlmis.fulfillment.domain.Order.ORDER_STATUS;
 import static org.openlmis.fulfillment.domain.Order.PROCESSING_PERIOD_ID;
 import static org.openlmis.fulfillment.domain.Order.PROGRAM_ID;
+import static org.openlmis.fulfillment.domain.Order.QUOTED_COST;
+import static org.openlmis.fulfillment.domain.Order.RECEIVING_FACILITY_ID;
 import static org.openlmis.fulfillment.domain.Order.REQUESTING_FACILITY_ID;
 import static org.openlmis.fulfillment.domain.Order.SUPPLYING_FACILITY_ID;
+import static org.openlmis.fulfillment.domain.Order.UPDATE_DETAILS;
+import static org.openlmis.fulfillment.domain.UpdateDetails.UPDATED_DATE;
+import static org.openlmis.fulfillment.domain.UpdateDetails.UPDATER_ID;
 import static org.springframework.util.CollectionUtils.isEmpty;
 
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CompoundSelection;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.OrderSummary;
+import org.openlmis.fulfillment.domain.UpdateDetails;
 import org.openlmis.fulfillment.repository.custom.OrderRepositoryCustom;
+import org.openlmis.fulfillment.service.CountMode;
+import org.openlmis.fulfillment.service.OrderSearchCursor;
 import org.openlmis.fulfillment.service.OrderSearchParams;
 import org.openlmis.fulfillment.util.Pagination;
 import org.springframework.data.domain.Page;
@@ -63,8 +85,24 @@ public class OrderRepositoryImpl implements OrderRepositoryCustom {
   @Override
   public Page<Order> searchOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
       Pageable pageable) {
-    return search(params, processingPeriodIds, pageable, Collections.emptySet(),
-        Collections.emptySet());
+    return searchOrders(params, processingPeriodIds, pageable, CountMode.EXACT);
+  }
+
+  /**
+   * Method returns all Orders with matched parameters. This method ignore if user has right for
+   * order. Use it only with service based tokens.
+   *
+   * @param params search params (supplyingFacility, requestingFacility, program, statuses)
+   * @param processingPeriodIds set of Processing Period UUIDs
+   * @param pageable page parameters
+   * @param countMode how the total number of orders should be calculated
+   * @return List of Orders with matched parameters.
+   */
+  @Override
+  public Page<Order> searchOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      Pageable pageable, CountMode countMode) {
+    return search(Order.class, params, processingPeriodIds, pageable, countMode,
+        Collections.emptySet(), Collections.emptySet());
   }
 
   /**
@@ -83,29 +121,110 @@ public class OrderRepositoryImpl implements OrderRepositoryCustom {
   public Page<Order> searchOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
       Pageable pageable, Set<UUID> availableSupplyingFacilities,
       Set<UUID> availableRequestingFacilities) {
+    return searchOrders(params, processingPeriodIds, pageable, CountMode.EXACT,
+        availableSupplyingFacilities, availableRequestingFacilities);
+  }
+
+  /**
+   * Method returns all Orders with matched parameters. It will filter out all orders that are not
+   * part of {@code availableSupplyingFacilities} or {@code availableRequestingFacilities}. If both
+   * sets are empty it will result in empty response.
+   *
+   * @param params search params (supplyingFacility, requestingFacility, program, statuses)
+   * @param processingPeriodIds set of Processing Period UUIDs
+   * @param pageable page parameters
+   * @param countMode how the total number of orders should be calculated
+   * @param availableSupplyingFacilities  a set of supplying facilities user has right for
+   * @param availableRequestingFacilities a set of requesting facilities user has right for
+   * @return Page of Orders with matched parameters.
+   */
+  @Override
+  public Page<Order> searchOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      Pageable pageable, CountMode countMode, Set<UUID> availableSupplyingFacilities,
+      Set<UUID> availableRequestingFacilities) {
     if ((isEmpty(availableSupplyingFacilities) && isEmpty(availableRequestingFacilities))) {
       return Pagination.getPage(Collections.emptyList(), pageable);
     }
-    return search(params, processingPeriodIds,
-        pageable, availableSupplyingFacilities, availableRequestingFacilities);
+    return search(Order.class, params, processingPeriodIds, pageable, countMode,
+        availableSupplyingFacilities, availableRequestingFacilities);
   }
 
-  private Page<Order> search(OrderSearchParams params, Set<UUID> processingPeriodIds,
-      Pageable pageable, Set<UUID> availableSupplyingFacilities,
-      Set<UUID> availableRequestingFacilities) {
+  /**
+   * Method returns summaries of all Orders with matched parameters. Summaries are read-only
+   * projections so order entities are not loaded into the persistence context. This method
+   * ignore if user has right for order. Use it only with service based tokens.
+   *
+   * @param params search params (supplyingFacility, requestingFacility, program, statuses)
+   * @param processingPeriodIds set of Processing Period UUIDs
+   * @param pageable page parameters
+   * @param countMode how the total number of orders should be calculated
+   * @return Page of order summaries with matched parameters.
+   */
+  @Override
+  public Page<OrderSummary> searchOrderSummaries(OrderSearchParams params,
+      Set<UUID> processingPeriodIds, Pageable pageable, CountMode countMode) {
+    return search(OrderSummary.class, params, processingPeriodIds, pageable, countMode,
+        Collections.emptySet(), Collections.emptySet());
+  }
+
+  /**
+   * Method returns summaries of all Orders with matched parameters. It will filter out all orders
+   * that are not part of {@code availableSupplyingFacilities} or
+   * {@code availableRequestingFacilities}. If both sets are empty it will result in empty
+   * response.
+   *
+   * @param params search params (supplyingFacility, requestingFacility, program, statuses)
+   * @param processingPeriodIds set of Processing Period UUIDs
+   * @param pageable page parameters
+   * @param countMode how the total number of orders should be calculated
+   * @param availableSupplyingFacilities  a set of supplying facilities user has right for
+   * @param availableRequestingFacilities a set of requesting facilities user has right for
+   * @return Page of order summaries with matched parameters.
+   */
+  @Override
+  public Page<OrderSummary> searchOrderSummaries(OrderSearchParams params,
+      Set<UUID> processingPeriodIds, Pageable pageable, CountMode countMode,
+      Set<UUID> availableSupplyingFacilities, Set<UUID> availableRequestingFacilities) {
+    if ((isEmpty(availableSupplyingFacilities) && isEmpty(availableRequestingFacilities))) {
+      return Pagination.getPage(Collections.emptyList(), pageable);
+    }
+    return search(OrderSummary.class, params, processingPeriodIds, pageable, countMode,
+        availableSupplyingFacilities, availableRequestingFacilities);
+  }
+
+  private <T> Page<T> search(Class<T> resultClass, OrderSearchParams params,
+      Set<UUID> processingPeriodIds, Pageable pageable, CountMode countMode,
+      Set<UUID> availableSupplyingFacilities, Set<UUID> availableRequestingFacilities) {
     CriteriaBuilder builder = entityManager.getCriteriaBuilder();
 
-    CriteriaQuery<Order> query = builder.createQuery(Order.class);
+    CriteriaQuery<T> query = builder.createQuery(resultClass);
     query = prepareQuery(query, params, processingPeriodIds, pageable, false,
         availableSupplyingFacilities, availableRequestingFacilities);
-    CriteriaQuery<Long> countQuery = builder.createQuery(Long.class);
-    countQuery = prepareQuery(countQuery, params, processingPeriodIds, pageable, true,
-        availableSupplyingFacilities, availableRequestingFacilities);
 
     Pageable page = null != pageable ? pageable : PageRequest.of(0, Integer.MAX_VALUE);
 
-    Long count = entityManager.createQuery(countQuery).getSingleResult();
-    List<Order> result = entityManager.createQuery(query)
+    if (CountMode.NONE == countMode) {
+      List<T> probed = entityManager.createQuery(query)
+          .setMaxResults(Pagination.getProbeSize(page))
+          .setFirstResult(page.getPageSize() * page.getPageNumber())
+          .getResultList();
+
+      return Pagination.getProbedPage(probed, page);
+    }
+
+    long count;
+
+    if (CountMode.ESTIMATED == countMode) {
+      count = estimateCount(params, processingPeriodIds, availableSupplyingFacilities,
+          availableRequestingFacilities);
+    } else {
+      CriteriaQuery<Long> countQuery = builder.createQuery(Long.class);
+      countQuery = prepareQuery(countQuery, params, processingPeriodIds, pageable, true,
+          availableSupplyingFacilities, availableRequestingFacilities);
+      count = entityManager.createQuery(countQuery).getSingleResult();
+    }
+
+    List<T> result = entityManager.createQuery(query)
         .setMaxResults(page.getPageSize())
         .setFirstResult(page.getPageSize() * page.getPageNumber())
         .getResultList();
@@ -113,6 +232,144 @@ public class OrderRepositoryImpl implements OrderRepositoryCustom {
     return new PageImpl<>(result, page, count);
   }
 
+  private long estimateCount(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      Set<UUID> availableSupplyingFacilities, Set<UUID> availableRequestingFacilities) {
+    List<String> where = new ArrayList<>();
+    Map<String, Object> values = new HashMap<>();
+
+    if (null != params.getSupplyingFacilityId()) {
+      where.add("supplyingfacilityid = :supplyingFacilityId");
+      values.put("supplyingFacilityId", params.getSupplyingFacilityId());
+    }
+
+    if (null != params.getRequestingFacilityId()) {
+      where.add("requestingfacilityid = :requestingFacilityId");
+      values.put("requestingFacilityId", params.getRequestingFacilityId());
+    }
+
+    List<String> available = new ArrayList<>();
+
+    if (!isEmpty(availableSupplyingFacilities)) {
+      available.add(
+          UuidArray.containsNative("supplyingfacilityid", "availableSupplyingFacilities"));
+      values.put("availableSupplyingFacilities",
+          UuidArray.toLiteral(availableSupplyingFacilities));
+    }
+
+    if (!isEmpty(availableRequestingFacilities)) {
+      available.add(
+          UuidArray.containsNative("requestingfacilityid", "availableRequestingFacilities"));
+      values.put("availableRequestingFacilities",
+          UuidArray.toLiteral(availableRequestingFacilities));
+    }
+
+    if (!available.isEmpty()) {
+      where.add("(" + String.join(" OR ", available) + ")");
+    }
+
+    if (null != params.getProgramId()) {
+      where.add("programid = :programId");
+      values.put("programId", params.getProgramId());
+    }
+
+    if (!isEmpty(processingPeriodIds)) {
+      where.add(UuidArray.containsNative("processingperiodid", "processingPeriodIds"));
+      values.put("processingPeriodIds", UuidArray.toLiteral(processingPeriodIds));
+    }
+
+    Set<OrderStatus> statuses = params.getStatusAsEnum();
+
+    if (!isEmpty(statuses)) {
+      where.add("status IN (:statuses)");
+      values.put("statuses",
+          statuses.stream().map(OrderStatus::name).collect(Collectors.toSet()));
+    }
+
+    String sql = "SELECT id FROM fulfillment.orders"
+        + (where.isEmpty() ? "" : " WHERE " + String.join(" AND ", where));
+
+    return QueryPlanEstimator.estimate(entityManager, sql, values);
+  }
+
+  /**
+   * Method returns the next page of Orders with matched parameters using keyset (seek)
+   * pagination. Orders are sorted by created date and id (both descending) and the page starts
+   * right after the given cursor. This method ignore if user has right for order. Use it only
+   * with service based tokens.
+   *
+   * @param params search params (supplyingFacility, requestingFacility, program, statuses)
+   * @param processingPeriodIds set of Processing Period UUIDs
+   * @param cursor position of the last order of the previous page, {@code null} for first page
+   * @param pageSize max number of orders in the page
+   * @return Page of order summaries with matched parameters. The total number of elements is
+   *         not counted, the page only reports if there is a next page.
+   */
+  @Override
+  public Page<OrderSummary> seekOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      OrderSearchCursor cursor, int pageSize) {
+    return seek(params, processingPeriodIds, cursor, pageSize, Collections.emptySet(),
+        Collections.emptySet());
+  }
+
+  /**
+   * Method returns the next page of Orders with matched parameters using keyset (seek)
+   * pagination. It will filter out all orders that are not part of
+   * {@code availableSupplyingFacilities} or {@code availableRequestingFacilities}.
+   *
+   * @param params search params (supplyingFacility, requestingFacility, program, statuses)
+   * @param processingPeriodIds set of Processing Period UUIDs
+   * @param cursor position of the last order of the previous page, {@code null} for first page
+   * @param pageSize max number of orders in the page
+   * @param availableSupplyingFacilities  a set of supplying facilities user has right for
+   * @param availableRequestingFacilities a set of requesting facilities user has right for
+   * @return Page of order summaries with matched parameters.
+   */
+  @Override
+  public Page<OrderSummary> seekOrders(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      OrderSearchCursor cursor, int pageSize, Set<UUID> availableSupplyingFacilities,
+      Set<UUID> availableRequestingFacilities) {
+    if ((isEmpty(availableSupplyingFacilities) && isEmpty(availableRequestingFacilities))) {
+      return Pagination.getPage(Collections.emptyList(), PageRequest.of(0, pageSize));
+    }
+    return seek(params, processingPeriodIds, cursor, pageSize, availableSupplyingFacilities,
+        availableRequestingFacilities);
+  }
+
+  private Page<OrderSummary> seek(OrderSearchParams params, Set<UUID> processingPeriodIds,
+      OrderSearchCursor cursor, int pageSize, Set<UUID> availableSupplyingFacilities,
+      Set<UUID> availableRequestingFacilities) {
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<OrderSummary> query = builder.createQuery(OrderSummary.class);
+    Root<Order> root = query.from(Order.class);
+    query.select(selectSummary(builder, root));
+
+    Predicate predicate = prepareSearchPredicate(params, processingPeriodIds, root, builder,
+        availableSupplyingFacilities, availableRequestingFacilities);
+
+    if (null != cursor) {
+      // (createdDate, id) < (cursor.createdDate, cursor.id)
+      Path<ZonedDateTime> createdDate = root.get(CREATED_DATE);
+      Path<UUID> id = root.get(ID);
+
+      predicate = builder.and(predicate, builder.or(
+          builder.lessThan(createdDate, cursor.getCreatedDate()),
+          builder.and(
+              builder.equal(createdDate, cursor.getCreatedDate()),
+              builder.lessThan(id, cursor.getId()))));
+    }
+
+    query.where(predicate);
+    query.orderBy(builder.desc(root.get(CREATED_DATE)), builder.desc(root.get(ID)));
+
+    // one additional order is retrieved to find out if there is a next page
+    Pageable page = PageRequest.of(0, pageSize);
+    List<OrderSummary> probed = entityManager.createQuery(query)
+        .setMaxResults(Pagination.getProbeSize(page))
+        .getResultList();
+
+    return Pagination.getProbedPage(probed, page);
+  }
+
   /**
    * Retrieves the distinct UUIDs of the available requesting facilities.
    */
@@ -123,11 +380,8 @@ public class OrderRepositoryImpl implements OrderRepositoryCustom {
     Root<Order> root = query.from(Order.class);
 
     if (!isEmpty(supplyingFacilityIds)) {
-      Predicate predicate = builder.disjunction();
-      for (Object elem : supplyingFacilityIds) {
-        predicate = builder.or(predicate, builder.equal(root.get(SUPPLYING_FACILITY_ID), elem));
-      }
-      query.where(predicate);
+      query.where(UuidArray.contains(builder, root.<UUID>get(SUPPLYING_FACILITY_ID),
+          supplyingFacilityIds));
     }
 
     query.select(root.get(REQUESTING_FACILITY_ID)).distinct(true);
@@ -144,8 +398,48 @@ public class OrderRepositoryImpl implements OrderRepositoryCustom {
     if (count) {
       CriteriaQuery<Long> countQuery = (CriteriaQuery<Long>) query;
       query = (CriteriaQuery<T>) countQuery.select(builder.count(root));
+    } else if (OrderSummary.class == query.getResultType()) {
+      CriteriaQuery<OrderSummary> summaryQuery = (CriteriaQuery<OrderSummary>) query;
+      query = (CriteriaQuery<T>) summaryQuery.select(selectSummary(builder, root));
+    }
+
+    query.where(prepareSearchPredicate(params, processingPeriodIds, root, builder,
+        availableSupplyingFacilities, availableRequestingFacilities));
+
+    if (!count && pageable != null && pageable.getSort() != null) {
+      query = addSortProperties(query, root, pageable);
     }
 
+    return query;
+  }
+
+  private CompoundSelection<OrderSummary> selectSummary(CriteriaBuilder builder,
+      Root<Order> root) {
+    Path<UpdateDetails> updateDetails = root.get(UPDATE_DETAILS);
+
+    // the order of selections has to match the OrderSummary constructor
+    return builder.construct(OrderSummary.class,
+        root.get(ID),
+        root.get(EXTERNAL_ID),
+        root.get(EMERGENCY),
+        root.get(FACILITY_ID),
+        root.get(PROCESSING_PERIOD_ID),
+        root.get(CREATED_DATE),
+        root.get(CREATED_BY_ID),
+        root.get(PROGRAM_ID),
+        root.get(REQUESTING_FACILITY_ID),
+        root.get(RECEIVING_FACILITY_ID),
+        root.get(SUPPLYING_FACILITY_ID),
+        root.get(ORDER_CODE),
+        root.get(ORDER_STATUS),
+        root.get(QUOTED_COST),
+        updateDetails.get(UPDATER_ID),
+        updateDetails.get(UPDATED_DATE));
+  }
+
+  private Predicate prepareSearchPredicate(OrderSearchParams params,
+      Set<UUID> processingPeriodIds, Root<Order> root, CriteriaBuilder builder,
+      Set<UUID> availableSupplyingFacilities, Set<UUID> availableRequestingFacilities) {
     Predicate predicate = builder.conjunction();
     predicate =
         isEqual(SUPPLYING_FACILITY_ID, params.getSupplyingFacilityId(), root, predicate, builder);
@@ -154,24 +448,18 @@ public class OrderRepositoryImpl implements OrderRepositoryCustom {
 
     if (!(isEmpty(availableSupplyingFacilities) && isEmpty(availableRequestingFacilities))) {
       Predicate orPredicate = builder.disjunction();
-      orPredicate = isOneOfOr(SUPPLYING_FACILITY_ID, availableSupplyingFacilities, root,
+      orPredicate = isInArrayOr(SUPPLYING_FACILITY_ID, availableSupplyingFacilities, root,
           orPredicate, builder);
-      orPredicate = isOneOfOr(REQUESTING_FACILITY_ID, availableRequestingFacilities, root,
+      orPredicate = isInArrayOr(REQUESTING_FACILITY_ID, availableRequestingFacilities, root,
           orPredicate, builder);
       predicate = builder.and(predicate, orPredicate);
     }
 
     predicate = isEqual(PROGRAM_ID, params.getProgramId(), root, predicate, builder);
-    predicate = isOneOf(PROCESSING_PERIOD_ID, processingPeriodIds, root, predicate, builder);
+    predicate = isInArray(PROCESSING_PERIOD_ID, processingPeriodIds, root, predicate, builder);
     predicate = isOneOf(ORDER_STATUS, params.getStatusAsEnum(), root, predicate, builder);
 
-    query.where(predicate);
-
-    if (!count && pageable != null && pageable.getSort() != null) {
-      query = addSortProperties(query, root, pageable);
-    }
-
-    return query;
+    return predicate;
   }
 
   private Predicate isOneOf(String field, Collection collection, Root<Order> root,
@@ -181,10 +469,17 @@ public class OrderRepositoryImpl implements OrderRepositoryCustom {
         : predicate;
   }
 
-  private Predicate isOneOfOr(String field, Collection collection, Root<Order> root,
-                            Predicate predicate, CriteriaBuilder builder) {
-    return !isEmpty(collection)
-        ? builder.or(predicate, root.get(field).in(collection))
+  private Predicate isInArray(String field, Collection<UUID> ids, Root<Order> root,
+                              Predicate predicate, CriteriaBuilder builder) {
+    return !isEmpty(ids)
+        ? builder.and(predicate, UuidArray.contains(builder, root.<UUID>get(field), ids))
+        : predicate;
+  }
+
+  private Predicate isInArrayOr(String field, Collection<UUID> ids, Root<Order> root,
+                                Predicate predicate, CriteriaBuilder builder) {
+    return !isEmpty(ids)
+        ? builder.or(predicate, UuidArray.contains(builder, root.<UUID>get(field), ids))
         : predicate;
   }
 
@@ -32,6 +32,7 @@ import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 import org.openlmis.fulfillment.domain.ProofOfDelivery;
 import org.openlmis.fulfillment.repository.custom.ProofOfDeliveryRepositoryCustom;
+import org.openlmis.fulfillment.service.CountMode;
 import org.openlmis.fulfillment.util.Pagination;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -51,6 +52,12 @@ public class ProofOfDeliveryRepositoryImpl implements ProofOfDeliveryRepositoryC
       + " INNER JOIN p.shipment AS s"
       + " INNER JOIN s.order AS o";
 
+  // column names are case insensitive so the same aliases can be used in the native query
+  private static final String POD_ESTIMATE = "SELECT p.id"
+      + " FROM fulfillment.proofs_of_delivery AS p"
+      + " INNER JOIN fulfillment.shipments AS s ON s.id = p.shipmentId"
+      + " INNER JOIN fulfillment.orders AS o ON o.id = s.orderId";
+
   private static final String WHERE = "WHERE";
   private static final String AND = " AND ";
   private static final String ASC = "ASC";
@@ -59,12 +66,12 @@ public class ProofOfDeliveryRepositoryImpl implements ProofOfDeliveryRepositoryC
 
   private static final String WITH_SHIPMENT_ID = "s.id = :shipmentId";
   private static final String WITH_ORDER_ID = "o.id = :orderId";
-  private static final String WITH_RECEIVING_FACILITIES =
-      "o.receivingFacilityId IN (:receivingFacilityIds)";
-  private static final String WITH_SUPPLYING_FACILITIES =
-      "o.supplyingFacilityId IN (:supplyingFacilityIds)";
-  private static final String WITH_PROGRAM_IDS =
-      "o.programId IN (:programIds)";
+  private static final String RECEIVING_FACILITY_ID = "o.receivingFacilityId";
+  private static final String RECEIVING_FACILITY_IDS = "receivingFacilityIds";
+  private static final String SUPPLYING_FACILITY_ID = "o.supplyingFacilityId";
+  private static final String SUPPLYING_FACILITY_IDS = "supplyingFacilityIds";
+  private static final String PROGRAM_ID = "o.programId";
+  private static final String PROGRAM_IDS = "programIds";
 
   @PersistenceContext
   private EntityManager entityManager;
@@ -81,10 +88,45 @@ public class ProofOfDeliveryRepositoryImpl implements ProofOfDeliveryRepositoryC
    */
   public Page<ProofOfDelivery> search(UUID shipmentId, UUID orderId, Set<UUID> receivingFacilityIds,
       Set<UUID> supplyingFacilityIds, Set<UUID> programIds, Pageable pageable) {
+    return search(shipmentId, orderId, receivingFacilityIds, supplyingFacilityIds, programIds,
+        pageable, CountMode.EXACT);
+  }
+
+  /**
+   * This method is supposed to retrieve all PODs with matched parameters.
+   *
+   * @param shipmentId           UUID of associated shipment
+   * @param orderId              UUID of associated order
+   * @param receivingFacilityIds list of UUIDs of receiving facility in associated order
+   * @param supplyingFacilityIds list of UUIDs of supplying facility in associated order
+   * @param pageable             pagination parameters
+   * @param countMode            how the total number of PODs should be calculated
+   * @return List of Facilities matching the parameters.
+   */
+  public Page<ProofOfDelivery> search(UUID shipmentId, UUID orderId, Set<UUID> receivingFacilityIds,
+      Set<UUID> supplyingFacilityIds, Set<UUID> programIds, Pageable pageable,
+      CountMode countMode) {
+
+    if (CountMode.NONE == countMode) {
+      TypedQuery searchQuery = prepareQuery(POD_SELECT, shipmentId, orderId, receivingFacilityIds,
+          supplyingFacilityIds, programIds, pageable, false);
+      List<ProofOfDelivery> probed = searchQuery
+          .setMaxResults(Pagination.getProbeSize(pageable))
+          .setFirstResult(Math.toIntExact(pageable.getOffset()))
+          .getResultList();
+      return Pagination.getProbedPage(probed, pageable);
+    }
 
-    TypedQuery countQuery = prepareQuery(POD_COUNT, shipmentId, orderId, receivingFacilityIds,
-        supplyingFacilityIds, programIds, pageable, true);
-    Long count = (Long) countQuery.getSingleResult();
+    Long count;
+
+    if (CountMode.ESTIMATED == countMode) {
+      count = estimateCount(shipmentId, orderId, receivingFacilityIds, supplyingFacilityIds,
+          programIds);
+    } else {
+      TypedQuery countQuery = prepareQuery(POD_COUNT, shipmentId, orderId, receivingFacilityIds,
+          supplyingFacilityIds, programIds, pageable, true);
+      count = (Long) countQuery.getSingleResult();
+    }
 
     if (count > 0) {
       TypedQuery searchQuery = prepareQuery(POD_SELECT, shipmentId, orderId, receivingFacilityIds,
@@ -99,36 +141,30 @@ public class ProofOfDeliveryRepositoryImpl implements ProofOfDeliveryRepositoryC
     return Pagination.getPage(emptyList(), pageable, count);
   }
 
-  private TypedQuery prepareQuery(String select, UUID shipmentId, UUID orderId,
-      Set<UUID> receivingFacilityIds, Set<UUID> supplyingFacilityIds, Set<UUID> programIds,
-      Pageable pageable, boolean count) {
-
-    List<String> sql = Lists.newArrayList(select);
-    List<String> where = Lists.newArrayList();
+  private long estimateCount(UUID shipmentId, UUID orderId, Set<UUID> receivingFacilityIds,
+      Set<UUID> supplyingFacilityIds, Set<UUID> programIds) {
+    List<String> sql = Lists.newArrayList(POD_ESTIMATE);
     Map<String, Object> params = Maps.newHashMap();
+    List<String> where = prepareWhere(shipmentId, orderId, receivingFacilityIds,
+        supplyingFacilityIds, programIds, params, true);
 
-    if (null != shipmentId) {
-      where.add(WITH_SHIPMENT_ID);
-      params.put("shipmentId", shipmentId);
-    } else if (null != orderId) {
-      where.add(WITH_ORDER_ID);
-      params.put("orderId", orderId);
+    if (!where.isEmpty()) {
+      sql.add(WHERE);
+      sql.add(Joiner.on(AND).join(where));
     }
 
-    if (isNotEmpty(receivingFacilityIds)) {
-      where.add(WITH_RECEIVING_FACILITIES);
-      params.put("receivingFacilityIds", receivingFacilityIds);
-    }
+    // the planner estimates at least one row so the page query is always executed
+    return QueryPlanEstimator.estimate(entityManager, Joiner.on(' ').join(sql), params);
+  }
 
-    if (isNotEmpty(supplyingFacilityIds)) {
-      where.add(WITH_SUPPLYING_FACILITIES);
-      params.put("supplyingFacilityIds", supplyingFacilityIds);
-    }
+  private TypedQuery prepareQuery(String select, UUID shipmentId, UUID orderId,
+      Set<UUID> receivingFacilityIds, Set<UUID> supplyingFacilityIds, Set<UUID> programIds,
+      Pageable pageable, boolean count) {
 
-    if (isNotEmpty(programIds)) {
-      where.add(WITH_PROGRAM_IDS);
-      params.put("programIds", programIds);
-    }
+    List<String> sql = Lists.newArrayList(select);
+    Map<String, Object> params = Maps.newHashMap();
+    List<String> where = prepareWhere(shipmentId, orderId, receivingFacilityIds,
+        supplyingFacilityIds, programIds, params, false);
 
     if (!where.isEmpty()) {
       sql.add(WHERE);
@@ -148,6 +184,38 @@ public class ProofOfDeliveryRepositoryImpl implements ProofOfDeliveryRepositoryC
     return typedQuery;
   }
 
+  private List<String> prepareWhere(UUID shipmentId, UUID orderId,
+      Set<UUID> receivingFacilityIds, Set<UUID> supplyingFacilityIds, Set<UUID> programIds,
+      Map<String, Object> params, boolean nativeQuery) {
+    List<String> where = Lists.newArrayList();
+
+    if (null != shipmentId) {
+      where.add(WITH_SHIPMENT_ID);
+      params.put("shipmentId", shipmentId);
+    } else if (null != orderId) {
+      where.add(WITH_ORDER_ID);
+      params.put("orderId", orderId);
+    }
+
+    addArrayCondition(where, params, RECEIVING_FACILITY_ID, RECEIVING_FACILITY_IDS,
+        receivingFacilityIds, nativeQuery);
+    addArrayCondition(where, params, SUPPLYING_FACILITY_ID, SUPPLYING_FACILITY_IDS,
+        supplyingFacilityIds, nativeQuery);
+    addArrayCondition(where, params, PROGRAM_ID, PROGRAM_IDS, programIds, nativeQuery);
+
+    return where;
+  }
+
+  private void addArrayCondition(List<String> where, Map<String, Object> params, String path,
+      String parameter, Set<UUID> ids, boolean nativeQuery) {
+    if (isNotEmpty(ids)) {
+      where.add(nativeQuery
+          ? UuidArray.containsNative(path, parameter)
+          : UuidArray.contains(path, parameter));
+      params.put(parameter, UuidArray.toLiteral(ids));
+    }
+  }
+
   private String getOrderPredicate(Pageable pageable) {
     List<String> orderPredicate = new ArrayList<>();
     List<String> sql = new ArrayList<>();
@@ -0,0 +1,49 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.repository.custom.impl;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+/**
+ * Estimates the number of rows returned by a native query with the PostgreSQL planner. The
+ * estimate is taken from the top node of the EXPLAIN output so the query itself is not executed.
+ */
+final class QueryPlanEstimator {
+  private static final Pattern ROWS = Pattern.compile("rows=(\\d+)");
+
+  private QueryPlanEstimator() {
+    throw new UnsupportedOperationException();
+  }
+
+  static long estimate(EntityManager entityManager, String sql, Map<String, Object> params) {
+    Query query = entityManager.createNativeQuery("EXPLAIN " + sql);
+    params.forEach(query::setParameter);
+
+    List<?> plan = query.getResultList();
+
+    if (plan.isEmpty()) {
+      return 0;
+    }
+
+    Matcher matcher = ROWS.matcher(String.valueOf(plan.get(0)));
+    return matcher.find() ? Long.parseLong(matcher.group(1)) : 0;
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.repository.custom.impl;
+
+import org.hibernate.boot.MetadataBuilder;
+import org.hibernate.boot.spi.MetadataBuilderContributor;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers SQL functions used by the custom repositories in JPQL and criteria queries. It is
+ * enabled with the {@code hibernate.metadata_builder_contributor} property.
+ */
+public class SqlFunctionsContributor implements MetadataBuilderContributor {
+
+  /**
+   * Checks if a UUID column is one of the elements of a PostgreSQL array literal, for example
+   * {@code uuid_in_array(o.supplyingFacilityId, :ids) = true}. The whole set is sent as a single
+   * bind parameter so the statement text does not depend on the number of elements.
+   */
+  static final String UUID_IN_ARRAY = "uuid_in_array";
+
+  @Override
+  public void contribute(MetadataBuilder metadataBuilder) {
+    metadataBuilder.applySqlFunction(UUID_IN_ARRAY, new SQLFunctionTemplate(
+        StandardBasicTypes.BOOLEAN, "(?1 = ANY(CAST(?2 AS uuid[])))"));
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.repository.custom.impl;
+
+import static org.openlmis.fulfillment.repository.custom.impl.SqlFunctionsContributor.UUID_IN_ARRAY;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+
+/**
+ * Helpers to filter UUID columns by a set of values bound as a single {@code uuid[]} parameter
+ * ({@code column = ANY(?)}) instead of an {@code IN} list with one parameter per element.
+ */
+final class UuidArray {
+
+  private UuidArray() {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Returns a JPQL condition that checks if the given UUID path is in the array parameter.
+   */
+  static String contains(String path, String parameter) {
+    return UUID_IN_ARRAY + "(" + path + ", :" + parameter + ") = true";
+  }
+
+  /**
+   * Returns a native SQL condition that checks if the given UUID column is in the array
+   * parameter.
+   */
+  static String containsNative(String column, String parameter) {
+    return column + " = ANY(CAST(:" + parameter + " AS uuid[]))";
+  }
+
+  /**
+   * Returns a criteria predicate that checks if the given UUID expression is one of the ids.
+   */
+  static Predicate contains(CriteriaBuilder builder, Expression<UUID> expression,
+      Collection<UUID> ids) {
+    return builder.isTrue(builder.function(UUID_IN_ARRAY, Boolean.class, expression,
+        builder.literal(toLiteral(ids))));
+  }
+
+  /**
+   * Converts the ids to a PostgreSQL array literal, for example <code>{id1,id2}</code>.
+   */
+  static String toLiteral(Collection<UUID> ids) {
+    return ids
+        .stream()
+        .map(UUID::toString)
+        .collect(Collectors.joining(",", "{", "}"));
+  }
+}
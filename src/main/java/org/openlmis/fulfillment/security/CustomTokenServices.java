@@ -15,22 +15,122 @@
 
 package org.openlmis.fulfillment.security;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
 import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AccessTokenConverter;
 import org.springframework.security.oauth2.provider.token.RemoteTokenServices;
 
 public class CustomTokenServices extends RemoteTokenServices {
+  private static final ThreadLocal<Long> TOKEN_EXPIRATION = new ThreadLocal<>();
 
   private int invalidTokenRetryLimit;
 
+  private Cache<String, Introspection> introspections;
+  private long maxTimeToLive;
+  private long invalidTokenTimeToLive;
+  private Clock clock = Clock.systemUTC();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
   public CustomTokenServices(int invalidTokenRetryLimit) {
     super();
     this.invalidTokenRetryLimit = invalidTokenRetryLimit;
   }
 
+  /**
+   * Creates token services that cache introspection results. A valid token is cached until it
+   * expires but not longer than the given time-to-live. An invalid token is cached for the
+   * given (short) time-to-live so that repeated calls with it are rejected locally.
+   */
+  public CustomTokenServices(int invalidTokenRetryLimit, long cacheMaxSize,
+      Duration maxTimeToLive, Duration invalidTokenTimeToLive) {
+    this(invalidTokenRetryLimit);
+
+    if (cacheMaxSize > 0 && !maxTimeToLive.isZero() && !maxTimeToLive.isNegative()) {
+      this.maxTimeToLive = maxTimeToLive.toMillis();
+      this.invalidTokenTimeToLive = invalidTokenTimeToLive.toMillis();
+      this.introspections = CacheBuilder
+          .newBuilder()
+          .maximumSize(cacheMaxSize)
+          .expireAfterWrite(this.maxTimeToLive, TimeUnit.MILLISECONDS)
+          .build();
+    }
+  }
+
+  void setClock(Clock clock) {
+    this.clock = clock;
+  }
+
+  @Override
+  public void setAccessTokenConverter(AccessTokenConverter accessTokenConverter) {
+    super.setAccessTokenConverter(new ExpirationRecordingConverter(accessTokenConverter));
+  }
+
   @Override
   public OAuth2Authentication loadAuthentication(String accessToken) {
-    return loadAuthentication(accessToken, 0);
+    if (null == introspections) {
+      return loadAuthentication(accessToken, 0);
+    }
+
+    String key = Hashing.sha256().hashString(accessToken, StandardCharsets.UTF_8).toString();
+    long now = clock.millis();
+    Introspection cached = introspections.getIfPresent(key);
+
+    if (null != cached && now < cached.getExpiresAt()) {
+      hits.increment();
+
+      if (null == cached.getAuthentication()) {
+        throw new InvalidTokenException(accessToken);
+      }
+
+      return copy(cached.getAuthentication());
+    }
+
+    misses.increment();
+
+    try {
+      OAuth2Authentication authentication = loadAuthentication(accessToken, 0);
+      Long expiration = TOKEN_EXPIRATION.get();
+      long expiresAt = null == expiration
+          ? now + maxTimeToLive
+          : Math.min(now + maxTimeToLive, TimeUnit.SECONDS.toMillis(expiration));
+
+      if (expiresAt > now) {
+        introspections.put(key, new Introspection(authentication, expiresAt));
+      }
+
+      return copy(authentication);
+    } catch (InvalidTokenException ex) {
+      if (invalidTokenTimeToLive > 0) {
+        introspections.put(key, new Introspection(null, now + invalidTokenTimeToLive));
+      }
+
+      throw ex;
+    } finally {
+      TOKEN_EXPIRATION.remove();
+    }
+  }
+
+  /**
+   * Returns hit and miss counters of the introspection cache.
+   */
+  public Stats getCacheStats() {
+    return new Stats(hits.sum(), misses.sum(),
+        null == introspections ? 0 : introspections.size());
   }
 
   private OAuth2Authentication loadAuthentication(String accessToken, int attempt) {
@@ -46,4 +146,63 @@ public class CustomTokenServices extends RemoteTokenServices {
       }
     }
   }
-}
\ No newline at end of file
+
+  // the authentication details are set by the processing filter for each request so
+  // the cached instance can't be shared between requests
+  private OAuth2Authentication copy(OAuth2Authentication authentication) {
+    return new OAuth2Authentication(
+        authentication.getOAuth2Request(), authentication.getUserAuthentication());
+  }
+
+  @Getter
+  @AllArgsConstructor
+  private static final class Introspection {
+    private final OAuth2Authentication authentication;
+    private final long expiresAt;
+  }
+
+  @Getter
+  @ToString
+  @AllArgsConstructor
+  public static final class Stats {
+    private final long hitCount;
+    private final long missCount;
+    private final long size;
+
+    public double getHitRate() {
+      long requestCount = hitCount + missCount;
+      return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+  }
+
+  /**
+   * Records the expiration time from the check token response so that the introspection result
+   * is not cached longer than the token is valid.
+   */
+  @AllArgsConstructor
+  private static final class ExpirationRecordingConverter implements AccessTokenConverter {
+    private final AccessTokenConverter delegate;
+
+    @Override
+    public Map<String, ?> convertAccessToken(OAuth2AccessToken token,
+        OAuth2Authentication authentication) {
+      return delegate.convertAccessToken(token, authentication);
+    }
+
+    @Override
+    public OAuth2AccessToken extractAccessToken(String value, Map<String, ?> map) {
+      return delegate.extractAccessToken(value, map);
+    }
+
+    @Override
+    public OAuth2Authentication extractAuthentication(Map<String, ?> map) {
+      Object expiration = map.get(EXP);
+
+      if (expiration instanceof Number) {
+        TOKEN_EXPIRATION.set(((Number) expiration).longValue());
+      }
+
+      return delegate.extractAuthentication(map);
+    }
+  }
+}
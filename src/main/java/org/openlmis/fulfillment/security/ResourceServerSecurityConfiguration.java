@@ -16,6 +16,7 @@
 package org.openlmis.fulfillment.security;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Arrays;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -108,6 +109,9 @@ public class ResourceServerSecurityConfiguration implements ResourceServerConfig
    * @param checkTokenUrl url to check tokens against
    * @param clientId client's id
    * @param clientSecret client's secret
+   * @param cacheMaxSize max number of cached token introspection results
+   * @param cacheTimeToLive max number of seconds a valid token is cached
+   * @param cacheInvalidTokenTimeToLive number of seconds an invalid token is cached
    * @return token services
    */
   @Bean
@@ -116,8 +120,14 @@ public class ResourceServerSecurityConfiguration implements ResourceServerConfig
       @Value("${auth.server.url}") String checkTokenUrl,
       @Value("${auth.server.clientId}") String clientId,
       @Value("${auth.server.clientSecret}") String clientSecret,
-      @Value("${auth.server.invalidToken.retryLimit}") int invalidTokenRetryLimit) {
-    final RemoteTokenServices remoteTokenServices = new CustomTokenServices(invalidTokenRetryLimit);
+      @Value("${auth.server.invalidToken.retryLimit}") int invalidTokenRetryLimit,
+      @Value("${auth.server.tokenCache.maxSize}") long cacheMaxSize,
+      @Value("${auth.server.tokenCache.timeToLive}") long cacheTimeToLive,
+      @Value("${auth.server.tokenCache.invalidTokenTimeToLive}")
+          long cacheInvalidTokenTimeToLive) {
+    final RemoteTokenServices remoteTokenServices = new CustomTokenServices(
+        invalidTokenRetryLimit, cacheMaxSize, Duration.ofSeconds(cacheTimeToLive),
+        Duration.ofSeconds(cacheInvalidTokenTimeToLive));
     remoteTokenServices.setCheckTokenEndpointUrl(checkTokenUrl);
     remoteTokenServices.setClientId(clientId);
     remoteTokenServices.setClientSecret(clientSecret);
@@ -20,6 +20,8 @@ import static org.openlmis.fulfillment.service.request.RequestHelper.createUri;
 import java.util.Map;
 import org.apache.commons.codec.binary.Base64;
 import org.openlmis.fulfillment.service.request.RequestParameters;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
@@ -29,7 +31,6 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestOperations;
-import org.springframework.web.client.RestTemplate;
 
 @Service
 public class AuthService {
@@ -44,7 +45,9 @@ public class AuthService {
   @Value("${auth.server.authorizationUrl}")
   private String authorizationUrl;
 
-  private RestOperations restTemplate = new RestTemplate();
+  @Autowired
+  @Qualifier("outboundRestTemplate")
+  private RestOperations restTemplate;
 
   /**
    * Retrieves access token from the auth service.
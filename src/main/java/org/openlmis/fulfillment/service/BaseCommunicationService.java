@@ -24,6 +24,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.openlmis.fulfillment.service.request.RequestHeaders;
@@ -34,6 +38,7 @@ import org.openlmis.fulfillment.util.Merger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.data.domain.Page;
@@ -43,20 +48,25 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestOperations;
-import org.springframework.web.client.RestTemplate;
 
 @SuppressWarnings("PMD.TooManyMethods")
 public abstract class BaseCommunicationService<T> {
   private static final Logger LOGGER = LoggerFactory.getLogger(BaseCommunicationService.class);
 
-  protected RestOperations restTemplate = new RestTemplate();
+  @Autowired
+  @Qualifier("outboundRestTemplate")
+  protected RestOperations restTemplate;
 
   @Autowired
   protected AuthService authService;
 
   @Value("${request.maxUrlLength}")
   private int maxUrlLength;
-  
+
+  @Autowired(required = false)
+  @Qualifier("splitRequestExecutor")
+  private Executor splitRequestExecutor;
+
   protected abstract String getServiceUrl();
 
   protected abstract String getUrl();
@@ -120,6 +130,37 @@ public abstract class BaseCommunicationService<T> {
     }
   }
 
+  /**
+   * Return content of the page that need to be retrieved with GET request. If the given ETag
+   * still matches the remote resource, the response is not modified and has no body.
+   *
+   * @param resourceUrl Endpoint url.
+   * @param parameters  Map of query parameters.
+   * @param type        type of the page content.
+   * @param etag        ETag of the previously retrieved content, may be null.
+   * @return response with the page content.
+   */
+  protected <P> ServiceResponse<List<P>> tryGetPage(String resourceUrl,
+      RequestParameters parameters, Class<P> type, String etag) {
+    String url = getServiceUrl() + getUrl() + resourceUrl;
+
+    try {
+      ResponseEntity<PageDto<P>> response = runWithTokenRetry(() -> restTemplate.exchange(
+          createUri(url, parameters), HttpMethod.GET,
+          RequestHelper.createEntity(null,
+              addAuthHeader(RequestHeaders.init().setIfNoneMatch(etag))),
+          new DynamicPageTypeReference<>(type)));
+
+      if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+        return new ServiceResponse<>(null, response.getHeaders(), false);
+      } else {
+        return new ServiceResponse<>(response.getBody().getContent(), response.getHeaders(), true);
+      }
+    } catch (HttpStatusCodeException ex) {
+      throw buildDataRetrievalException(ex);
+    }
+  }
+
   /**
    * Return all reference data T objects for Page that need to be retrieved with GET request.
    *
@@ -162,11 +203,8 @@ public abstract class BaseCommunicationService<T> {
       Class<E[]> type) {
     HttpEntity<Object> entity = RequestHelper
         .createEntity(payload, RequestHeaders.init().setAuth(authService.obtainAccessToken()));
-    List<E[]> arrays = new ArrayList<>();
-
-    for (URI uri : RequestHelper.splitRequest(url, parameters, maxUrlLength)) {
-      arrays.add(restTemplate.exchange(uri, method, entity, type).getBody());
-    }
+    List<E[]> arrays = exchangeAll(RequestHelper.splitRequest(url, parameters, maxUrlLength),
+        uri -> restTemplate.exchange(uri, method, entity, type).getBody());
 
     E[] body = Merger
         .ofArrays(arrays)
@@ -189,11 +227,9 @@ public abstract class BaseCommunicationService<T> {
         .createEntity(payload, RequestHeaders.init().setAuth(authService.obtainAccessToken()));
     ParameterizedTypeReference<PageDto<E>> parameterizedType =
         new DynamicPageTypeReference<>(type);
-    List<PageDto<E>> pages = new ArrayList<>();
-
-    for (URI uri : RequestHelper.splitRequest(url, parameters, maxUrlLength)) {
-      pages.add(restTemplate.exchange(uri, method, entity, parameterizedType).getBody());
-    }
+    List<PageDto<E>> pages = exchangeAll(
+        RequestHelper.splitRequest(url, parameters, maxUrlLength),
+        uri -> restTemplate.exchange(uri, method, entity, parameterizedType).getBody());
 
     PageDto<E> body = Merger
         .ofPages(pages)
@@ -203,6 +239,56 @@ public abstract class BaseCommunicationService<T> {
     return new ResponseEntity<>(body, HttpStatus.OK);
   }
 
+  /**
+   * Sends a request for each of the given (split) URIs. If there is more than one URI and the
+   * split request executor is available the requests are sent concurrently. Results are returned
+   * in the same order as the URIs.
+   */
+  private <R> List<R> exchangeAll(URI[] uris, Function<URI, R> exchange) {
+    if (uris.length == 1 || null == splitRequestExecutor) {
+      List<R> results = new ArrayList<>(uris.length);
+
+      for (URI uri : uris) {
+        results.add(timeExchange(uri, uris.length, exchange));
+      }
+
+      return results;
+    }
+
+    List<CompletableFuture<R>> futures = Stream
+        .of(uris)
+        .map(uri -> CompletableFuture
+            .supplyAsync(() -> timeExchange(uri, uris.length, exchange), splitRequestExecutor))
+        .collect(Collectors.toList());
+
+    try {
+      return futures
+          .stream()
+          .map(CompletableFuture::join)
+          .collect(Collectors.toList());
+    } catch (CompletionException ex) {
+      futures.forEach(future -> future.cancel(true));
+
+      // rethrow the original exception so that the token retry and error handling still work
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+
+      throw ex;
+    }
+  }
+
+  private <R> R timeExchange(URI uri, int chunks, Function<URI, R> exchange) {
+    long start = System.nanoTime();
+
+    try {
+      return exchange.apply(uri);
+    } finally {
+      LOGGER.debug("fulfillment request chunk url: {}, chunks: {}, took: {} ms",
+          uri.getPath(), chunks, (System.nanoTime() - start) / 1_000_000);
+    }
+  }
+
   protected <P> ResponseEntity<P> runWithTokenRetry(HttpTask<P> task) {
     try {
       return task.run();
@@ -239,7 +325,7 @@ public abstract class BaseCommunicationService<T> {
     return RequestHelper.createEntity(createHeadersWithAuth());
   }
 
-  private RequestHeaders addAuthHeader(RequestHeaders headers) {
+  protected RequestHeaders addAuthHeader(RequestHeaders headers) {
     return null == headers
         ? RequestHeaders.init().setAuth(authService.obtainAccessToken())
         : headers.setAuth(authService.obtainAccessToken());
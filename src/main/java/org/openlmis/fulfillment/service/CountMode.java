@@ -0,0 +1,74 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.openlmis.fulfillment.i18n.MessageKeys.SEARCH_COUNT_MODE_INVALID;
+
+import java.util.Locale;
+import org.apache.commons.lang3.StringUtils;
+import org.openlmis.fulfillment.web.ValidationException;
+
+/**
+ * Defines how the total number of elements of a search result page is calculated. Counting all
+ * matching rows is often more expensive than retrieving the page itself so clients that only
+ * need to know if there is a next page can skip it.
+ */
+public enum CountMode {
+
+  /**
+   * The exact number of matching elements is counted.
+   */
+  EXACT,
+
+  /**
+   * The number of matching elements is estimated by the database planner.
+   */
+  ESTIMATED,
+
+  /**
+   * Elements are not counted. The total number of elements only tells if there is a next page.
+   */
+  NONE;
+
+  /**
+   * Name of the response header that tells how the total number of elements was calculated.
+   */
+  public static final String HEADER = "X-Count-Mode";
+
+  /**
+   * Parses the count mode (case insensitive).
+   *
+   * @param value the count mode name
+   * @param defaultMode mode returned if the value is blank
+   * @return the count mode
+   * @throws ValidationException if the value is not a valid count mode.
+   */
+  public static CountMode fromString(String value, CountMode defaultMode) {
+    if (StringUtils.isBlank(value)) {
+      return defaultMode;
+    }
+
+    try {
+      return valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+    } catch (IllegalArgumentException ex) {
+      throw new ValidationException(ex, SEARCH_COUNT_MODE_INVALID, value);
+    }
+  }
+
+  public String toHeaderValue() {
+    return name().toLowerCase(Locale.ENGLISH);
+  }
+}
@@ -15,18 +15,20 @@
 
 package org.openlmis.fulfillment.service;
 
-import static org.openlmis.fulfillment.domain.OrderStatus.TRANSFER_FAILED;
+import static org.openlmis.fulfillment.i18n.MessageKeys.ORDER_TRANSFER_FAILED;
 
 import org.openlmis.fulfillment.domain.FtpTransferProperties;
 import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderPostProcessingTask;
+import org.openlmis.fulfillment.domain.OrderPostProcessingTask.Step;
 import org.openlmis.fulfillment.domain.TransferProperties;
 import org.openlmis.fulfillment.domain.TransferType;
 import org.openlmis.fulfillment.extension.point.OrderCreatePostProcessor;
-import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.slf4j.profiler.Profiler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component("DefaultOrderCreatePostProcessor")
@@ -36,7 +38,7 @@ public class DefaultOrderCreatePostProcessor implements OrderCreatePostProcessor
       .getXLogger(DefaultOrderCreatePostProcessor.class);
 
   @Autowired
-  private TransferPropertiesRepository transferPropertiesRepository;
+  private TransferPropertiesRegistry transferPropertiesRegistry;
 
   @Autowired
   private FulfillmentNotificationService fulfillmentNotificationService;
@@ -50,8 +52,31 @@ public class DefaultOrderCreatePostProcessor implements OrderCreatePostProcessor
   @Autowired
   private ConfigurationSettingService configurationSettingService;
 
+  @Value("${order.transfer.streaming}")
+  private boolean streamOrderFiles;
+
   @Override
   public void process(Order order) {
+    transferIfAllowed(order, false);
+    notifyIfAllowed(order);
+  }
+
+  /**
+   * Sends the order file to the FTP server in the transfer step and the order created email in
+   * the notification step. The email is also sent when the transfer has been given up, so it
+   * shows the final status of the order.
+   */
+  @Override
+  public void process(Order order, OrderPostProcessingTask task) {
+    if (Step.TRANSFER == task.getStep()) {
+      // the task has been claimed for this attempt already
+      transferIfAllowed(order, task.getAttempts() > 1);
+    } else if (Step.NOTIFICATION == task.getStep()) {
+      notifyIfAllowed(order);
+    }
+  }
+
+  private void transferIfAllowed(Order order, boolean retry) {
     XLOGGER.entry(order);
     Profiler profiler = new Profiler("DEFAULT_ORDER_CREATE_POST_PROCESSOR");
     profiler.setLogger(XLOGGER);
@@ -60,23 +85,19 @@ public class DefaultOrderCreatePostProcessor implements OrderCreatePostProcessor
         .getAllowFtpTransferOnRequisitionToOrder();
     if (allowFtpTransfer == null || "true".equalsIgnoreCase(allowFtpTransfer)) {
       XLOGGER.debug("FTP transfer allowed");
-      TransferProperties properties = transferPropertiesRepository
-          .findFirstByFacilityIdAndTransferType(order.getSupplyingFacilityId(),
-              TransferType.ORDER);
+      TransferProperties properties = transferPropertiesRegistry
+          .get(order.getSupplyingFacilityId(), TransferType.ORDER);
 
       if (properties instanceof FtpTransferProperties) {
-        XLOGGER.debug("Export file and try to send to FTP server");
-        orderStorage.store(order);
-        boolean success = orderSender.send(order);
-
-        if (success) {
-          orderStorage.delete(order);
-        } else {
-          order.setStatus(TRANSFER_FAILED);
-        }
+        transfer(order, retry);
       }
     }
 
+    profiler.stop().log();
+    XLOGGER.exit();
+  }
+
+  private void notifyIfAllowed(Order order) {
     // Send an email notification to the user that converted the order
     String allowSendingEmail = configurationSettingService
         .getAllowSendingEmailOnRequisitionToOrder();
@@ -84,8 +105,40 @@ public class DefaultOrderCreatePostProcessor implements OrderCreatePostProcessor
       XLOGGER.debug("Notification enabled, send notification");
       fulfillmentNotificationService.sendOrderCreatedNotification(order);
     }
+  }
 
-    profiler.stop().log();
-    XLOGGER.exit();
+  private void transfer(Order order, boolean retry) {
+    if (streamOrderFiles) {
+      XLOGGER.debug("Send file to FTP server without storing it");
+
+      if (!orderSender.sendDirectly(order)) {
+        // keep the file that could not be sent in the local directory
+        orderStorage.store(order);
+        throw transferFailed(order);
+      }
+
+      if (retry) {
+        // the file kept by a previous attempt has been sent again in the meantime
+        orderStorage.delete(order);
+      }
+
+      return;
+    }
+
+    XLOGGER.debug("Export file and try to send to FTP server");
+    orderStorage.store(order);
+    boolean success = orderSender.send(order);
+
+    if (!success) {
+      throw transferFailed(order);
+    }
+
+    orderStorage.delete(order);
+  }
+
+  // the transfer step is retried and the order is marked as TRANSFER_FAILED only when its last
+  // attempt fails
+  private OrderTransferException transferFailed(Order order) {
+    return new OrderTransferException(ORDER_TRANSFER_FAILED, String.valueOf(order.getId()));
   }
 }
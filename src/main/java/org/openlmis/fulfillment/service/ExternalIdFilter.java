@@ -0,0 +1,332 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import com.google.common.base.Throwables;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.hibernate.exception.ConstraintViolationException;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps a Bloom filter of the external ids of all orders, so that the check whether an order
+ * with the given external id already exists does not go to the database for ids that were never
+ * used. Only ids that are possibly known are looked up.
+ *
+ * <p>The filter is built at startup and updated when this instance creates an order. Orders
+ * created by other instances are added once the filter is older than the sync interval. Until
+ * then such an order is not found here, and creating it again is rejected by the unique
+ * constraint on the external id, see {@link #isExternalIdConflict(Throwable)}. If the filter
+ * cannot be built, every id is looked up.
+ */
+@org.springframework.core.annotation.Order(25)
+@Component
+public class ExternalIdFilter implements CommandLineRunner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ExternalIdFilter.class);
+
+  private static final String EXTERNAL_ID_CONSTRAINT = "orders_externalid_unique";
+
+  // orders are added by their creation date, which is set before their transaction commits
+  private static final Duration SYNC_OVERLAP = Duration.ofMinutes(5);
+
+  private static final Funnel<UUID> UUID_FUNNEL = (id, into) -> into
+      .putLong(id.getMostSignificantBits())
+      .putLong(id.getLeastSignificantBits());
+
+  @Autowired
+  private OrderRepository orderRepository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Value("${order.externalIdFilter.capacity}")
+  private long capacity;
+
+  @Value("${order.externalIdFilter.falsePositiveRate}")
+  private double falsePositiveRate;
+
+  @Value("${order.externalIdFilter.syncInterval}")
+  private long syncInterval;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final LongAdder skippedLookups = new LongAdder();
+  private final LongAdder lookups = new LongAdder();
+  private final LongAdder falsePositives = new LongAdder();
+
+  private volatile BloomFilter<UUID> filter;
+  private volatile long expectedInsertions;
+  private final AtomicLong insertions = new AtomicLong();
+  private volatile ZonedDateTime syncedAt;
+
+  /**
+   * Builds the filter at startup.
+   */
+  @Override
+  public void run(String... args) {
+    if (capacity <= 0) {
+      return;
+    }
+
+    lock.lock();
+
+    try {
+      build();
+    } catch (RuntimeException ex) {
+      LOGGER.warn("Unable to build the external id filter, all external ids will be looked up",
+          ex);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Finds an order with the given external id.
+   *
+   * @param externalId external id of the order.
+   * @return the order or null if there is none.
+   */
+  public Order findOrder(UUID externalId) {
+    BloomFilter<UUID> current = getFilter();
+
+    if (null == current) {
+      return orderRepository.findByExternalId(externalId);
+    }
+
+    if (!current.mightContain(externalId)) {
+      skippedLookups.increment();
+      return null;
+    }
+
+    Order order = orderRepository.findByExternalId(externalId);
+    lookups.increment();
+
+    if (null == order) {
+      falsePositives.increment();
+    }
+
+    return order;
+  }
+
+  /**
+   * Finds orders with the given external ids.
+   *
+   * @param externalIds external ids of the orders.
+   * @return found orders.
+   */
+  public List<Order> findOrders(Collection<UUID> externalIds) {
+    BloomFilter<UUID> current = getFilter();
+
+    if (null == current) {
+      return orderRepository.findByExternalIdIn(externalIds);
+    }
+
+    List<UUID> candidates = externalIds
+        .stream()
+        .filter(current::mightContain)
+        .collect(Collectors.toList());
+    skippedLookups.add(externalIds.size() - candidates.size());
+
+    if (candidates.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    List<Order> orders = orderRepository.findByExternalIdIn(candidates);
+    long found = orders.stream().map(Order::getExternalId).distinct().count();
+    lookups.add(candidates.size());
+    falsePositives.add(candidates.size() - found);
+
+    return orders;
+  }
+
+  /**
+   * Checks whether the given exception was caused by creating an order with an external id that
+   * is already used, which happens when the order was created by another instance since the
+   * filter was synced.
+   *
+   * @param ex exception thrown while the orders were created.
+   * @return true if the unique constraint on the external id was violated.
+   */
+  public static boolean isExternalIdConflict(Throwable ex) {
+    return Throwables
+        .getCausalChain(ex)
+        .stream()
+        .filter(ConstraintViolationException.class::isInstance)
+        .map(cause -> ((ConstraintViolationException) cause).getConstraintName())
+        .anyMatch(EXTERNAL_ID_CONSTRAINT::equals);
+  }
+
+  /**
+   * Adds the external id of an order created by this instance. Should be called before the
+   * order is committed, so the order is never missed by a concurrent check.
+   *
+   * @param externalId external id of the new order, may be null.
+   */
+  public void add(UUID externalId) {
+    BloomFilter<UUID> current = filter;
+
+    if (null != current && null != externalId) {
+      boolean added;
+
+      // writes are serialized, older Guava versions do not support concurrent puts
+      synchronized (current) {
+        added = current.put(externalId);
+      }
+
+      if (added) {
+        insertions.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Returns the number of skipped and performed lookups and how many of the performed ones
+   * did not find an order.
+   */
+  Stats getStats() {
+    BloomFilter<UUID> current = filter;
+    long performed = lookups.sum();
+    long falsePositive = falsePositives.sum();
+
+    return new Stats(skippedLookups.sum(), performed, falsePositive,
+        performed == 0 ? 0 : (double) falsePositive / performed,
+        null == current ? 0 : insertions.get(),
+        null == current ? 0 : current.expectedFpp());
+  }
+
+  /**
+   * Returns the current filter. Once it is older than the sync interval a single caller adds
+   * the orders created since the last sync and the others keep using the current filter. A
+   * filter that holds more ids than it was sized for is built again.
+   */
+  BloomFilter<UUID> getFilter() {
+    BloomFilter<UUID> current = filter;
+
+    if (null != current && isStale() && lock.tryLock()) {
+      try {
+        if (isStale()) {
+          if (insertions.get() > expectedInsertions) {
+            build();
+          } else {
+            sync(current);
+          }
+        }
+      } catch (RuntimeException ex) {
+        LOGGER.warn("Unable to sync the external id filter, the current one will be used", ex);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    return filter;
+  }
+
+  private boolean isStale() {
+    return syncedAt.plusSeconds(syncInterval).isBefore(ZonedDateTime.now());
+  }
+
+  private void build() {
+    ZonedDateTime start = ZonedDateTime.now();
+    long expected = Math.max(capacity, inReadOnlyTransaction(orderRepository::count) * 2);
+
+    BloomFilter<UUID> built = BloomFilter.create(UUID_FUNNEL, expected, falsePositiveRate);
+    long count = inReadOnlyTransaction(() -> {
+      try (Stream<UUID> externalIds = orderRepository.streamAllExternalIds()) {
+        LongAdder added = new LongAdder();
+        externalIds.forEach(externalId -> {
+          built.put(externalId);
+          added.increment();
+        });
+        return added.sum();
+      }
+    });
+
+    LOGGER.debug("Built the external id filter with {} ids, sized for {}", count, expected);
+
+    expectedInsertions = expected;
+    insertions.set(count);
+    syncedAt = start;
+    filter = built;
+  }
+
+  private void sync(BloomFilter<UUID> current) {
+    ZonedDateTime start = ZonedDateTime.now();
+    List<UUID> externalIds = inReadOnlyTransaction(() -> orderRepository
+        .findExternalIdsCreatedSince(syncedAt.minus(SYNC_OVERLAP)));
+
+    long added = 0;
+
+    synchronized (current) {
+      for (UUID externalId : externalIds) {
+        // ids of the overlap are usually known already, only new ones are counted
+        if (current.put(externalId)) {
+          ++added;
+        }
+      }
+    }
+
+    insertions.addAndGet(added);
+
+    LOGGER.debug("Synced the external id filter with {} new ids, {}", added, getStats());
+    syncedAt = start;
+  }
+
+  private <T> T inReadOnlyTransaction(Supplier<T> action) {
+    // a separate transaction makes sure the stream is not bound to the caller's session
+    TransactionTemplate template = new TransactionTemplate(transactionManager);
+    template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    template.setReadOnly(true);
+
+    return template.execute(status -> action.get());
+  }
+
+  @Getter
+  @ToString
+  @AllArgsConstructor
+  static final class Stats {
+    private final long skippedLookups;
+    private final long lookups;
+    private final long falsePositives;
+    private final double falsePositiveRate;
+    private final long insertions;
+    private final double expectedFalsePositiveRate;
+  }
+}
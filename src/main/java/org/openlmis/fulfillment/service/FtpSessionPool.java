@@ -0,0 +1,333 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static java.util.Arrays.asList;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.net.ftp.FTP;
+import org.apache.commons.net.ftp.FTPClient;
+import org.openlmis.fulfillment.domain.FtpProtocol;
+import org.openlmis.fulfillment.domain.FtpTransferProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.integration.file.remote.session.CachingSessionFactory;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.file.remote.session.SessionFactory;
+import org.springframework.integration.ftp.session.AbstractFtpSessionFactory;
+import org.springframework.integration.ftp.session.DefaultFtpSessionFactory;
+import org.springframework.integration.ftp.session.DefaultFtpsSessionFactory;
+import org.springframework.integration.sftp.session.DefaultSftpSessionFactory;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps authenticated FTP, FTPS and SFTP sessions alive between order file uploads. Sessions are
+ * pooled per server (protocol, host, port and credentials), so the orders sent to the same server
+ * one after another are uploaded over the same connection. A pooled session is tested before it
+ * is reused and the sessions of a server that has not been used for the idle timeout are closed.
+ * Upload latency and throughput are recorded per supplying facility and logged periodically.
+ */
+@Order(45)
+@Component
+public class FtpSessionPool implements CommandLineRunner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FtpSessionPool.class);
+  private static final String SEPARATOR = "/";
+  // the timeouts that were used when order files were sent with Camel
+  private static final int CONNECT_TIMEOUT = 10_000;
+  private static final int DATA_TIMEOUT = 30_000;
+  private static final int SOCKET_TIMEOUT = 300_000;
+
+  @Autowired
+  @Qualifier("ftpSessionEvictionScheduler")
+  private TaskScheduler scheduler;
+
+  @Value("${order.transfer.sessionPoolSize}")
+  private int poolSize;
+
+  @Value("${order.transfer.sessionWaitTimeout}")
+  private long waitTimeout;
+
+  @Value("${order.transfer.sessionIdleTimeout}")
+  private long idleTimeout;
+
+  @Value("${order.transfer.statsLogInterval}")
+  private long statsLogInterval;
+
+  private final Map<List<Object>, ServerSessions> servers = new ConcurrentHashMap<>();
+  private final Map<UUID, TransferStats> transferStats = new ConcurrentHashMap<>();
+
+  @Override
+  public void run(String... args) {
+    if (idleTimeout > 0) {
+      scheduler.scheduleWithFixedDelay(this::evictIdle, Duration.ofSeconds(idleTimeout));
+    }
+
+    if (statsLogInterval > 0) {
+      scheduler.scheduleWithFixedDelay(this::logStats, Duration.ofSeconds(statsLogInterval));
+    }
+  }
+
+  /**
+   * Uploads the given content to the remote directory of the given server. A pooled session is
+   * used if there is one, otherwise a new session is opened and kept for the next uploads.
+   *
+   * @throws IOException if the content could not be uploaded.
+   */
+  public void upload(FtpTransferProperties ftp, String fileName, InputStream content)
+      throws IOException {
+    ServerSessions server = servers.compute(keyOf(ftp), (key, existing) -> {
+      ServerSessions sessions = null == existing ? new ServerSessions(ftp) : existing;
+      sessions.lastUsed = System.nanoTime();
+      return sessions;
+    });
+
+    String directory = StringUtils.removeEnd(ftp.getRemoteDirectory(), SEPARATOR);
+    CountingInputStream counting = new CountingInputStream(content);
+    long start = System.nanoTime();
+    boolean success = false;
+
+    try (Session<?> session = server.sessions.getSession()) {
+      try {
+        server.makeDirectories(session, directory);
+        session.write(counting, StringUtils.isBlank(directory)
+            ? fileName
+            : directory + SEPARATOR + fileName);
+        success = true;
+      } finally {
+        if (!success) {
+          // the directory may have been removed, so it is checked again by the next upload
+          server.directories.remove(directory);
+        }
+
+        if (!success && session instanceof CachingSessionFactory<?>.CachedSession) {
+          // the connection may be broken so it must not go back to the pool
+          ((CachingSessionFactory<?>.CachedSession) session).dirty();
+        }
+      }
+    } finally {
+      long nanos = System.nanoTime() - start;
+      TransferStats stats = transferStats
+          .computeIfAbsent(ftp.getFacilityId(), id -> new TransferStats());
+      stats.record(success, counting.getByteCount(), nanos);
+
+      LOGGER.debug("Uploaded {} ({} bytes) for facility {} in {} ms: {}, {}", fileName,
+          counting.getByteCount(), ftp.getFacilityId(), TimeUnit.NANOSECONDS.toMillis(nanos),
+          success, stats);
+    }
+  }
+
+  /**
+   * Returns upload statistics of the given supplying facility.
+   */
+  Stats getStats(UUID facilityId) {
+    TransferStats stats = transferStats.get(facilityId);
+    return null == stats ? new TransferStats().toStats() : stats.toStats();
+  }
+
+  /**
+   * Logs the upload statistics of all supplying facilities that have sent order files since the
+   * service was started.
+   */
+  void logStats() {
+    transferStats.forEach((facilityId, stats) -> LOGGER.info(
+        "Order file uploads for facility {}: {}", facilityId, stats));
+  }
+
+  int getServerCount() {
+    return servers.size();
+  }
+
+  /**
+   * Closes the sessions of servers that were not used for the idle timeout. Sessions that are in
+   * use at the moment are closed when they are released.
+   */
+  void evictIdle() {
+    long now = System.nanoTime();
+
+    for (List<Object> key : servers.keySet()) {
+      servers.computeIfPresent(key, (serverKey, server) -> {
+        if (now - server.lastUsed < TimeUnit.SECONDS.toNanos(idleTimeout)) {
+          return server;
+        }
+
+        LOGGER.debug("Closing idle FTP sessions of {}:{}", serverKey.get(1), serverKey.get(2));
+        server.sessions.resetCache();
+        return null;
+      });
+    }
+  }
+
+  @PreDestroy
+  public void close() {
+    servers.values().forEach(server -> server.sessions.resetCache());
+    servers.clear();
+  }
+
+  SessionFactory<?> createSessionFactory(FtpTransferProperties ftp) {
+    if (FtpProtocol.SFTP == ftp.getProtocol()) {
+      DefaultSftpSessionFactory factory = new DefaultSftpSessionFactory();
+      factory.setHost(ftp.getServerHost());
+      factory.setPort(ftp.getServerPort());
+      factory.setUser(ftp.getUsername());
+      factory.setPassword(ftp.getPassword());
+      // the host keys have never been checked when order files were sent
+      factory.setAllowUnknownKeys(true);
+      factory.setTimeout(SOCKET_TIMEOUT);
+      return factory;
+    }
+
+    AbstractFtpSessionFactory<?> factory = FtpProtocol.FTPS == ftp.getProtocol()
+        ? new DefaultFtpsSessionFactory()
+        : new DefaultFtpSessionFactory();
+    factory.setHost(ftp.getServerHost());
+    factory.setPort(ftp.getServerPort());
+    factory.setUsername(ftp.getUsername());
+    factory.setPassword(ftp.getPassword());
+    factory.setConnectTimeout(CONNECT_TIMEOUT);
+    factory.setDefaultTimeout(SOCKET_TIMEOUT);
+    factory.setDataTimeout(DATA_TIMEOUT);
+    // order files were sent in ASCII mode by Camel, so the line endings are converted the same way
+    factory.setFileType(FTP.ASCII_FILE_TYPE);
+    factory.setClientMode(Boolean.TRUE.equals(ftp.getPassiveMode())
+        ? FTPClient.PASSIVE_LOCAL_DATA_CONNECTION_MODE
+        : FTPClient.ACTIVE_LOCAL_DATA_CONNECTION_MODE);
+    return factory;
+  }
+
+  private static List<Object> keyOf(FtpTransferProperties ftp) {
+    return asList(ftp.getProtocol(), ftp.getServerHost(), ftp.getServerPort(),
+        ftp.getUsername(), ftp.getPassword(), ftp.getPassiveMode());
+  }
+
+  private final class ServerSessions {
+    private final CachingSessionFactory<?> sessions;
+    private final Set<String> directories = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private volatile long lastUsed;
+
+    ServerSessions(FtpTransferProperties ftp) {
+      sessions = cache(createSessionFactory(ftp));
+    }
+
+    private <F> CachingSessionFactory<F> cache(SessionFactory<F> factory) {
+      CachingSessionFactory<F> cache = new CachingSessionFactory<>(factory, poolSize);
+      cache.setSessionWaitTimeout(waitTimeout);
+      cache.setTestSession(true);
+      return cache;
+    }
+
+    /**
+     * Creates the given remote directory and its parents once per server, the same way the
+     * directories were created for each file before.
+     */
+    void makeDirectories(Session<?> session, String directory) throws IOException {
+      if (StringUtils.isBlank(directory) || directories.contains(directory)) {
+        return;
+      }
+
+      StringBuilder path = new StringBuilder(directory.length());
+
+      for (String element : StringUtils.split(directory, SEPARATOR)) {
+        if (path.length() > 0 || directory.startsWith(SEPARATOR)) {
+          path.append(SEPARATOR);
+        }
+
+        path.append(element);
+
+        if (!session.exists(path.toString())) {
+          session.mkdir(path.toString());
+        }
+      }
+
+      directories.add(directory);
+    }
+  }
+
+  private static final class TransferStats {
+    private final LongAdder uploads = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    void record(boolean success, long byteCount, long uploadNanos) {
+      if (success) {
+        uploads.increment();
+        bytes.add(byteCount);
+        nanos.add(uploadNanos);
+        maxNanos.accumulate(uploadNanos);
+      } else {
+        failures.increment();
+      }
+    }
+
+    Stats toStats() {
+      return new Stats(uploads.sum(), failures.sum(), bytes.sum(), nanos.sum(), maxNanos.get());
+    }
+
+    @Override
+    public String toString() {
+      return toStats().toString();
+    }
+  }
+
+  @Getter
+  @ToString
+  @AllArgsConstructor
+  static final class Stats {
+    private final long uploads;
+    private final long failures;
+    private final long bytes;
+    private final long uploadNanos;
+    private final long maxUploadNanos;
+
+    /**
+     * Returns the average time of a successful upload in milliseconds.
+     */
+    public double getAverageUploadMillis() {
+      return 0 == uploads ? 0 : uploadNanos / 1e6 / uploads;
+    }
+
+    /**
+     * Returns how many bytes were uploaded per second of upload time.
+     */
+    public double getThroughput() {
+      return 0 == uploadNanos ? 0 : bytes * 1e9 / uploadNanos;
+    }
+  }
+}
@@ -41,13 +41,13 @@ import org.openlmis.util.converter.UuidConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestOperations;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriUtils;
 
 @Component
@@ -65,7 +65,9 @@ public class ObjReferenceExpander {
 
   private BeanUtilsBean beanUtils;
 
-  private RestOperations restTemplate = new RestTemplate();
+  @Autowired
+  @Qualifier("outboundRestTemplate")
+  private RestOperations restTemplate;
 
   /**
    * Create an instance of the {@link BeanUtilsBean} and register custom converters with it.
@@ -0,0 +1,287 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import com.google.common.collect.Iterables;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.openlmis.fulfillment.domain.FileTemplate;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderSummary;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.web.OrderNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Exports many orders as a ZIP archive of order CSV files. Orders are loaded page by page and
+ * rendered in parallel, but only a bounded number of files is held in memory at the same time.
+ * Each file is written to the archive as soon as it and all files before it are ready, so the
+ * archive keeps the order of the orders and is streamed to the client while it is created.
+ */
+@Service
+public class OrderArchiveExporter {
+  private static final Logger LOGGER = LoggerFactory.getLogger(OrderArchiveExporter.class);
+
+  @Autowired
+  private OrderRepository orderRepository;
+
+  @Autowired
+  private OrderService orderService;
+
+  @Autowired
+  private OrderCsvHelper csvHelper;
+
+  @Autowired
+  private PermissionService permissionService;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  @Qualifier("orderExportExecutor")
+  private Executor orderExportExecutor;
+
+  @Value("${order.export.concurrency}")
+  private int concurrency;
+
+  @Value("${order.export.pageSize}")
+  private int pageSize;
+
+  /**
+   * Checks that all orders with the given ids exist and that the current user can view them.
+   * Call it before anything is written to the response so that errors can still be returned.
+   *
+   * @throws OrderNotFoundException if any of the orders does not exist.
+   */
+  public void validateOrders(Collection<UUID> ids) {
+    for (List<UUID> page : Iterables.partition(ids, pageSize)) {
+      List<Order> orders = inReadOnlyTransaction(() -> orderRepository.findAllById(page));
+      Map<UUID, Order> found = orders
+          .stream()
+          .collect(Collectors.toMap(Order::getId, Function.identity()));
+
+      for (UUID id : page) {
+        Order order = found.get(id);
+
+        if (null == order) {
+          throw new OrderNotFoundException(id);
+        }
+
+        permissionService.canViewOrder(order);
+      }
+    }
+  }
+
+  /**
+   * Writes the orders with the given ids, in the given order, to the output stream as a ZIP
+   * archive. Missing orders are skipped.
+   */
+  public void exportOrders(Collection<UUID> ids, FileTemplate template, OutputStream output)
+      throws IOException {
+    Archive archive = new Archive(template, output);
+
+    try {
+      for (List<UUID> page : Iterables.partition(ids, pageSize)) {
+        archive.addAll(loadOrders(page));
+      }
+
+      archive.finish();
+    } finally {
+      archive.cancel();
+    }
+  }
+
+  /**
+   * Writes the orders that match the given parameters, from the newest one, to the output stream
+   * as a ZIP archive. Orders are searched with the keyset pagination so each page costs the same.
+   */
+  public void exportOrders(OrderSearchParams params, FileTemplate template, OutputStream output)
+      throws IOException {
+    Archive archive = new Archive(template, output);
+
+    try {
+      OrderSearchCursor cursor = null;
+      Page<OrderSummary> page;
+
+      do {
+        page = orderService.seekOrders(params, cursor, pageSize);
+        List<OrderSummary> summaries = page.getContent();
+
+        if (summaries.isEmpty()) {
+          break;
+        }
+
+        archive.addAll(loadOrders(summaries
+            .stream()
+            .map(OrderSummary::getId)
+            .collect(Collectors.toList())));
+        cursor = OrderSearchCursor.of(summaries.get(summaries.size() - 1));
+      } while (page.hasNext());
+
+      archive.finish();
+    } finally {
+      archive.cancel();
+    }
+  }
+
+  /**
+   * Loads orders with their line items in a separate transaction so that the orders are
+   * detached and can be released (and rendered by other threads) once they are written.
+   */
+  private List<Order> loadOrders(List<UUID> ids) {
+    List<Order> orders = inReadOnlyTransaction(
+        () -> orderRepository.findWithLineItemsByIdIn(ids));
+    Map<UUID, Order> byId = orders
+        .stream()
+        .collect(Collectors.toMap(Order::getId, Function.identity()));
+
+    List<Order> sorted = new ArrayList<>(orders.size());
+
+    for (UUID id : ids) {
+      Order order = byId.get(id);
+
+      if (null != order) {
+        sorted.add(order);
+      }
+    }
+
+    return sorted;
+  }
+
+  private byte[] render(Order order, FileTemplate template) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    try (Writer writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+      csvHelper.writeCsvFile(order, template, writer);
+    } catch (IOException ex) {
+      throw new UncheckedIOException(ex);
+    }
+
+    return bytes.toByteArray();
+  }
+
+  private <T> T inReadOnlyTransaction(Supplier<T> action) {
+    TransactionTemplate template = new TransactionTemplate(transactionManager);
+    template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    template.setReadOnly(true);
+
+    return template.execute(status -> action.get());
+  }
+
+  private final class Archive {
+    private final FileTemplate template;
+    private final ZipOutputStream zip;
+    private final Deque<PendingFile> pending = new ArrayDeque<>();
+    private int written;
+
+    Archive(FileTemplate template, OutputStream output) {
+      this.template = template;
+      this.zip = new ZipOutputStream(output, StandardCharsets.UTF_8);
+    }
+
+    void addAll(List<Order> orders) throws IOException {
+      for (Order order : orders) {
+        // wait for the oldest file so that at most the given number of files is in memory
+        if (pending.size() >= concurrency) {
+          writeNext();
+        }
+
+        String name = template.getFilePrefix() + order.getOrderCode() + ".csv";
+        pending.add(new PendingFile(name, CompletableFuture
+            .supplyAsync(() -> render(order, template), orderExportExecutor)));
+      }
+    }
+
+    void finish() throws IOException {
+      while (!pending.isEmpty()) {
+        writeNext();
+      }
+
+      zip.finish();
+      zip.flush();
+      LOGGER.debug("Exported {} orders to a ZIP archive", written);
+    }
+
+    void cancel() {
+      pending.forEach(file -> file.content.cancel(true));
+      pending.clear();
+    }
+
+    private void writeNext() throws IOException {
+      PendingFile file = pending.poll();
+      byte[] content;
+
+      try {
+        content = file.content.join();
+      } catch (CompletionException ex) {
+        // rethrow the original exception so that the error handling still works
+        if (ex.getCause() instanceof UncheckedIOException) {
+          throw ((UncheckedIOException) ex.getCause()).getCause();
+        }
+
+        if (ex.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) ex.getCause();
+        }
+
+        throw ex;
+      }
+
+      zip.putNextEntry(new ZipEntry(file.name));
+      zip.write(content);
+      zip.closeEntry();
+      written++;
+    }
+  }
+
+  private static final class PendingFile {
+    private final String name;
+    private final CompletableFuture<byte[]> content;
+
+    PendingFile(String name, CompletableFuture<byte[]> content) {
+      this.name = name;
+      this.content = content;
+    }
+  }
+}
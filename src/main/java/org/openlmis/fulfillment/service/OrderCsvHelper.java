@@ -15,44 +15,32 @@
 
 package org.openlmis.fulfillment.service;
 
-import static java.time.format.DateTimeFormatter.ofPattern;
-import static org.apache.commons.collections.CollectionUtils.filter;
-
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.io.IOException;
 import java.io.Writer;
-import java.time.LocalDate;
-import java.time.ZonedDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import org.apache.commons.jxpath.JXPathContext;
-import org.openlmis.fulfillment.domain.FileColumn;
+import java.util.stream.Collectors;
 import org.openlmis.fulfillment.domain.FileTemplate;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderLineItem;
 import org.openlmis.fulfillment.domain.VersionEntityReference;
-import org.openlmis.fulfillment.service.referencedata.FacilityDto;
 import org.openlmis.fulfillment.service.referencedata.FacilityReferenceDataService;
-import org.openlmis.fulfillment.service.referencedata.OrderableDto;
 import org.openlmis.fulfillment.service.referencedata.OrderableReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.PeriodReferenceDataService;
-import org.openlmis.fulfillment.service.referencedata.ProcessingPeriodDto;
+import org.openlmis.fulfillment.web.util.VersionIdentityDto;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
 public class OrderCsvHelper {
-  private static final String STRING = "string";
-  private static final String LINE_NO = "line_no";
-  private static final String ORDER = "order";
-  private static final String LINE_ITEM_ORDERABLE = "lineItemOrderable";
-
-  private static final String FACILITY = "Facility";
-  private static final String PRODUCT = "Orderable";
-  private static final String PERIOD = "ProcessingPeriod";
-
-  private static final String LINE_SEPARATOR = "\r\n";
-  private static final Boolean ENCLOSE_VALUES_WITH_QUOTES = false;
+  private static final long MAX_CACHED_PLANS = 100;
+  private static final Object NOT_FOUND = new Object();
 
   @Autowired
   private FacilityReferenceDataService facilityReferenceDataService;
@@ -66,149 +54,113 @@ public class OrderCsvHelper {
   @Value("${order.export.includeZeroQuantity}")
   private boolean includeZeroQuantity;
 
+  private final Cache<List<Object>, OrderCsvPlan> plans = CacheBuilder
+      .newBuilder()
+      .maximumSize(MAX_CACHED_PLANS)
+      .build();
+
   /**
-   * Exporting order to csv.
+   * Exporting order to csv. The template is compiled once and the compiled plan is reused
+   * until the template changes. Objects of related columns are retrieved in bulk before the
+   * first line is written.
    */
   public void writeCsvFile(Order order, FileTemplate fileTemplate, Writer writer)
       throws IOException {
-    List<FileColumn> fileColumns = fileTemplate.getFileColumns();
-    removeExcludedColumns(fileColumns);
-    if (fileTemplate.getHeaderInFile()) {
-      writeHeader(fileColumns, writer);
-    }
+    OrderCsvPlan plan = getPlan(fileTemplate);
+    List<OrderLineItem> lineItems = order
+        .getOrderLineItems()
+        .stream()
+        .filter(lineItem -> includeZeroQuantity || lineItem.getOrderedQuantity() > 0)
+        .collect(Collectors.toList());
 
-    writeLineItems(order, order.getOrderLineItems(), fileColumns, writer);
-  }
+    Map<String, Map<Object, Object>> relatedObjects = new HashMap<>();
+    plan.collectRelatedReferences(order, lineItems).forEach((related, references) ->
+        relatedObjects.put(related, findRelatedObjects(related, references)));
 
-  private void removeExcludedColumns(List<FileColumn> fileColumns) {
-    filter(fileColumns, object -> ((FileColumn) object).getInclude());
-  }
+    plan.writeHeader(writer);
 
-  private void writeHeader(List<FileColumn> fileColumns, Writer writer)
-      throws IOException {
-    for (FileColumn column : fileColumns) {
-      String columnLabel = column.getColumnLabel();
-      if (columnLabel == null) {
-        columnLabel = "";
-      }
-      writer.write(columnLabel);
-      if (fileColumns.indexOf(column) == (fileColumns.size() - 1)) {
-        writer.write(LINE_SEPARATOR);
-        break;
-      }
-      writer.write(",");
-    }
-  }
-
-  private void writeLineItems(Order order, List<OrderLineItem> orderLineItems,
-                              List<FileColumn> fileColumns, Writer writer)
-      throws IOException {
     int counter = 1;
-    for (OrderLineItem orderLineItem : orderLineItems) {
-      if (includeZeroQuantity || orderLineItem.getOrderedQuantity() > 0) {
-        writeCsvLineItem(order, orderLineItem, orderLineItem.getOrderable(),
-            fileColumns, writer, counter++);
-        writer.write(LINE_SEPARATOR);
-      }
+    for (OrderLineItem orderLineItem : lineItems) {
+      plan.writeLine(order, orderLineItem, counter++,
+          (related, reference) -> getRelatedObject(relatedObjects, related, reference), writer);
     }
   }
 
-  private void writeCsvLineItem(Order order, OrderLineItem orderLineItem,
-      VersionEntityReference orderable, List<FileColumn> fileColumns, Writer writer, int counter)
-      throws IOException {
-    JXPathContext orderContext = JXPathContext.newContext(order);
-    JXPathContext lineItemContext = JXPathContext.newContext(orderLineItem);
-    JXPathContext lineItemOrderableContext = JXPathContext.newContext(orderable);
-    for (FileColumn fileColumn : fileColumns) {
-      if (fileColumn.getNested() == null || fileColumn.getNested().isEmpty()) {
-        if (fileColumns.indexOf(fileColumn) < fileColumns.size() - 1) {
-          writer.write(",");
-        }
-        continue;
-      }
-      Object columnValue = getColumnValue(counter, orderContext, lineItemContext,
-          lineItemOrderableContext, fileColumn);
-
-      if (columnValue instanceof ZonedDateTime) {
-        columnValue = ((ZonedDateTime) columnValue).format(ofPattern(fileColumn.getFormat()));
-      } else if (columnValue instanceof LocalDate) {
-        columnValue = ((LocalDate) columnValue).format(ofPattern(fileColumn.getFormat()));
-      }
-      if (ENCLOSE_VALUES_WITH_QUOTES) {
-        writer.write("\"" + (columnValue).toString() + "\"");
-      } else {
-        writer.write((columnValue).toString());
-      }
-      if (fileColumns.indexOf(fileColumn) < fileColumns.size() - 1) {
-        writer.write(",");
-      }
-    }
+  OrderCsvPlan getPlan(FileTemplate fileTemplate) {
+    return plans
+        .asMap()
+        .computeIfAbsent(OrderCsvPlan.keyOf(fileTemplate),
+            key -> OrderCsvPlan.compile(fileTemplate));
   }
 
-  private Object getColumnValue(int counter, JXPathContext orderContext,
-      JXPathContext lineItemContext, JXPathContext lineItemOrderableContext,
-      FileColumn fileColumn) {
-    Object columnValue;
-
-    switch (fileColumn.getNested()) {
-      case STRING:
-        columnValue = fileColumn.getKeyPath();
-        break;
-      case LINE_NO:
-        columnValue = counter;
+  private Map<Object, Object> findRelatedObjects(String related, Set<Object> references) {
+    Map<Object, Object> found = new HashMap<>();
+    Set<UUID> ids = references
+        .stream()
+        .filter(UUID.class::isInstance)
+        .map(UUID.class::cast)
+        .collect(Collectors.toSet());
+
+    switch (related) {
+      case OrderCsvPlan.FACILITY:
+        facilityReferenceDataService.findByIds(ids)
+            .forEach(facility -> found.put(facility.getId(), facility));
         break;
-      case ORDER:
-        columnValue = orderContext.getValue(fileColumn.getKeyPath());
+      case OrderCsvPlan.PRODUCT:
+        orderableReferenceDataService
+            .findByIdentities(references
+                .stream()
+                .filter(VersionEntityReference.class::isInstance)
+                .map(VersionEntityReference.class::cast)
+                .collect(Collectors.toSet()))
+            .forEach(orderable -> found.put(orderable.getIdentity(), orderable));
+        orderableReferenceDataService.findByIds(ids)
+            .forEach(orderable -> found.put(orderable.getId(), orderable));
         break;
-      case LINE_ITEM_ORDERABLE:
-        columnValue = lineItemOrderableContext.getValue(fileColumn.getKeyPath());
+      case OrderCsvPlan.PERIOD:
+        periodReferenceDataService.findByIds(ids)
+            .forEach(period -> found.put(period.getId(), period));
         break;
       default:
-        columnValue = lineItemContext.getValue(fileColumn.getKeyPath());
         break;
     }
 
-    if (fileColumn.getRelated() != null && !fileColumn.getRelated().isEmpty()) {
-      if (columnValue instanceof VersionEntityReference) {
-        columnValue = ((VersionEntityReference) columnValue).getId();
-      }
-      columnValue = getRelatedColumnValue((UUID) columnValue, fileColumn);
-    }
-
-    return columnValue == null ? "" : columnValue;
+    return found;
   }
 
-  private Object getRelatedColumnValue(UUID relatedId, FileColumn fileColumn) {
-    if (relatedId == null) {
-      return null;
+  /**
+   * Returns the related object from the objects retrieved in bulk. An object that was not
+   * retrieved is looked up on its own, once per file.
+   */
+  private Object getRelatedObject(Map<String, Map<Object, Object>> relatedObjects,
+      String related, Object reference) {
+    Map<Object, Object> objects = relatedObjects.computeIfAbsent(related, key -> new HashMap<>());
+    Object key = reference instanceof VersionEntityReference
+        ? new VersionIdentityDto((VersionEntityReference) reference)
+        : reference;
+    Object object = objects.get(key);
+
+    if (null == object) {
+      UUID id = reference instanceof VersionEntityReference
+          ? ((VersionEntityReference) reference).getId()
+          : (UUID) reference;
+      object = findRelatedObject(related, id);
+      objects.put(key, null == object ? NOT_FOUND : object);
     }
 
-    Object columnValue;
+    return NOT_FOUND == object ? null : object;
+  }
 
-    switch (fileColumn.getRelated()) {
-      case FACILITY:
-        FacilityDto facility = facilityReferenceDataService.findOne(relatedId);
-        columnValue = getValue(facility, fileColumn.getRelatedKeyPath());
-        break;
-      case PRODUCT:
-        OrderableDto product = orderableReferenceDataService.findOne(relatedId);
-        columnValue = getValue(product, fileColumn.getRelatedKeyPath());
-        break;
-      case PERIOD:
-        ProcessingPeriodDto period = periodReferenceDataService.findOne(relatedId);
-        columnValue = getValue(period, fileColumn.getRelatedKeyPath());
-        break;
+  private Object findRelatedObject(String related, UUID relatedId) {
+    switch (related) {
+      case OrderCsvPlan.FACILITY:
+        return facilityReferenceDataService.findOne(relatedId);
+      case OrderCsvPlan.PRODUCT:
+        return orderableReferenceDataService.findOne(relatedId);
+      case OrderCsvPlan.PERIOD:
+        return periodReferenceDataService.findOne(relatedId);
       default:
-        columnValue = null;
-        break;
+        return null;
     }
-
-    return columnValue;
-  }
-
-  private Object getValue(Object object, String keyPath) {
-    JXPathContext context = JXPathContext.newContext(object);
-
-    return context.getValue(keyPath);
   }
 }
@@ -0,0 +1,382 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static java.time.format.DateTimeFormatter.ofPattern;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import org.apache.commons.jxpath.CompiledExpression;
+import org.apache.commons.jxpath.JXPathContext;
+import org.openlmis.fulfillment.domain.FileColumn;
+import org.openlmis.fulfillment.domain.FileTemplate;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderLineItem;
+import org.openlmis.fulfillment.domain.VersionEntityReference;
+import org.openlmis.fulfillment.service.referencedata.FacilityDto;
+import org.openlmis.fulfillment.service.referencedata.OrderableDto;
+import org.openlmis.fulfillment.service.referencedata.ProcessingPeriodDto;
+
+/**
+ * Order file template compiled into the list of its included columns. Each column key path is
+ * resolved once to a getter of the nested object, so writing a line does not interpret the key
+ * paths again. Key paths that are not a single bean property are compiled as JXPath
+ * expressions. A plan is immutable and can be shared between threads.
+ */
+final class OrderCsvPlan {
+  static final String FACILITY = "Facility";
+  static final String PRODUCT = "Orderable";
+  static final String PERIOD = "ProcessingPeriod";
+
+  private static final String STRING = "string";
+  private static final String LINE_NO = "line_no";
+  private static final String ORDER = "order";
+  private static final String LINE_ITEM_ORDERABLE = "lineItemOrderable";
+
+  private static final String LINE_SEPARATOR = "\r\n";
+  private static final char VALUE_SEPARATOR = ',';
+
+  private static final Pattern PROPERTY = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+  private final String header;
+  private final Column[] columns;
+
+  private OrderCsvPlan(String header, Column[] columns) {
+    this.header = header;
+    this.columns = columns;
+  }
+
+  /**
+   * Compiles the given template.
+   */
+  static OrderCsvPlan compile(FileTemplate template) {
+    List<Column> columns = new ArrayList<>();
+    List<String> labels = new ArrayList<>();
+
+    for (FileColumn fileColumn : template.getFileColumns()) {
+      if (Boolean.TRUE.equals(fileColumn.getInclude())) {
+        columns.add(Column.compile(fileColumn));
+        labels.add(null == fileColumn.getColumnLabel() ? "" : fileColumn.getColumnLabel());
+      }
+    }
+
+    String header = Boolean.TRUE.equals(template.getHeaderInFile()) && !labels.isEmpty()
+        ? String.join(String.valueOf(VALUE_SEPARATOR), labels) + LINE_SEPARATOR
+        : null;
+
+    return new OrderCsvPlan(header, columns.toArray(new Column[0]));
+  }
+
+  /**
+   * Returns a key that is equal for templates that are compiled into the same plan, so a plan
+   * is compiled again whenever a template is changed.
+   */
+  static List<Object> keyOf(FileTemplate template) {
+    List<Object> key = new ArrayList<>();
+    key.add(template.getHeaderInFile());
+
+    for (FileColumn column : template.getFileColumns()) {
+      key.add(Arrays.asList(column.getInclude(), column.getColumnLabel(), column.getNested(),
+          column.getKeyPath(), column.getRelated(), column.getRelatedKeyPath(),
+          column.getFormat()));
+    }
+
+    return key;
+  }
+
+  /**
+   * Writes the header if the template requires one.
+   */
+  void writeHeader(Writer writer) throws IOException {
+    if (null != header) {
+      writer.write(header);
+    }
+  }
+
+  /**
+   * Collects references to all objects that the related columns of the given line items point
+   * to, grouped by the type of the related object. A reference is the id of the object or, for
+   * an orderable of a line item, the version of the orderable.
+   */
+  Map<String, Set<Object>> collectRelatedReferences(Order order,
+      Collection<OrderLineItem> lineItems) {
+    Map<String, Set<Object>> references = new HashMap<>();
+
+    for (Column column : columns) {
+      if (null != column.related) {
+        Set<Object> columnReferences = references
+            .computeIfAbsent(column.related, related -> new HashSet<>());
+
+        for (OrderLineItem lineItem : lineItems) {
+          Object reference = column.getReference(order, lineItem);
+
+          if (null != reference) {
+            columnReferences.add(reference);
+          }
+        }
+      }
+    }
+
+    return references;
+  }
+
+  /**
+   * Writes a single line for the given line item.
+   *
+   * @param related function that returns the related object of the given type and reference.
+   */
+  void writeLine(Order order, OrderLineItem lineItem, int lineNumber,
+      BiFunction<String, Object, Object> related, Writer writer) throws IOException {
+    for (int i = 0; i < columns.length; ++i) {
+      if (i > 0) {
+        writer.write(VALUE_SEPARATOR);
+      }
+
+      writer.write(columns[i].getValue(order, lineItem, lineNumber, related));
+    }
+
+    writer.write(LINE_SEPARATOR);
+  }
+
+  private enum Source {
+    EMPTY, STRING, LINE_NO, ORDER, LINE_ITEM, LINE_ITEM_ORDERABLE
+  }
+
+  private static final class Column {
+    private final Source source;
+    private final String text;
+    private final Function<Object, Object> accessor;
+    private final String related;
+    private final Function<Object, Object> relatedAccessor;
+    private final String format;
+    private final DateTimeFormatter formatter;
+
+    private Column(Source source, String text, Function<Object, Object> accessor,
+        String related, Function<Object, Object> relatedAccessor, String format) {
+      this.source = source;
+      this.text = text;
+      this.accessor = accessor;
+      this.related = related;
+      this.relatedAccessor = relatedAccessor;
+      this.format = format;
+      this.formatter = formatter(format);
+    }
+
+    static Column compile(FileColumn column) {
+      String nested = column.getNested();
+      String keyPath = column.getKeyPath();
+      Source source;
+      Function<Object, Object> accessor = null;
+
+      if (null == nested || nested.isEmpty()) {
+        source = Source.EMPTY;
+      } else if (STRING.equals(nested)) {
+        source = Source.STRING;
+      } else if (LINE_NO.equals(nested)) {
+        source = Source.LINE_NO;
+      } else if (ORDER.equals(nested)) {
+        source = Source.ORDER;
+        accessor = accessor(Order.class, keyPath);
+      } else if (LINE_ITEM_ORDERABLE.equals(nested)) {
+        source = Source.LINE_ITEM_ORDERABLE;
+        accessor = accessor(VersionEntityReference.class, keyPath);
+      } else {
+        source = Source.LINE_ITEM;
+        accessor = accessor(OrderLineItem.class, keyPath);
+      }
+
+      String related = column.getRelated();
+      Function<Object, Object> relatedAccessor = null;
+
+      if (null == related || related.isEmpty()) {
+        related = null;
+      } else {
+        Class<?> relatedType = relatedType(related);
+        relatedAccessor = null == relatedType
+            ? target -> null
+            : accessor(relatedType, column.getRelatedKeyPath());
+      }
+
+      return new Column(source, keyPath, accessor, related, relatedAccessor,
+          column.getFormat());
+    }
+
+    String getValue(Order order, OrderLineItem lineItem, int lineNumber,
+        BiFunction<String, Object, Object> relatedFinder) {
+      Object value = getSourceValue(order, lineItem, lineNumber);
+
+      if (null != related) {
+        Object reference = toReference(value);
+
+        value = null == reference
+            ? null
+            : relatedAccessor.apply(relatedFinder.apply(related, reference));
+      }
+
+      return format(value);
+    }
+
+    Object getReference(Order order, OrderLineItem lineItem) {
+      return toReference(getSourceValue(order, lineItem, 0));
+    }
+
+    private Object toReference(Object value) {
+      if (value instanceof VersionEntityReference) {
+        VersionEntityReference reference = (VersionEntityReference) value;
+
+        // orderables are resolved in the version ordered, other objects by their id only
+        return null == reference.getId() || !PRODUCT.equals(related)
+            ? reference.getId()
+            : reference;
+      }
+
+      return value;
+    }
+
+    private Object getSourceValue(Order order, OrderLineItem lineItem, int lineNumber) {
+      switch (source) {
+        case EMPTY:
+          return null;
+        case STRING:
+          return text;
+        case LINE_NO:
+          return lineNumber;
+        case ORDER:
+          return accessor.apply(order);
+        case LINE_ITEM_ORDERABLE:
+          return accessor.apply(lineItem.getOrderable());
+        default:
+          return accessor.apply(lineItem);
+      }
+    }
+
+    private String format(Object value) {
+      if (value instanceof ZonedDateTime) {
+        return ((ZonedDateTime) value).format(getFormatter());
+      } else if (value instanceof LocalDate) {
+        return ((LocalDate) value).format(getFormatter());
+      }
+
+      return null == value ? "" : value.toString();
+    }
+
+    private DateTimeFormatter getFormatter() {
+      // an invalid format is only reported when a date is formatted with it
+      return null == formatter ? ofPattern(format) : formatter;
+    }
+
+    private static DateTimeFormatter formatter(String format) {
+      try {
+        return null == format ? null : ofPattern(format);
+      } catch (IllegalArgumentException ex) {
+        return null;
+      }
+    }
+
+    private static Class<?> relatedType(String related) {
+      switch (related) {
+        case FACILITY:
+          return FacilityDto.class;
+        case PRODUCT:
+          return OrderableDto.class;
+        case PERIOD:
+          return ProcessingPeriodDto.class;
+        default:
+          return null;
+      }
+    }
+  }
+
+  /**
+   * Returns a function that reads the given key path from an object of the given type. A key
+   * path that names a single bean property which is not a collection is read with its getter,
+   * any other key path is evaluated by JXPath.
+   */
+  private static Function<Object, Object> accessor(Class<?> type, String keyPath) {
+    Method getter = null == keyPath || !PROPERTY.matcher(keyPath).matches()
+        ? null
+        : findGetter(type, keyPath);
+
+    if (null == getter) {
+      CompiledExpression expression = JXPathContext.compile(keyPath);
+      return target -> expression.getValue(JXPathContext.newContext(target));
+    }
+
+    MethodHandle handle;
+
+    try {
+      handle = MethodHandles.publicLookup().unreflect(getter);
+    } catch (IllegalAccessException ex) {
+      CompiledExpression expression = JXPathContext.compile(keyPath);
+      return target -> expression.getValue(JXPathContext.newContext(target));
+    }
+
+    return target -> null == target ? null : invoke(handle, target);
+  }
+
+  private static Method findGetter(Class<?> type, String property) {
+    try {
+      for (PropertyDescriptor descriptor : Introspector.getBeanInfo(type)
+          .getPropertyDescriptors()) {
+        if (property.equals(descriptor.getName()) && isSingleValued(descriptor)) {
+          return descriptor.getReadMethod();
+        }
+      }
+    } catch (IntrospectionException ex) {
+      return null;
+    }
+
+    return null;
+  }
+
+  private static boolean isSingleValued(PropertyDescriptor descriptor) {
+    Class<?> type = descriptor.getPropertyType();
+
+    // JXPath returns the first element of a collection, this is left to JXPath
+    return null != descriptor.getReadMethod() && null != type && !type.isArray()
+        && !Collection.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type);
+  }
+
+  private static Object invoke(MethodHandle handle, Object target) {
+    try {
+      return handle.invoke(target);
+    } catch (RuntimeException | Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+}
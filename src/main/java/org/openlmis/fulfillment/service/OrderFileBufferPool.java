@@ -0,0 +1,75 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool of in-memory buffers that order files are generated into before they are sent. Buffers
+ * keep their grown capacity so after a warm up files are generated without new allocations.
+ * Buffers bigger than the given size are not returned to the pool so a single big order does not
+ * keep its memory forever.
+ */
+final class OrderFileBufferPool {
+  private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+  private final BlockingQueue<Buffer> buffers;
+  private final int maxPooledBufferSize;
+
+  OrderFileBufferPool(int size, int maxPooledBufferSize) {
+    this.buffers = size > 0 ? new ArrayBlockingQueue<>(size) : null;
+    this.maxPooledBufferSize = maxPooledBufferSize;
+  }
+
+  Buffer borrow() {
+    Buffer buffer = null == buffers ? null : buffers.poll();
+    return null == buffer ? new Buffer() : buffer;
+  }
+
+  void release(Buffer buffer) {
+    if (null != buffers && buffer.capacity() <= maxPooledBufferSize) {
+      buffer.reset();
+      buffers.offer(buffer);
+    }
+  }
+
+  int getPooledCount() {
+    return null == buffers ? 0 : buffers.size();
+  }
+
+  static final class Buffer extends ByteArrayOutputStream {
+
+    Buffer() {
+      super(INITIAL_BUFFER_SIZE);
+    }
+
+    int capacity() {
+      return buf.length;
+    }
+
+    /**
+     * Returns a stream over the current content of the buffer without copying it. The stream
+     * must not be used after the buffer is released.
+     */
+    InputStream toInputStream() {
+      return new ByteArrayInputStream(buf, 0, count);
+    }
+  }
+}
@@ -27,7 +27,6 @@ import org.openlmis.fulfillment.domain.FileTemplate;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.TransferProperties;
 import org.openlmis.fulfillment.domain.TransferType;
-import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -44,13 +43,12 @@ public class OrderFileStorage implements OrderStorage {
   private FileTemplateService fileTemplateService;
 
   @Autowired
-  private TransferPropertiesRepository transferPropertiesRepository;
+  private TransferPropertiesRegistry transferPropertiesRegistry;
 
   @Override
   public void store(Order order) {
-    TransferProperties properties = transferPropertiesRepository
-        .findFirstByFacilityIdAndTransferType(order.getSupplyingFacilityId(),
-            TransferType.ORDER);
+    TransferProperties properties = transferPropertiesRegistry
+        .get(order.getSupplyingFacilityId(), TransferType.ORDER);
 
     if (null == properties) {
       LOGGER.warn(
@@ -94,9 +92,8 @@ public class OrderFileStorage implements OrderStorage {
   @Override
   public Path getOrderAsPath(Order order) {
     FileTemplate template = fileTemplateService.getOrderFileTemplate();
-    TransferProperties properties = transferPropertiesRepository
-        .findFirstByFacilityIdAndTransferType(order.getSupplyingFacilityId(),
-            TransferType.ORDER);
+    TransferProperties properties = transferPropertiesRegistry
+        .get(order.getSupplyingFacilityId(), TransferType.ORDER);
 
     String fileName = template.getFilePrefix() + order.getOrderCode() + ".csv";
 
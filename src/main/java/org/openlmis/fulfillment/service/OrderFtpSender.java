@@ -15,60 +15,117 @@
 
 package org.openlmis.fulfillment.service;
 
-import static java.util.Locale.ENGLISH;
-
-import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.text.MessageFormat;
-import org.apache.camel.Exchange;
-import org.apache.camel.ProducerTemplate;
+import javax.annotation.PostConstruct;
+import org.openlmis.fulfillment.domain.FileTemplate;
 import org.openlmis.fulfillment.domain.FtpTransferProperties;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.TransferProperties;
 import org.openlmis.fulfillment.domain.TransferType;
-import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
 public class OrderFtpSender implements OrderSender {
   private static final Logger LOGGER = LoggerFactory.getLogger(OrderFtpSender.class);
 
-  private static final String CAMEL_FTP_PATTERN =
-      "{0}://{1}@{2}:{3}/{4}?password={5}&passiveMode={6}";
-
   @Autowired
-  private ProducerTemplate producerTemplate;
+  private FtpSessionPool ftpSessionPool;
 
   @Autowired
   private OrderStorage orderStorage;
 
   @Autowired
-  private TransferPropertiesRepository transferPropertiesRepository;
+  private TransferPropertiesRegistry transferPropertiesRegistry;
+
+  @Autowired
+  private OrderCsvHelper csvHelper;
+
+  @Autowired
+  private FileTemplateService fileTemplateService;
+
+  @Value("${order.transfer.bufferPoolSize}")
+  private int bufferPoolSize;
+
+  @Value("${order.transfer.maxPooledBufferSize}")
+  private int maxPooledBufferSize;
+
+  private OrderFileBufferPool bufferPool;
+
+  @PostConstruct
+  public void initBufferPool() {
+    bufferPool = new OrderFileBufferPool(bufferPoolSize, maxPooledBufferSize);
+  }
 
   @Override
   public boolean send(Order order) {
     Path path = orderStorage.getOrderAsPath(order);
-    TransferProperties properties = transferPropertiesRepository
-        .findFirstByFacilityIdAndTransferType(order.getSupplyingFacilityId(),
-            TransferType.ORDER);
+    TransferProperties properties = transferPropertiesRegistry
+        .get(order.getSupplyingFacilityId(), TransferType.ORDER);
 
-    return properties instanceof FtpTransferProperties
-        && send(order, path, (FtpTransferProperties) properties);
+    if (!(properties instanceof FtpTransferProperties)) {
+      return false;
+    }
 
+    try (InputStream content = Files.newInputStream(path)) {
+      return send(order, content, path.getFileName().toString(),
+          (FtpTransferProperties) properties);
+    } catch (IOException exp) {
+      LOGGER.error("Can't read CSV file {} related with order {}", path, order.getId(), exp);
+      return false;
+    }
   }
 
-  private boolean send(Order order, Path path, FtpTransferProperties ftp) {
+  /**
+   * Generates the order file into a pooled in-memory buffer and uploads the buffer, so the file
+   * is never written to the local directory.
+   */
+  @Override
+  public boolean sendDirectly(Order order) {
+    TransferProperties properties = transferPropertiesRegistry
+        .get(order.getSupplyingFacilityId(), TransferType.ORDER);
+
+    if (!(properties instanceof FtpTransferProperties)) {
+      return false;
+    }
+
+    FileTemplate template = fileTemplateService.getOrderFileTemplate();
+    String fileName = template.getFilePrefix() + order.getOrderCode() + ".csv";
+    OrderFileBufferPool.Buffer buffer = bufferPool.borrow();
+
+    try {
+      try (Writer writer = new OutputStreamWriter(buffer, StandardCharsets.UTF_8)) {
+        csvHelper.writeCsvFile(order, template, writer);
+      } catch (Exception exp) {
+        LOGGER.error("Can't generate CSV file {} related with order {}",
+            fileName, order.getId(), exp);
+
+        return false;
+      }
+
+      return send(order, buffer.toInputStream(), fileName, (FtpTransferProperties) properties);
+    } finally {
+      bufferPool.release(buffer);
+    }
+  }
+
+  private boolean send(Order order, InputStream content, String fileName,
+      FtpTransferProperties ftp) {
     try {
-      String endpointUri = createEndpointUri(ftp);
-      File file = path.toFile();
-      producerTemplate.sendBodyAndHeader(endpointUri, file, Exchange.FILE_NAME, file.getName());
+      ftpSessionPool.upload(ftp, fileName, content);
     } catch (Exception exp) {
       LOGGER.error(
           "Can't transfer CSV file {} related with order {} to the FTP server",
-          path, order.getId(), exp
+          fileName, order.getId(), exp
       );
 
       return false;
@@ -76,15 +133,4 @@ public class OrderFtpSender implements OrderSender {
 
     return true;
   }
-
-  private String createEndpointUri(FtpTransferProperties setting) {
-    return MessageFormat.format(CAMEL_FTP_PATTERN,
-        setting.getProtocol().name().toLowerCase(ENGLISH),
-        setting.getUsername(),
-        setting.getServerHost(),
-        setting.getServerPort(),
-        setting.getRemoteDirectory(),
-        setting.getPassword(),
-        setting.getPassiveMode());
-  }
 }
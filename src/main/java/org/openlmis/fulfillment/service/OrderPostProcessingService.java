@@ -0,0 +1,242 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.openlmis.fulfillment.domain.OrderStatus.IN_ROUTE;
+import static org.openlmis.fulfillment.domain.OrderStatus.TRANSFER_FAILED;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.hibernate.Hibernate;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderPostProcessingTask;
+import org.openlmis.fulfillment.domain.OrderPostProcessingTask.Step;
+import org.openlmis.fulfillment.extension.ExtensionManager;
+import org.openlmis.fulfillment.extension.point.ExtensionPointId;
+import org.openlmis.fulfillment.extension.point.OrderCreatePostProcessor;
+import org.openlmis.fulfillment.repository.OrderPostProcessingTaskRepository;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.util.DateHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs the order create post processor outside of the transaction that creates the orders. The
+ * orders are added to an outbox table in that transaction and the due entries are claimed and
+ * leased by workers in a short transaction. The post processor runs without a transaction and its
+ * result is recorded in another short transaction. Each step of an entry is retried with an
+ * exponential backoff until the maximum number of attempts is reached. When the transfer step is
+ * given up the order is marked as transfer failed and the entry moves on to the next step.
+ */
+@Service
+public class OrderPostProcessingService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(OrderPostProcessingService.class);
+
+  @Autowired
+  private OrderPostProcessingTaskRepository orderPostProcessingTaskRepository;
+
+  @Autowired
+  private OrderRepository orderRepository;
+
+  @Autowired
+  private ExtensionManager extensionManager;
+
+  @Autowired
+  private DateHelper dateHelper;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Value("${order.postProcessing.batchSize}")
+  private int batchSize;
+
+  @Value("${order.postProcessing.maxAttempts}")
+  private int maxAttempts;
+
+  @Value("${order.postProcessing.retryDelay}")
+  private long retryDelay;
+
+  @Value("${order.postProcessing.lease}")
+  private long lease;
+
+  /**
+   * Adds the given orders to the outbox. Should be called in the transaction that creates the
+   * orders, so the orders are post-processed if and only if they are committed.
+   *
+   * @param orders orders that should be post-processed.
+   */
+  public void enqueue(Collection<Order> orders) {
+    ZonedDateTime now = dateHelper.getCurrentDateTimeWithSystemZone();
+    List<OrderPostProcessingTask> tasks = orders
+        .stream()
+        .map(order -> OrderPostProcessingTask.newInstance(order.getId(), now))
+        .collect(Collectors.toList());
+
+    orderPostProcessingTaskRepository.saveAll(tasks);
+  }
+
+  /**
+   * Claims the due outbox entries and post-processes their orders.
+   *
+   * @return number of processed entries, successful or not.
+   */
+  public int processDueTasks() {
+    List<OrderPostProcessingTask> claimed = newTransaction().execute(status -> claim());
+
+    if (claimed.isEmpty()) {
+      return 0;
+    }
+
+    OrderCreatePostProcessor orderCreatePostProcessor = extensionManager.getExtension(
+        ExtensionPointId.ORDER_CREATE_POST_POINT_ID, OrderCreatePostProcessor.class);
+
+    for (OrderPostProcessingTask task : claimed) {
+      process(orderCreatePostProcessor, task);
+    }
+
+    return claimed.size();
+  }
+
+  private List<OrderPostProcessingTask> claim() {
+    ZonedDateTime now = dateHelper.getCurrentDateTimeWithSystemZone();
+    List<OrderPostProcessingTask> due = orderPostProcessingTaskRepository
+        .findDueForUpdate(now, batchSize);
+
+    due.forEach(task -> task.claim(now.plusSeconds(lease)));
+    return due;
+  }
+
+  private void process(OrderCreatePostProcessor orderCreatePostProcessor,
+      OrderPostProcessingTask task) {
+    Order order = loadOrder(task.getOrderId());
+
+    if (null == order) {
+      LOGGER.warn("Order with id {} does not exist, skipping its post processing",
+          task.getOrderId());
+      newTransaction().execute(status -> {
+        orderPostProcessingTaskRepository.deleteById(task.getId());
+        return null;
+      });
+      return;
+    }
+
+    // the post processor talks to remote servers, so it runs without a transaction and the
+    // task stays reserved for this worker by its lease
+    try {
+      orderCreatePostProcessor.process(order, task);
+    } catch (RuntimeException ex) {
+      LOGGER.warn("Attempt {} of the {} step of post processing of order with id {} failed",
+          task.getAttempts(), task.getStep(), task.getOrderId(), ex);
+      newTransaction().execute(status -> {
+        handleFailure(task.getId(), ex);
+        return null;
+      });
+      return;
+    }
+
+    newTransaction().execute(status -> {
+      handleSuccess(task.getId());
+      return null;
+    });
+  }
+
+  private void handleSuccess(UUID taskId) {
+    OrderPostProcessingTask task = orderPostProcessingTaskRepository
+        .findById(taskId)
+        .orElse(null);
+
+    // the next step is claimed again by the workers, the task is removed after the last one
+    if (null != task && !task.nextStep(dateHelper.getCurrentDateTimeWithSystemZone())) {
+      orderPostProcessingTaskRepository.deleteById(taskId);
+    }
+  }
+
+  /**
+   * Loads the order with its collections in a short read-only transaction, so the detached order
+   * can be used by the post processor.
+   */
+  private Order loadOrder(UUID orderId) {
+    TransactionTemplate template = newTransaction();
+    template.setReadOnly(true);
+
+    return template.execute(status -> {
+      Order order = orderRepository.findById(orderId).orElse(null);
+
+      if (null != order) {
+        Hibernate.initialize(order.getOrderLineItems());
+        Hibernate.initialize(order.getStatusMessages());
+        Hibernate.initialize(order.getStatusChanges());
+      }
+
+      return order;
+    });
+  }
+
+  private void handleFailure(UUID taskId, RuntimeException ex) {
+    OrderPostProcessingTask task = orderPostProcessingTaskRepository
+        .findById(taskId)
+        .orElse(null);
+
+    if (null == task) {
+      return;
+    }
+
+    String error = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+
+    if (task.getAttempts() < maxAttempts) {
+      long delay = retryDelay << Math.min(task.getAttempts() - 1, 16);
+      task.retryAt(dateHelper.getCurrentDateTimeWithSystemZone().plusSeconds(delay), error);
+      return;
+    }
+
+    LOGGER.error("Giving up the {} step of post processing of order with id {} after {} "
+        + "attempts", task.getStep(), task.getOrderId(), task.getAttempts());
+
+    if (Step.TRANSFER == task.getStep()) {
+      orderRepository
+          .findById(task.getOrderId())
+          .filter(order -> IN_ROUTE == order.getStatus())
+          .ifPresent(order -> {
+            order.setStatus(TRANSFER_FAILED);
+            orderRepository.save(order);
+          });
+    }
+
+    ZonedDateTime now = dateHelper.getCurrentDateTimeWithSystemZone();
+
+    if (task.nextStep(now)) {
+      // the error of the given up step is kept until the next step fails
+      task.retryAt(now, error);
+    } else {
+      task.fail(error);
+    }
+  }
+
+  private TransactionTemplate newTransaction() {
+    TransactionTemplate template = new TransactionTemplate(transactionManager);
+    template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    return template;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Starts the configured number of workers that post-process orders from the outbox. Each worker
+ * keeps processing while there are due entries and otherwise waits for the poll interval.
+ */
+@Order(40)
+@Component
+public class OrderPostProcessingWorker implements CommandLineRunner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(OrderPostProcessingWorker.class);
+
+  @Autowired
+  private OrderPostProcessingService orderPostProcessingService;
+
+  @Autowired
+  @Qualifier("orderPostProcessingScheduler")
+  private TaskScheduler scheduler;
+
+  @Value("${order.postProcessing.workers}")
+  private int workers;
+
+  @Value("${order.postProcessing.pollInterval}")
+  private long pollInterval;
+
+  @Override
+  public void run(String... args) {
+    for (int i = 0; i < workers; ++i) {
+      scheduler.scheduleWithFixedDelay(this::poll, Duration.ofMillis(pollInterval));
+    }
+
+    LOGGER.info("Started {} order post processing workers", workers);
+  }
+
+  void poll() {
+    try {
+      while (orderPostProcessingService.processDueTasks() > 0) {
+        LOGGER.debug("Processed due order post processing tasks, checking for more");
+      }
+    } catch (RuntimeException ex) {
+      // an exception would cancel the next executions of this worker
+      LOGGER.error("Unable to process due order post processing tasks", ex);
+    }
+  }
+}
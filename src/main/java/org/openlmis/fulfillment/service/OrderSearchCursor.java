@@ -0,0 +1,90 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.openlmis.fulfillment.i18n.MessageKeys.ORDER_SEARCH_CURSOR_INVALID;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.apache.commons.lang3.StringUtils;
+import org.openlmis.fulfillment.domain.OrderSummary;
+import org.openlmis.fulfillment.web.ValidationException;
+
+/**
+ * Position of the last order of a page in the keyset (seek) order search. Orders are sorted by
+ * the created date and the ID (both descending), so the next page starts with the first order
+ * that is "smaller" than the cursor. The cursor is sent to clients as an opaque token.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public final class OrderSearchCursor {
+  private static final String SEPARATOR = ",";
+
+  private final ZonedDateTime createdDate;
+  private final UUID id;
+
+  public static OrderSearchCursor of(OrderSummary order) {
+    return new OrderSearchCursor(order.getCreatedDate(), order.getId());
+  }
+
+  /**
+   * Decodes the given token. A blank token means the first page.
+   *
+   * @param token the token returned with the previous page
+   * @return the cursor or {@code null} if the token is blank.
+   * @throws ValidationException if the token is invalid.
+   */
+  public static OrderSearchCursor decode(String token) {
+    if (StringUtils.isBlank(token)) {
+      return null;
+    }
+
+    try {
+      String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      String[] elements = value.split(SEPARATOR);
+
+      if (elements.length != 2) {
+        throw new ValidationException(ORDER_SEARCH_CURSOR_INVALID, token);
+      }
+
+      return new OrderSearchCursor(
+          ZonedDateTime.ofInstant(Instant.parse(elements[0]), ZoneOffset.UTC),
+          UUID.fromString(elements[1]));
+    } catch (IllegalArgumentException | DateTimeException ex) {
+      throw new ValidationException(ex, ORDER_SEARCH_CURSOR_INVALID, token);
+    }
+  }
+
+  /**
+   * Encodes this cursor as an opaque, URL safe token.
+   */
+  public String encode() {
+    String value = createdDate.toInstant() + SEPARATOR + id;
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+}
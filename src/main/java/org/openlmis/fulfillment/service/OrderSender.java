@@ -21,4 +21,11 @@ public interface OrderSender {
 
   boolean send(Order order);
 
+  /**
+   * Generates the order file and sends it without storing it in the order storage first.
+   *
+   * @return true if the order file has been sent.
+   */
+  boolean sendDirectly(Order order);
+
 }
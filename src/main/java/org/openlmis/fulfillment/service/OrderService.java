@@ -16,7 +16,9 @@
 package org.openlmis.fulfillment.service;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
 import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static org.apache.commons.collections.CollectionUtils.isEmpty;
 import static org.openlmis.fulfillment.domain.OrderStatus.CREATING;
 import static org.openlmis.fulfillment.domain.OrderStatus.IN_ROUTE;
@@ -30,31 +32,36 @@ import static org.openlmis.fulfillment.service.PermissionService.PODS_VIEW;
 import static org.openlmis.fulfillment.service.PermissionService.SHIPMENTS_EDIT;
 import static org.openlmis.fulfillment.service.PermissionService.SHIPMENTS_VIEW;
 
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import org.openlmis.fulfillment.domain.FtpTransferProperties;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderNumberConfiguration;
+import org.openlmis.fulfillment.domain.OrderSummary;
 import org.openlmis.fulfillment.domain.TransferProperties;
 import org.openlmis.fulfillment.domain.TransferType;
 import org.openlmis.fulfillment.domain.UpdateDetails;
 import org.openlmis.fulfillment.extension.ExtensionManager;
 import org.openlmis.fulfillment.extension.point.ExtensionPointId;
-import org.openlmis.fulfillment.extension.point.OrderCreatePostProcessor;
 import org.openlmis.fulfillment.extension.point.OrderNumberGenerator;
 import org.openlmis.fulfillment.repository.OrderNumberConfigurationRepository;
 import org.openlmis.fulfillment.repository.OrderRepository;
-import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
-import org.openlmis.fulfillment.service.referencedata.FacilityReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.PeriodReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.PermissionStrings;
 import org.openlmis.fulfillment.service.referencedata.ProcessingPeriodDto;
 import org.openlmis.fulfillment.service.referencedata.ProgramDto;
 import org.openlmis.fulfillment.service.referencedata.ProgramReferenceDataService;
+import org.openlmis.fulfillment.service.referencedata.SupportedProgramIndex;
+import org.openlmis.fulfillment.service.referencedata.SupportedProgramIndex.ProgramSupport;
 import org.openlmis.fulfillment.service.referencedata.UserDto;
 import org.openlmis.fulfillment.util.AuthenticationHelper;
 import org.openlmis.fulfillment.util.DateHelper;
@@ -66,6 +73,7 @@ import org.slf4j.ext.XLoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
@@ -78,7 +86,7 @@ public class OrderService {
   private OrderRepository orderRepository;
 
   @Autowired
-  private TransferPropertiesRepository transferPropertiesRepository;
+  private TransferPropertiesRegistry transferPropertiesRegistry;
 
   @Autowired
   private PeriodReferenceDataService periodService;
@@ -87,7 +95,13 @@ public class OrderService {
   private ProgramReferenceDataService programReferenceDataService;
 
   @Autowired
-  private FacilityReferenceDataService facilityReferenceDataService;
+  private SupportedProgramIndex supportedProgramIndex;
+
+  @Autowired
+  private OrderPostProcessingService orderPostProcessingService;
+
+  @Autowired
+  private ExternalIdFilter externalIdFilter;
 
   @Autowired
   private OrderNumberConfigurationRepository orderNumberConfigurationRepository;
@@ -119,15 +133,68 @@ public class OrderService {
 
     setOrderCode(order);
     Order newOrder = save(order);
-
-    OrderCreatePostProcessor orderCreatePostProcessor = extensionManager.getExtension(
-        ExtensionPointId.ORDER_CREATE_POST_POINT_ID, OrderCreatePostProcessor.class);
-    orderCreatePostProcessor.process(order);
+    externalIdFilter.add(newOrder.getExternalId());
+    orderPostProcessingService.enqueue(singletonList(newOrder));
 
     XLOGGER.debug("Created new order with id: {}", order.getId());
     return newOrder;
   }
 
+  /**
+   * Creates orders in bulk. Programs, supported programs of supplying facilities and transfer
+   * properties of all orders are retrieved at once, the order number configuration is read once
+   * and all orders are inserted with a single flush. The orders are post-processed by the
+   * workers of {@link OrderPostProcessingService} once the transaction has been committed.
+   *
+   * @param orderDtos objects that orders will be created from.
+   * @param userIds   function that returns the id of the user that creates the given order.
+   * @return created orders, in the same order as the given objects.
+   */
+  public List<Order> createOrders(List<OrderDto> orderDtos, Function<OrderDto, UUID> userIds) {
+    if (isEmpty(orderDtos)) {
+      return emptyList();
+    }
+
+    ZonedDateTime now = dateHelper.getCurrentDateTimeWithSystemZone();
+    List<Order> orders = orderDtos
+        .stream()
+        .map(dto -> Order.newInstance(dto, new UpdateDetails(userIds.apply(dto), now)))
+        .collect(Collectors.toList());
+
+    Map<UUID, ProgramDto> programs = programReferenceDataService
+        .findByIds(collectIds(orders, Order::getProgramId))
+        .stream()
+        .collect(Collectors.toMap(ProgramDto::getId, Function.identity(), (one, two) -> one));
+    Set<UUID> supplyingFacilityIds = collectIds(orders, Order::getSupplyingFacilityId);
+    supportedProgramIndex.prefetch(supplyingFacilityIds);
+    Map<UUID, TransferProperties> transferProperties = transferPropertiesRegistry
+        .getAll(supplyingFacilityIds, TransferType.ORDER);
+
+    OrderNumberConfiguration orderNumberConfiguration =
+        orderNumberConfigurationRepository.findAll().iterator().next();
+    OrderNumberGenerator orderNumberGenerator =
+        extensionManager.getExtension(ExtensionPointId.ORDER_NUMBER_POINT_ID,
+            OrderNumberGenerator.class);
+
+    for (Order order : orders) {
+      ProgramDto program = programs.get(order.getProgramId());
+
+      order.setOrderCode(orderNumberConfiguration.formatOrderNumber(
+          order, program, orderNumberGenerator.generate(order)));
+      setOrderStatus(order, transferProperties::get);
+      entityManager.persist(order);
+      externalIdFilter.add(order.getExternalId());
+    }
+
+    orderPostProcessingService.enqueue(orders);
+
+    entityManager.flush();
+    entityManager.clear();
+
+    XLOGGER.debug("Created {} new orders", orders.size());
+    return orders;
+  }
+
   /**
    * Creates requisition-less order.
    *
@@ -142,6 +209,7 @@ public class OrderService {
     order.setStatus(CREATING);
 
     entityManager.persist(order);
+    externalIdFilter.add(order.getExternalId());
 
     XLOGGER.debug("Created requisition-less order with id: {}", order.getId());
     return order;
@@ -180,11 +248,118 @@ public class OrderService {
    * @return ist of Orders with matched parameters.
    */
   public Page<Order> searchOrders(OrderSearchParams params, Pageable pageable) {
-    XLOGGER.debug("order service search startDate {}", params.getPeriodStartDate());
-    XLOGGER.debug("order service search endDate {}", params.getPeriodEndDate());
+    return searchOrders(params, pageable, CountMode.EXACT);
+  }
+
+  /**
+   * Finds orders matching all of provided parameters.
+   *
+   * @param params    provided parameters.
+   * @param pageable  pagination parameters.
+   * @param countMode how the total number of orders should be calculated.
+   * @return ist of Orders with matched parameters.
+   */
+  public Page<Order> searchOrders(OrderSearchParams params, Pageable pageable,
+      CountMode countMode) {
+    Optional<Set<UUID>> processingPeriodIds = findProcessingPeriodIds(params);
+
+    if (!processingPeriodIds.isPresent()) {
+      return new PageImpl<>(emptyList(), pageable, 0);
+    }
+
+    UserDto user = authenticationHelper.getCurrentUser();
+
+    if (null != user) {
+      PermissionStrings.Handler handler = permissionService.getPermissionStrings(user.getId());
+
+      return orderRepository.searchOrders(
+          params, processingPeriodIds.get(), pageable, countMode,
+          handler.getFacilityIds(ORDERS_EDIT, ORDERS_VIEW, SHIPMENTS_EDIT, SHIPMENTS_VIEW),
+          handler.getFacilityIds(PODS_MANAGE, PODS_VIEW)
+      );
+
+    } else {
+      return orderRepository.searchOrders(params, processingPeriodIds.get(), pageable,
+          countMode);
+    }
+  }
+
+  /**
+   * Finds summaries of orders matching all of provided parameters. Summaries are read-only
+   * projections that contain only the order columns.
+   *
+   * @param params    provided parameters.
+   * @param pageable  pagination parameters.
+   * @param countMode how the total number of orders should be calculated.
+   * @return page of order summaries with matched parameters.
+   */
+  public Page<OrderSummary> searchOrderSummaries(OrderSearchParams params, Pageable pageable,
+      CountMode countMode) {
+    Optional<Set<UUID>> processingPeriodIds = findProcessingPeriodIds(params);
+
+    if (!processingPeriodIds.isPresent()) {
+      return new PageImpl<>(emptyList(), pageable, 0);
+    }
 
     UserDto user = authenticationHelper.getCurrentUser();
 
+    if (null != user) {
+      PermissionStrings.Handler handler = permissionService.getPermissionStrings(user.getId());
+
+      return orderRepository.searchOrderSummaries(
+          params, processingPeriodIds.get(), pageable, countMode,
+          handler.getFacilityIds(ORDERS_EDIT, ORDERS_VIEW, SHIPMENTS_EDIT, SHIPMENTS_VIEW),
+          handler.getFacilityIds(PODS_MANAGE, PODS_VIEW)
+      );
+
+    } else {
+      return orderRepository.searchOrderSummaries(params, processingPeriodIds.get(), pageable,
+          countMode);
+    }
+  }
+
+  /**
+   * Finds the next page of order summaries matching all of provided parameters with keyset
+   * pagination. Orders are sorted by created date and id (newest first) and the total number of
+   * orders is not counted.
+   *
+   * @param params   provided parameters.
+   * @param cursor   position of the last order of the previous page, null for the first page.
+   * @param pageSize max number of orders in the page.
+   * @return page of order summaries with matched parameters.
+   */
+  public Page<OrderSummary> seekOrders(OrderSearchParams params, OrderSearchCursor cursor,
+      int pageSize) {
+    Optional<Set<UUID>> processingPeriodIds = findProcessingPeriodIds(params);
+
+    if (!processingPeriodIds.isPresent()) {
+      return new PageImpl<>(emptyList(), PageRequest.of(0, pageSize), 0);
+    }
+
+    UserDto user = authenticationHelper.getCurrentUser();
+
+    if (null != user) {
+      PermissionStrings.Handler handler = permissionService.getPermissionStrings(user.getId());
+
+      return orderRepository.seekOrders(
+          params, processingPeriodIds.get(), cursor, pageSize,
+          handler.getFacilityIds(ORDERS_EDIT, ORDERS_VIEW, SHIPMENTS_EDIT, SHIPMENTS_VIEW),
+          handler.getFacilityIds(PODS_MANAGE, PODS_VIEW)
+      );
+
+    } else {
+      return orderRepository.seekOrders(params, processingPeriodIds.get(), cursor, pageSize);
+    }
+  }
+
+  /**
+   * Resolves processing periods from the search parameters. An empty set is returned if orders
+   * should not be filtered by periods and an empty optional if no order can match the parameters.
+   */
+  private Optional<Set<UUID>> findProcessingPeriodIds(OrderSearchParams params) {
+    XLOGGER.debug("order service search startDate {}", params.getPeriodStartDate());
+    XLOGGER.debug("order service search endDate {}", params.getPeriodEndDate());
+
     Set<UUID> processingPeriodIds = null;
 
     if (null != params.getPeriodStartDate() || null != params.getPeriodEndDate()) {
@@ -194,7 +369,7 @@ public class OrderService {
           .map(ProcessingPeriodDto::getId)
           .collect(Collectors.toSet());
       if (isEmpty(processingPeriodIds)) {
-        return new PageImpl<>(emptyList(), pageable, 0);
+        return Optional.empty();
       }
     }
 
@@ -204,22 +379,11 @@ public class OrderService {
         processingPeriodIds = singleton(params.getProcessingPeriodId());
         XLOGGER.debug("order service search period ids {}", processingPeriodIds);
       } else {
-        return new PageImpl<>(emptyList(), pageable, 0);
+        return Optional.empty();
       }
     }
 
-    if (null != user) {
-      PermissionStrings.Handler handler = permissionService.getPermissionStrings(user.getId());
-
-      return orderRepository.searchOrders(
-          params, processingPeriodIds, pageable,
-          handler.getFacilityIds(ORDERS_EDIT, ORDERS_VIEW, SHIPMENTS_EDIT, SHIPMENTS_VIEW),
-          handler.getFacilityIds(PODS_MANAGE, PODS_VIEW)
-      );
-
-    } else {
-      return orderRepository.searchOrders(params, processingPeriodIds, pageable);
-    }
+    return Optional.of(null == processingPeriodIds ? emptySet() : processingPeriodIds);
   }
 
   /**
@@ -231,7 +395,8 @@ public class OrderService {
    * @return passed instance after save.
    */
   public Order save(Order order) {
-    setOrderStatus(order);
+    setOrderStatus(order,
+        facilityId -> transferPropertiesRegistry.get(facilityId, TransferType.ORDER));
 
     // save order
     if (order.getId() == null) {
@@ -259,25 +424,20 @@ public class OrderService {
     order.setOrderCode(orderNumberConfiguration.formatOrderNumber(order, program, orderNumber));
   }
 
-  private void setOrderStatus(Order order) {
+  private void setOrderStatus(Order order,
+      Function<UUID, TransferProperties> transferProperties) {
     // Is the order associated with a supply line?
     if (null != order.getSupplyingFacilityId()) {
       // Is the supplying facility have the FTP configuration?
 
-      ProgramDto program = programReferenceDataService.findOne(order.getProgramId());
-      Optional<ProgramDto> supportedProgram = facilityReferenceDataService
-          .findOne(order.getSupplyingFacilityId())
-          .getSupportedPrograms()
-          .stream()
-          .filter(p -> program.getCode().equals(p.getCode()))
-          .findFirst();
+      ProgramSupport programSupport = supportedProgramIndex
+          .get(order.getSupplyingFacilityId(), order.getProgramId());
 
-      if (supportedProgram.isPresent() && supportedProgram.get().isSupportLocallyFulfilled()) {
+      if (programSupport.isLocallyFulfilled()) {
         order.prepareToLocalFulfill();
       } else {
-        TransferProperties properties = transferPropertiesRepository
-            .findFirstByFacilityIdAndTransferType(order.getSupplyingFacilityId(),
-                TransferType.ORDER);
+        TransferProperties properties = transferProperties
+            .apply(order.getSupplyingFacilityId());
 
         if (null == properties) {
           // Set order status as TRANSFER_FAILED
@@ -294,4 +454,12 @@ public class OrderService {
       order.setStatus(TRANSFER_FAILED);
     }
   }
+
+  private Set<UUID> collectIds(List<Order> orders, Function<Order, UUID> idExtractor) {
+    return orders
+        .stream()
+        .map(idExtractor)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet());
+  }
 }
@@ -37,6 +37,8 @@ import org.openlmis.fulfillment.web.shipment.ShipmentDto;
 import org.openlmis.fulfillment.web.shipmentdraft.ShipmentDraftDto;
 import org.openlmis.fulfillment.web.util.ObjectReferenceDto;
 import org.openlmis.fulfillment.web.util.OrderDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -46,6 +48,8 @@ import org.springframework.stereotype.Service;
 @Service
 @SuppressWarnings("PMD.TooManyMethods")
 public class PermissionService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PermissionService.class);
+
   static final String ORDERS_TRANSFER = "ORDERS_TRANSFER";
   public static final String PODS_MANAGE = "PODS_MANAGE";
   public static final String PODS_VIEW = "PODS_VIEW";
@@ -279,6 +283,14 @@ public class PermissionService {
     }
 
     UserDto user = authenticationHelper.getCurrentUser();
+
+    try {
+      return checkPermissionStrings(user, rightName, facility, program, warehouse);
+    } catch (DataRetrievalException ex) {
+      LOGGER.warn("Unable to check the {} right with permission strings of user {}, "
+          + "checking it with the reference data service", rightName, user.getId(), ex);
+    }
+
     RightDto right = authenticationHelper.getRight(rightName);
     ResultDto<Boolean> result =  userReferenceDataService.hasRight(
         user.getId(), right.getId(), program, facility, warehouse
@@ -287,6 +299,16 @@ public class PermissionService {
     return null != result && isTrue(result.getResult());
   }
 
+  private boolean checkPermissionStrings(UserDto user, String rightName, UUID facility,
+                                         UUID program, UUID warehouse) {
+    PermissionStrings.Handler handler = permissionStrings.forUser(user.getId());
+
+    // fulfillment rights are assigned to a warehouse without a program
+    return null == warehouse
+        ? handler.hasPermission(rightName, facility, program)
+        : handler.hasPermission(rightName, warehouse, null);
+  }
+
   private boolean checkServiceToken(boolean allowApiKey,
                                     OAuth2Authentication authentication) {
     String clientId = authentication.getOAuth2Request().getClientId();
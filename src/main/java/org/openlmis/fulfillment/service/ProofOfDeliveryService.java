@@ -68,6 +68,20 @@ public class ProofOfDeliveryService {
    * @return page of filtered PODs.
    */
   public Page<ProofOfDelivery> search(UUID shipmentId, UUID orderId, Pageable pageable) {
+    return search(shipmentId, orderId, pageable, CountMode.EXACT);
+  }
+
+  /**
+   * Search PODs with the given parameters. See {@link #search(UUID, UUID, Pageable)}.
+   *
+   * @param shipmentId UUID of shipment associated with POD, optional
+   * @param orderId    UUID of order associated with POD, optional
+   * @param pageable   pagination parameters
+   * @param countMode  how the total number of PODs should be calculated
+   * @return page of filtered PODs.
+   */
+  public Page<ProofOfDelivery> search(UUID shipmentId, UUID orderId, Pageable pageable,
+      CountMode countMode) {
     Profiler profiler = new Profiler("SEARCH_PODS");
     profiler.setLogger(XLOGGER);
 
@@ -93,7 +107,7 @@ public class ProofOfDeliveryService {
     }
     profiler.start("FIND_PODS");
     Page<ProofOfDelivery> result = proofOfDeliveryRepository.search(shipmentId, orderId,
-        receivingFacilitiesIds, supplyingFacilitiesIds, programIds, pageable);
+        receivingFacilitiesIds, supplyingFacilitiesIds, programIds, pageable, countMode);
 
     profiler.stop().log();
     return result;
@@ -15,6 +15,7 @@
 
 package org.openlmis.fulfillment.service;
 
+import java.util.List;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import org.openlmis.fulfillment.domain.ProofOfDelivery;
@@ -60,4 +61,33 @@ public class ShipmentService {
     return shipment;
   }
 
+  /**
+   * Saves the given shipments to database with a single flush. Also related Proofs Of Delivery
+   * will be created.
+   */
+  public List<Shipment> createAll(final List<Shipment> shipments) {
+    XLOGGER.entry();
+    Profiler profiler = new Profiler("SAVE_SHIPMENTS");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("SAVE_SHIPMENTS_TO_DB");
+    shipments.forEach(entityManager::persist);
+
+    entityManager.flush();
+    entityManager.clear();
+
+    profiler.start("SAVE_PODS_TO_DB");
+    shipments
+        .stream()
+        .map(ProofOfDelivery::newInstance)
+        .forEach(entityManager::persist);
+
+    entityManager.flush();
+    entityManager.clear();
+
+    profiler.stop().log();
+    XLOGGER.exit();
+    return shipments;
+  }
+
 }
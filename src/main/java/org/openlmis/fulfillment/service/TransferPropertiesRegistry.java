@@ -0,0 +1,239 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.openlmis.fulfillment.domain.TransferProperties;
+import org.openlmis.fulfillment.domain.TransferType;
+import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps all transfer properties in memory, keyed by facility and transfer type. The registry is
+ * loaded at startup, reloaded after a change made by this instance is committed and reloaded
+ * when it is older than the refresh interval, so changes made by other instances are picked up
+ * as well.
+ */
+@Order(20)
+@Component
+public class TransferPropertiesRegistry implements CommandLineRunner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TransferPropertiesRegistry.class);
+
+  @Autowired
+  private TransferPropertiesRepository transferPropertiesRepository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Value("${transferProperties.registry.refreshInterval}")
+  private long refreshInterval;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private volatile Snapshot snapshot;
+
+  /**
+   * Loads the registry at startup.
+   */
+  @Override
+  public void run(String... args) {
+    if (refreshInterval > 0) {
+      reload();
+    }
+  }
+
+  /**
+   * Returns transfer properties of the given facility and transfer type.
+   *
+   * @param facilityId   id of facility.
+   * @param transferType type of transfer.
+   * @return matching transfer properties or null if there are none.
+   */
+  public TransferProperties get(UUID facilityId, TransferType transferType) {
+    if (refreshInterval <= 0) {
+      return transferPropertiesRepository
+          .findFirstByFacilityIdAndTransferType(facilityId, transferType);
+    }
+
+    return getSnapshot().properties.get(new Key(facilityId, transferType));
+  }
+
+  /**
+   * Returns transfer properties of the given facilities and transfer type.
+   *
+   * @param facilityIds  ids of facilities.
+   * @param transferType type of transfer.
+   * @return map of facility ids to their transfer properties. Facilities without transfer
+   *         properties are not included.
+   */
+  public Map<UUID, TransferProperties> getAll(Collection<UUID> facilityIds,
+      TransferType transferType) {
+    Map<UUID, TransferProperties> found = new HashMap<>();
+
+    if (facilityIds.isEmpty()) {
+      return found;
+    }
+
+    if (refreshInterval <= 0) {
+      transferPropertiesRepository
+          .findByFacilityIdInAndTransferType(facilityIds, transferType)
+          .forEach(properties -> found.putIfAbsent(properties.getFacilityId(), properties));
+      return found;
+    }
+
+    Map<Key, TransferProperties> properties = getSnapshot().properties;
+
+    for (UUID facilityId : facilityIds) {
+      TransferProperties element = properties.get(new Key(facilityId, transferType));
+
+      if (null != element) {
+        found.put(facilityId, element);
+      }
+    }
+
+    return found;
+  }
+
+  /**
+   * Reloads the registry once the current transaction is committed, or immediately if there is
+   * no active transaction. Should be called after transfer properties were changed.
+   */
+  public void reloadAfterCommit() {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      reload();
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronizationAdapter() {
+          @Override
+          public void afterCommit() {
+            reload();
+          }
+        });
+  }
+
+  /**
+   * Returns the current snapshot. Only the first call waits for the database. Once the snapshot
+   * is older than the refresh interval a single caller reloads it and the others keep using the
+   * current one. If the reload fails the current snapshot is used until the next attempt.
+   */
+  Snapshot getSnapshot() {
+    Snapshot current = snapshot;
+
+    if (null == current) {
+      lock.lock();
+
+      try {
+        if (null == snapshot) {
+          snapshot = load();
+        }
+
+        return snapshot;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    if (current.isOlderThan(TimeUnit.SECONDS.toMillis(refreshInterval)) && lock.tryLock()) {
+      try {
+        if (current == snapshot) {
+          snapshot = load();
+        }
+      } catch (RuntimeException ex) {
+        LOGGER.warn("Unable to reload transfer properties, the current ones will be used", ex);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    return snapshot;
+  }
+
+  private void reload() {
+    lock.lock();
+
+    try {
+      snapshot = load();
+    } catch (RuntimeException ex) {
+      // the next call will retry once the current snapshot is older than the refresh interval
+      LOGGER.warn("Unable to reload transfer properties", ex);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Snapshot load() {
+    // a separate transaction makes sure the entities are not attached to the caller's session
+    TransactionTemplate template = new TransactionTemplate(transactionManager);
+    template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    template.setReadOnly(true);
+
+    List<TransferProperties> all = template.execute(status -> transferPropertiesRepository
+        .findAll());
+    Map<Key, TransferProperties> properties = new HashMap<>();
+
+    for (TransferProperties element : all) {
+      properties.putIfAbsent(new Key(element.getFacilityId(), element.getTransferType()), element);
+    }
+
+    LOGGER.debug("Loaded {} transfer properties", properties.size());
+    return new Snapshot(properties);
+  }
+
+  static final class Snapshot {
+    private final Map<Key, TransferProperties> properties;
+    private final long loadedAt = System.currentTimeMillis();
+
+    private Snapshot(Map<Key, TransferProperties> properties) {
+      this.properties = properties;
+    }
+
+    int size() {
+      return properties.size();
+    }
+
+    private boolean isOlderThan(long millis) {
+      return System.currentTimeMillis() - loadedAt >= millis;
+    }
+  }
+
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  private static final class Key {
+    private final UUID facilityId;
+    private final TransferType transferType;
+  }
+}
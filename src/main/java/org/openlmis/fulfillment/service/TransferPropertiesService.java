@@ -15,6 +15,7 @@
 
 package org.openlmis.fulfillment.service;
 
+import java.util.Objects;
 import java.util.UUID;
 import org.apache.commons.lang.NullArgumentException;
 import org.openlmis.fulfillment.ShipmentContextRunner;
@@ -37,6 +38,9 @@ public class TransferPropertiesService {
   @Autowired
   private ShipmentContextRunner shipmentContextRunner;
 
+  @Autowired
+  private TransferPropertiesRegistry transferPropertiesRegistry;
+
   /**
    * Retrieves TransferProperties for given facility.
    *
@@ -48,8 +52,7 @@ public class TransferPropertiesService {
       throw new NullArgumentException("facilityId");
     }
 
-    return transferPropertiesRepository.findFirstByFacilityIdAndTransferType(facilityId,
-        transferType);
+    return transferPropertiesRegistry.get(facilityId, transferType);
   }
 
   /**
@@ -63,16 +66,40 @@ public class TransferPropertiesService {
       throw new IllegalArgumentException("Facility with given ID does not exist.");
     }
 
-    TransferProperties existent = getByFacility(setting.getFacilityId(), setting.getTransferType());
-    if (existent != null && existent.getId() != setting.getId()) {
+    // the registry may not know yet about changes made by other instances
+    TransferProperties existent = transferPropertiesRepository
+        .findFirstByFacilityIdAndTransferType(setting.getFacilityId(), setting.getTransferType());
+    if (existent != null && !Objects.equals(existent.getId(), setting.getId())) {
       throw new DuplicateTransferPropertiesException();
     }
 
-    TransferProperties persistedSetting = transferPropertiesRepository.save(setting);
+    TransferProperties persistedSetting = update(setting);
     if (TransferType.SHIPMENT.equals(persistedSetting.getTransferType())) {
       shipmentContextRunner.reCreateShipmentChannel(persistedSetting);
     }
     return persistedSetting;
   }
 
+  /**
+   * Saves changes of TransferProperties that were already validated.
+   *
+   * @param setting an instance of TransferProperties to be saved.
+   * @return saved instance of TransferProperties.
+   */
+  public TransferProperties update(TransferProperties setting) {
+    TransferProperties persistedSetting = transferPropertiesRepository.save(setting);
+    transferPropertiesRegistry.reloadAfterCommit();
+    return persistedSetting;
+  }
+
+  /**
+   * Deletes an entity of TransferProperties.
+   *
+   * @param setting an instance of TransferProperties to be deleted.
+   */
+  public void delete(TransferProperties setting) {
+    transferPropertiesRepository.delete(setting);
+    transferPropertiesRegistry.reloadAfterCommit();
+  }
+
 }
@@ -17,12 +17,23 @@ package org.openlmis.fulfillment.service.referencedata;
 
 import static org.openlmis.fulfillment.service.request.RequestHelper.createUri;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
+import javax.annotation.PostConstruct;
 import org.openlmis.fulfillment.service.BaseCommunicationService;
+import org.openlmis.fulfillment.service.ServiceResponse;
+import org.openlmis.fulfillment.service.request.RequestHeaders;
+import org.openlmis.fulfillment.service.request.RequestHelper;
 import org.openlmis.fulfillment.service.request.RequestParameters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -34,30 +45,121 @@ public abstract class BaseReferenceDataService<T> extends BaseCommunicationServi
   @Value("${referencedata.url}")
   private String referenceDataUrl;
 
+  @Value("${referencedata.cache.maxSize}")
+  private long cacheMaxSize;
+
+  private ReferenceDataCache<UUID, T> cache;
+
+  private final RequestCoalescer<String, T> findOneRequests = new RequestCoalescer<>();
+
   /**
-   * Return one object from Reference data service.
+   * Creates the local cache for this resource if both the cache size and the time-to-live
+   * returned by {@link #getCacheTimeToLive()} are positive.
+   */
+  @PostConstruct
+  public void initCache() {
+    Duration timeToLive = getCacheTimeToLive();
+
+    if (cacheMaxSize > 0 && !timeToLive.isZero() && !timeToLive.isNegative()) {
+      cache = new ReferenceDataCache<>(cacheMaxSize, timeToLive);
+    }
+  }
+
+  public void setCache(ReferenceDataCache<UUID, T> cache) {
+    this.cache = cache;
+  }
+
+  public Optional<ReferenceDataCache.Stats> getCacheStats() {
+    return Optional.ofNullable(cache).map(ReferenceDataCache::getStats);
+  }
+
+  public RequestCoalescer.Stats getCoalescingStats() {
+    return findOneRequests.getStats();
+  }
+
+  /**
+   * Return one object from Reference data service. Concurrent calls for the same object share
+   * a single request. The returned object may be shared with other callers (and the local
+   * cache), so it must not be modified.
    *
    * @param id UUID of requesting object.
    * @return Requesting reference data object.
    */
   public T findOne(UUID id) {
+    if (null != cache) {
+      T cached = cache.getIfFresh(id);
+
+      if (null != cached) {
+        return cached;
+      }
+    }
+
     String url = getServiceUrl() + getUrl() + id;
 
+    return findOneRequests.execute(url, () -> null == cache
+        ? retrieveOne(url, id, null).getBody()
+        : cache.get(id, etag -> retrieveOne(url, id, etag)));
+  }
+
+  private ServiceResponse<T> retrieveOne(String url, UUID id, String etag) {
     try {
       ResponseEntity<T> responseEntity = restTemplate.exchange(
-          buildUri(url), HttpMethod.GET, createEntity(), getResultClass());
-      return responseEntity.getBody();
+          buildUri(url), HttpMethod.GET,
+          RequestHelper.createEntity(addAuthHeader(RequestHeaders.init().setIfNoneMatch(etag))),
+          getResultClass());
+
+      return new ServiceResponse<>(responseEntity.getBody(), responseEntity.getHeaders(),
+          HttpStatus.NOT_MODIFIED != responseEntity.getStatusCode());
     } catch (HttpStatusCodeException ex) {
       // rest template will handle 404 as an exception, instead of returning null
       if (ex.getStatusCode() == HttpStatus.NOT_FOUND) {
         logger.warn("{} with id {} does not exist. ", getResultClass().getSimpleName(), id);
-        return null;
+        return new ServiceResponse<>(null, new HttpHeaders(), true);
       } else {
         throw buildDataRetrievalException(ex);
       }
     }
   }
 
+  /**
+   * Finds objects by their ids. Fresh objects are taken from the local cache and only the
+   * missing ones are retrieved with the given function. Retrieved objects are added to the cache,
+   * so the returned objects must not be modified.
+   *
+   * @param ids         ids to look for.
+   * @param idExtractor function that returns an id of the given object.
+   * @param retriever   function that retrieves objects with the given ids from the service.
+   * @return a list of found objects.
+   */
+  protected List<T> findByIds(Collection<UUID> ids, Function<T, UUID> idExtractor,
+      Function<Collection<UUID>, Collection<T>> retriever) {
+    if (null == cache) {
+      return new ArrayList<>(retriever.apply(ids));
+    }
+
+    List<T> found = new ArrayList<>(ids.size());
+    List<UUID> missing = new ArrayList<>();
+
+    for (UUID id : ids) {
+      T cached = cache.getIfFresh(id);
+
+      if (null == cached) {
+        missing.add(id);
+      } else {
+        found.add(cached);
+      }
+    }
+
+    if (!missing.isEmpty()) {
+      for (T retrieved : retriever.apply(missing)) {
+        cache.put(idExtractor.apply(retrieved), retrieved, null);
+        found.add(retrieved);
+      }
+    }
+
+    return found;
+  }
+
   <P> P get(Class<P> type, String resourceUrl, RequestParameters parameters) {
     String url = getServiceUrl() + getUrl() + resourceUrl;
 
@@ -71,6 +173,14 @@ public abstract class BaseReferenceDataService<T> extends BaseCommunicationServi
     return referenceDataUrl;
   }
 
+  /**
+   * Returns how long a retrieved object is served from the local cache before it is revalidated
+   * with the reference data service. A zero duration disables the cache for the resource.
+   */
+  protected Duration getCacheTimeToLive() {
+    return Duration.ZERO;
+  }
+
   protected abstract String getUrl();
 
   protected abstract Class<T> getResultClass();
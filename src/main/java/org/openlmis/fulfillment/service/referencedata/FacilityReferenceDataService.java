@@ -15,16 +15,21 @@
 
 package org.openlmis.fulfillment.service.referencedata;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.UUID;
 import org.openlmis.fulfillment.service.request.RequestParameters;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
 @Service
 public class FacilityReferenceDataService extends BaseReferenceDataService<FacilityDto> {
 
+  @Value("${referencedata.cache.facilities.timeToLive}")
+  private long cacheTimeToLive;
+
   @Override
   protected String getUrl() {
     return "/api/facilities/";
@@ -40,6 +45,11 @@ public class FacilityReferenceDataService extends BaseReferenceDataService<Facil
     return FacilityDto[].class;
   }
 
+  @Override
+  protected Duration getCacheTimeToLive() {
+    return Duration.ofSeconds(cacheTimeToLive);
+  }
+
   /**
    * Finds facilities by their ids.
    *
@@ -50,6 +60,7 @@ public class FacilityReferenceDataService extends BaseReferenceDataService<Facil
     if (CollectionUtils.isEmpty(ids)) {
       return Collections.emptyList();
     }
-    return getPage(RequestParameters.init().set("id", ids)).getContent();
+    return findByIds(ids, FacilityDto::getId,
+        missing -> getPage(RequestParameters.init().set("id", missing)).getContent());
   }
 }
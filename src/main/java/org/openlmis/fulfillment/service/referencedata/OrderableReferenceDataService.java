@@ -15,15 +15,19 @@
 
 package org.openlmis.fulfillment.service.referencedata;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
 import org.openlmis.fulfillment.domain.VersionEntityReference;
 import org.openlmis.fulfillment.service.request.RequestParameters;
 import org.openlmis.fulfillment.web.util.VersionIdentityDto;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
@@ -31,6 +35,29 @@ import org.springframework.util.CollectionUtils;
 public class OrderableReferenceDataService
     extends BaseReferenceDataService<OrderableDto> {
 
+  @Value("${referencedata.cache.orderableVersions.maxSize}")
+  private long versionCacheMaxSize;
+
+  private Cache<VersionIdentityDto, OrderableDto> versionCache;
+
+  /**
+   * Creates the cache of orderable versions. An orderable with the given id and version number
+   * never changes so entries are only removed when the cache exceeds its size.
+   */
+  @PostConstruct
+  public void initVersionCache() {
+    if (versionCacheMaxSize > 0) {
+      setVersionCache(CacheBuilder
+          .newBuilder()
+          .maximumSize(versionCacheMaxSize)
+          .build());
+    }
+  }
+
+  void setVersionCache(Cache<VersionIdentityDto, OrderableDto> versionCache) {
+    this.versionCache = versionCache;
+  }
+
   @Override
   protected String getUrl() {
     return "/api/orderables/";
@@ -64,21 +91,56 @@ public class OrderableReferenceDataService
   }
 
   /**
-   * Finds orderables by their identities.
+   * Finds orderables by their identities. Orderable versions that were already retrieved are
+   * taken from the local cache and only the missing identities are sent to the service. Cached
+   * orderables are shared by all callers, so the returned orderables must not be modified.
    */
   public List<OrderableDto> findByIdentities(Set<VersionEntityReference> references) {
     if (CollectionUtils.isEmpty(references)) {
       return Collections.emptyList();
     }
 
-    List<VersionIdentityDto> identities = references
-        .stream()
-        .map(ref -> new VersionIdentityDto(ref.getId(), ref.getVersionNumber()))
-        .collect(Collectors.toList());
+    List<OrderableDto> found = new ArrayList<>(references.size());
+    List<VersionIdentityDto> missing = new ArrayList<>();
+
+    for (VersionEntityReference reference : references) {
+      VersionIdentityDto identity = new VersionIdentityDto(reference);
+      OrderableDto cached = getCachedVersion(identity);
+
+      if (null == cached) {
+        missing.add(identity);
+      } else {
+        found.add(cached);
+      }
+    }
+
+    if (!missing.isEmpty()) {
+      OrderableSearchParams payload = new OrderableSearchParams(
+          null, null, null, missing, 0, missing.size());
+
+      List<OrderableDto> retrieved = getPage("/search", RequestParameters.init(), payload)
+          .getContent();
+
+      for (OrderableDto orderable : retrieved) {
+        cacheVersion(orderable);
+        found.add(orderable);
+      }
+    }
+
+    return found;
+  }
 
-    OrderableSearchParams payload = new OrderableSearchParams(
-        null, null, null, identities, 0, identities.size());
+  private OrderableDto getCachedVersion(VersionIdentityDto identity) {
+    return null == versionCache || null == identity.getVersionNumber()
+        ? null
+        : versionCache.getIfPresent(identity);
+  }
 
-    return getPage("/search", RequestParameters.init(), payload).getContent();
+  private void cacheVersion(OrderableDto orderable) {
+    // the version number is kept in the meta object which may be missing from the response
+    if (null != versionCache && null != orderable.getId() && null != orderable.getMeta()
+        && null != orderable.getVersionNumber()) {
+      versionCache.put(orderable.getIdentity(), orderable);
+    }
   }
 }
@@ -15,21 +15,39 @@
 
 package org.openlmis.fulfillment.service.referencedata;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.openlmis.fulfillment.service.ServiceResponse;
 import org.openlmis.fulfillment.service.request.RequestParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
 @Service
 public class PeriodReferenceDataService extends BaseReferenceDataService<ProcessingPeriodDto> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PeriodReferenceDataService.class);
 
   private static final String START_DATE = "startDate";
   private static final String END_DATE = "endDate";
 
+  @Value("${referencedata.cache.processingPeriods.timeToLive}")
+  private long cacheTimeToLive;
+
+  @Value("${referencedata.cache.processingPeriods.calendar.refreshInterval}")
+  private long calendarRefreshInterval;
+
+  private final ReentrantLock calendarLock = new ReentrantLock();
+
+  private volatile ProcessingPeriodCalendar calendar;
+
   @Override
   protected String getUrl() {
     return "/api/processingPeriods/";
@@ -45,14 +63,24 @@ public class PeriodReferenceDataService extends BaseReferenceDataService<Process
     return ProcessingPeriodDto[].class;
   }
 
+  @Override
+  protected Duration getCacheTimeToLive() {
+    return Duration.ofSeconds(cacheTimeToLive);
+  }
+
   /**
-   * Gets filtered Processing Periods by start date and end date.
+   * Gets filtered Processing Periods by start date and end date. If the calendar refresh interval
+   * is positive, periods are resolved from the local {@link ProcessingPeriodCalendar}.
    *
    * @param startDate filter start date value
    * @param endDate   filter end date value
    * @return a list of filtered Processing Periods
    */
   public List<ProcessingPeriodDto> search(LocalDate startDate, LocalDate endDate) {
+    if (calendarRefreshInterval > 0) {
+      return getCalendar().search(startDate, endDate);
+    }
+
     return getPage(
         RequestParameters.init()
             .set(START_DATE, startDate)
@@ -60,6 +88,67 @@ public class PeriodReferenceDataService extends BaseReferenceDataService<Process
         .getContent();
   }
 
+  /**
+   * Returns the local calendar of all processing periods. Only the first call waits for the
+   * remote service. Once the calendar is older than the refresh interval, a single caller
+   * revalidates it with its ETag while the others keep using the current one.
+   */
+  ProcessingPeriodCalendar getCalendar() {
+    ProcessingPeriodCalendar current = calendar;
+
+    if (null == current) {
+      calendarLock.lock();
+
+      try {
+        if (null == calendar) {
+          calendar = loadCalendar(null);
+        }
+
+        return calendar;
+      } finally {
+        calendarLock.unlock();
+      }
+    }
+
+    if (isStale(current) && calendarLock.tryLock()) {
+      try {
+        if (current == calendar) {
+          calendar = loadCalendar(current);
+        }
+      } catch (RuntimeException ex) {
+        LOGGER.warn("Unable to refresh the processing period calendar", ex);
+      } finally {
+        calendarLock.unlock();
+      }
+
+      return calendar;
+    }
+
+    return current;
+  }
+
+  private ProcessingPeriodCalendar loadCalendar(ProcessingPeriodCalendar current) {
+    ServiceResponse<List<ProcessingPeriodDto>> response = tryGetPage("",
+        RequestParameters.init(), ProcessingPeriodDto.class,
+        null == current ? null : current.getETag());
+
+    if (!response.isModified() && null != current) {
+      return current.revalidated(System.nanoTime());
+    }
+
+    ProcessingPeriodCalendar loaded = new ProcessingPeriodCalendar(
+        null == response.getBody() ? Collections.emptyList() : response.getBody(),
+        null == response.getHeaders() ? null : response.getETag(), System.nanoTime());
+
+    LOGGER.debug("Loaded {} processing periods into the calendar", loaded.size());
+    return loaded;
+  }
+
+  private boolean isStale(ProcessingPeriodCalendar current) {
+    return System.nanoTime() - current.getFetchedAt()
+        >= TimeUnit.SECONDS.toNanos(calendarRefreshInterval);
+  }
+
   /**
    * Finds periods by their ids.
    *
@@ -70,6 +159,7 @@ public class PeriodReferenceDataService extends BaseReferenceDataService<Process
     if (CollectionUtils.isEmpty(ids)) {
       return Collections.emptyList();
     }
-    return getPage(RequestParameters.init().set("id", ids)).getContent();
+    return findByIds(ids, ProcessingPeriodDto::getId,
+        missing -> getPage(RequestParameters.init().set("id", missing)).getContent());
   }
 }
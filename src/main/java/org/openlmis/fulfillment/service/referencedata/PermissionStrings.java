@@ -19,39 +19,84 @@ import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toSet;
 
-import com.google.common.collect.Maps;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
 import org.openlmis.fulfillment.service.ServiceResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
 public class PermissionStrings {
-  private final Map<UUID, Handler> handlers = Maps.newConcurrentMap();
+  private static final Logger LOGGER = LoggerFactory.getLogger(PermissionStrings.class);
+
+  private Cache<UUID, Handler> handlers = CacheBuilder.newBuilder().build();
 
   @Autowired
   private UserReferenceDataService userReferenceDataService;
 
+  @Autowired(required = false)
+  @Qualifier("permissionStringsRefreshExecutor")
+  private Executor refreshExecutor;
+
+  @Value("${permissionStrings.handlers.maxSize}")
+  private long maxSize;
+
+  @Value("${permissionStrings.handlers.expireAfterAccess}")
+  private long expireAfterAccess;
+
+  @Value("${permissionStrings.staleness}")
+  private long staleness;
+
+  /**
+   * Creates the handler registry. Handlers of users that did not make any request for the
+   * configured time are removed, as are the least recently used ones above the maximum size.
+   */
+  @PostConstruct
+  public void init() {
+    handlers = CacheBuilder
+        .newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterAccess(expireAfterAccess, TimeUnit.SECONDS)
+        .build();
+  }
+
+  /**
+   * Returns the permission strings handler of the given user.
+   */
   public Handler forUser(UUID user) {
-    return handlers.computeIfAbsent(user, Handler::new);
+    try {
+      return handlers.get(user, () -> new Handler(user));
+    } catch (ExecutionException ex) {
+      // the handler constructor does not throw checked exceptions
+      throw new IllegalStateException(ex);
+    }
   }
 
   public class Handler implements Supplier<Set<PermissionStringDto>> {
     private final Object lock = new Object();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
 
     private UUID userId;
 
-    private Set<PermissionStringDto> permissionStrings;
-    private String etag;
-
-    private Map<String, Set<UUID>> facilityIds;
+    private volatile Snapshot snapshot;
 
     Handler(UUID userId) {
       this.userId = userId;
@@ -59,8 +104,7 @@ public class PermissionStrings {
 
     @Override
     public Set<PermissionStringDto> get() {
-      updatePermissionStrings();
-      return permissionStrings;
+      return getSnapshot().permissionStrings;
     }
 
     /**
@@ -71,7 +115,7 @@ public class PermissionStrings {
      *         rights, an empty set will be returned.
      */
     public Set<UUID> getFacilityIds(String... rightNames) {
-      updatePermissionStrings();
+      Map<String, Set<UUID>> facilityIds = getSnapshot().facilityIds;
       return Arrays
           .stream(rightNames)
           .map(facilityIds::get)
@@ -80,24 +124,103 @@ public class PermissionStrings {
           .collect(toSet());
     }
 
-    private void updatePermissionStrings() {
-      synchronized (lock) {
-        ServiceResponse<List<String>> response = userReferenceDataService
-            .getPermissionStrings(userId, etag);
-
-        if (response.isModified()) {
-          permissionStrings = PermissionStringDto.from(response.getBody());
-          etag = response.getETag();
-          facilityIds = permissionStrings
-              .stream()
-              .filter(Objects::nonNull)
-              .filter(elem -> Objects.nonNull(elem.getFacilityId()))
-              .collect(groupingBy(
-                  PermissionStringDto::getRightName,
-                  mapping(PermissionStringDto::getFacilityId, toSet())
-              ));
+    /**
+     * Checks if the user has the given right using the permission strings. A right for a
+     * warehouse should be checked with the warehouse ID as the facility ID and without a program.
+     *
+     * @param rightName  right name
+     * @param facilityId facility ID, may be null for rights that are not assigned to a facility.
+     * @param programId  program ID, may be null for rights that are not assigned to a program.
+     * @return true if user has a permission string that matches the parameters.
+     */
+    public boolean hasPermission(String rightName, UUID facilityId, UUID programId) {
+      return getSnapshot()
+          .permissionStrings
+          .contains(PermissionStringDto.create(rightName, facilityId, programId));
+    }
+
+    /**
+     * Returns the current permission strings. Only the first call waits for the remote
+     * service. Later calls get the current snapshot without locking and, once it is older than
+     * the staleness window, trigger a single revalidation in the background.
+     */
+    private Snapshot getSnapshot() {
+      Snapshot current = snapshot;
+
+      if (null == current) {
+        synchronized (lock) {
+          if (null == snapshot) {
+            snapshot = load(null);
+          }
+
+          return snapshot;
         }
       }
+
+      if (current.isStale() && refreshing.compareAndSet(false, true)) {
+        if (null == refreshExecutor) {
+          refresh(current);
+          return snapshot;
+        }
+
+        // the executor runs the refresh in the calling thread when its queue is full
+        refreshExecutor.execute(() -> refresh(current));
+      }
+
+      return current;
+    }
+
+    private void refresh(Snapshot current) {
+      try {
+        snapshot = load(current);
+      } catch (RuntimeException ex) {
+        LOGGER.warn("Unable to refresh permission strings for user {}", userId, ex);
+      } finally {
+        refreshing.set(false);
+      }
+    }
+
+    private Snapshot load(Snapshot current) {
+      ServiceResponse<List<String>> response = userReferenceDataService
+          .getPermissionStrings(userId, null == current ? null : current.etag);
+
+      if (!response.isModified() && null != current) {
+        return new Snapshot(current.permissionStrings, current.facilityIds, current.etag);
+      }
+
+      Set<PermissionStringDto> permissionStrings = PermissionStringDto.from(response.getBody());
+      Map<String, Set<UUID>> facilityIds = permissionStrings
+          .stream()
+          .filter(Objects::nonNull)
+          .filter(elem -> Objects.nonNull(elem.getFacilityId()))
+          .collect(groupingBy(
+              PermissionStringDto::getRightName,
+              mapping(PermissionStringDto::getFacilityId, toSet())
+          ));
+
+      return new Snapshot(Collections.unmodifiableSet(permissionStrings),
+          Collections.unmodifiableMap(facilityIds), response.getETag());
+    }
+  }
+
+  /**
+   * Immutable state of the permission strings of a single user.
+   */
+  private final class Snapshot {
+    private final Set<PermissionStringDto> permissionStrings;
+    private final Map<String, Set<UUID>> facilityIds;
+    private final String etag;
+    private final long fetchedAt = System.nanoTime();
+
+    Snapshot(Set<PermissionStringDto> permissionStrings, Map<String, Set<UUID>> facilityIds,
+        String etag) {
+      this.permissionStrings = permissionStrings;
+      this.facilityIds = facilityIds;
+      this.etag = etag;
+    }
+
+    boolean isStale() {
+      return System.nanoTime() - fetchedAt >= TimeUnit.SECONDS.toNanos(staleness);
     }
   }
 }
@@ -0,0 +1,172 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable in-process index of processing periods. Periods are kept sorted both by their start
+ * and by their end date so that a date range is resolved with two binary searches and a scan of
+ * the smaller candidate set, instead of a request to the reference data service.
+ */
+public final class ProcessingPeriodCalendar {
+  private static final Comparator<ProcessingPeriodDto> BY_START_DATE = Comparator
+      .comparing(ProcessingPeriodDto::getStartDate);
+  private static final Comparator<ProcessingPeriodDto> BY_END_DATE = Comparator
+      .comparing(ProcessingPeriodDto::getEndDate);
+
+  private final ProcessingPeriodDto[] byStartDate;
+  private final ProcessingPeriodDto[] byEndDate;
+  private final String etag;
+  private final long fetchedAt;
+
+  /**
+   * Creates an index of the given periods. Periods without start or end date are skipped.
+   *
+   * @param periods   periods to index.
+   * @param etag      ETag of the response the periods were retrieved with, may be null.
+   * @param fetchedAt time (in nanoseconds) when the periods were retrieved.
+   */
+  public ProcessingPeriodCalendar(Collection<ProcessingPeriodDto> periods, String etag,
+      long fetchedAt) {
+    List<ProcessingPeriodDto> valid = periods
+        .stream()
+        .filter(Objects::nonNull)
+        .filter(period -> null != period.getStartDate() && null != period.getEndDate())
+        .collect(Collectors.toList());
+
+    this.byStartDate = valid.stream().sorted(BY_START_DATE).toArray(ProcessingPeriodDto[]::new);
+    this.byEndDate = valid.stream().sorted(BY_END_DATE).toArray(ProcessingPeriodDto[]::new);
+    this.etag = etag;
+    this.fetchedAt = fetchedAt;
+  }
+
+  /**
+   * Returns a copy of this calendar with a new retrieval time. Used when the reference data
+   * service reports that periods were not modified.
+   */
+  public ProcessingPeriodCalendar revalidated(long fetchedAt) {
+    return new ProcessingPeriodCalendar(this, fetchedAt);
+  }
+
+  private ProcessingPeriodCalendar(ProcessingPeriodCalendar calendar, long fetchedAt) {
+    this.byStartDate = calendar.byStartDate;
+    this.byEndDate = calendar.byEndDate;
+    this.etag = calendar.etag;
+    this.fetchedAt = fetchedAt;
+  }
+
+  /**
+   * Finds periods that overlap the given date range, the same way the reference data service
+   * does: a period matches if it does not end before the start date and does not start after
+   * the end date. A null date leaves that side of the range open.
+   *
+   * @param startDate start of the range, may be null.
+   * @param endDate   end of the range, may be null.
+   * @return periods sorted by their start date.
+   */
+  public List<ProcessingPeriodDto> search(LocalDate startDate, LocalDate endDate) {
+    // periods [0, startedCount) of byStartDate start on or before the end date
+    int startedCount = null == endDate
+        ? byStartDate.length
+        : upperBound(byStartDate, ProcessingPeriodDto::getStartDate, endDate);
+    // periods [firstNotEnded, length) of byEndDate end on or after the start date
+    int firstNotEnded = null == startDate
+        ? 0
+        : lowerBound(byEndDate, ProcessingPeriodDto::getEndDate, startDate);
+
+    List<ProcessingPeriodDto> found = new ArrayList<>();
+
+    if (startedCount <= byEndDate.length - firstNotEnded) {
+      for (int i = 0; i < startedCount; ++i) {
+        if (null == startDate || !byStartDate[i].getEndDate().isBefore(startDate)) {
+          found.add(byStartDate[i]);
+        }
+      }
+    } else {
+      for (int i = firstNotEnded; i < byEndDate.length; ++i) {
+        if (null == endDate || !byEndDate[i].getStartDate().isAfter(endDate)) {
+          found.add(byEndDate[i]);
+        }
+      }
+
+      found.sort(BY_START_DATE);
+    }
+
+    return found;
+  }
+
+  public String getETag() {
+    return etag;
+  }
+
+  public long getFetchedAt() {
+    return fetchedAt;
+  }
+
+  public int size() {
+    return byStartDate.length;
+  }
+
+  /**
+   * Returns the index of the first period whose date is not before the given date.
+   */
+  private static int lowerBound(ProcessingPeriodDto[] periods,
+      Function<ProcessingPeriodDto, LocalDate> date, LocalDate value) {
+    int low = 0;
+    int high = periods.length;
+
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+
+      if (date.apply(periods[middle]).isBefore(value)) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return low;
+  }
+
+  /**
+   * Returns the index of the first period whose date is after the given date.
+   */
+  private static int upperBound(ProcessingPeriodDto[] periods,
+      Function<ProcessingPeriodDto, LocalDate> date, LocalDate value) {
+    int low = 0;
+    int high = periods.length;
+
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+
+      if (date.apply(periods[middle]).isAfter(value)) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+
+    return low;
+  }
+}
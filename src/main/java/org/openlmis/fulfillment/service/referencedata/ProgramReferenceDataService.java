@@ -15,16 +15,21 @@
 
 package org.openlmis.fulfillment.service.referencedata;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.UUID;
 import org.openlmis.fulfillment.service.request.RequestParameters;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
 @Service
 public class ProgramReferenceDataService extends BaseReferenceDataService<ProgramDto> {
 
+  @Value("${referencedata.cache.programs.timeToLive}")
+  private long cacheTimeToLive;
+
   @Override
   protected String getUrl() {
     return "/api/programs/";
@@ -40,6 +45,11 @@ public class ProgramReferenceDataService extends BaseReferenceDataService<Progra
     return ProgramDto[].class;
   }
 
+  @Override
+  protected Duration getCacheTimeToLive() {
+    return Duration.ofSeconds(cacheTimeToLive);
+  }
+
   /**
    * Finds programs by their ids.
    *
@@ -50,6 +60,7 @@ public class ProgramReferenceDataService extends BaseReferenceDataService<Progra
     if (CollectionUtils.isEmpty(ids)) {
       return Collections.emptyList();
     }
-    return findAll("", RequestParameters.init().set("id", ids));
+    return findByIds(ids, ProgramDto::getId,
+        missing -> findAll("", RequestParameters.init().set("id", missing)));
   }
 }
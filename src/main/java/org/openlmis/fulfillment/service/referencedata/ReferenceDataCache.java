@@ -0,0 +1,165 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.openlmis.fulfillment.service.ServiceResponse;
+
+/**
+ * Bounded in-process cache for reference data resources. An entry is served locally while it is
+ * younger than the time-to-live. A stale entry is revalidated with its ETag (If-None-Match) and
+ * only replaced when the remote resource has been modified. Cached resources are shared by all
+ * callers and must not be modified.
+ *
+ * @param <K> type of the resource key
+ * @param <V> type of the cached resource
+ */
+public class ReferenceDataCache<K, V> {
+  private final Cache<K, CachedResource<V>> resources;
+  private final long timeToLive;
+  private final Ticker ticker;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder revalidations = new LongAdder();
+
+  public ReferenceDataCache(long maxSize, Duration timeToLive) {
+    this(maxSize, timeToLive, Ticker.systemTicker());
+  }
+
+  ReferenceDataCache(long maxSize, Duration timeToLive, Ticker ticker) {
+    this.resources = CacheBuilder
+        .newBuilder()
+        .maximumSize(maxSize)
+        .ticker(ticker)
+        .recordStats()
+        .build();
+    this.timeToLive = timeToLive.toNanos();
+    this.ticker = ticker;
+  }
+
+  /**
+   * Returns the cached resource if it is still fresh.
+   *
+   * @param key resource key
+   * @return cached resource or {@code null} if it is missing or stale.
+   */
+  public V getIfFresh(K key) {
+    CachedResource<V> cached = resources.getIfPresent(key);
+
+    if (null != cached && isFresh(cached)) {
+      hits.increment();
+      return cached.getValue();
+    }
+
+    return null;
+  }
+
+  /**
+   * Returns the resource with the given key. Fresh entries are served from the cache. Otherwise
+   * the loader is called with the ETag of the stale entry (or {@code null} if there is none) and
+   * the response is used to either refresh or replace the cached resource.
+   *
+   * @param key    resource key
+   * @param loader function that retrieves the resource using the given ETag
+   * @return the resource or {@code null} if it does not exist.
+   */
+  public V get(K key, Function<String, ServiceResponse<V>> loader) {
+    CachedResource<V> cached = resources.getIfPresent(key);
+
+    if (null != cached && isFresh(cached)) {
+      hits.increment();
+      return cached.getValue();
+    }
+
+    misses.increment();
+    ServiceResponse<V> response = loader.apply(null == cached ? null : cached.getETag());
+
+    if (!response.isModified() && null != cached) {
+      revalidations.increment();
+      resources.put(key, new CachedResource<>(cached.getValue(), cached.getETag(), now()));
+      return cached.getValue();
+    }
+
+    V value = response.getBody();
+
+    if (null == value) {
+      resources.invalidate(key);
+    } else {
+      put(key, value, null == response.getHeaders() ? null : response.getETag());
+    }
+
+    return value;
+  }
+
+  /**
+   * Stores the given resource in the cache.
+   */
+  public void put(K key, V value, String etag) {
+    resources.put(key, new CachedResource<>(value, etag, now()));
+  }
+
+  public void invalidate(K key) {
+    resources.invalidate(key);
+  }
+
+  public void invalidateAll() {
+    resources.invalidateAll();
+  }
+
+  /**
+   * Returns current hit, miss, revalidation and eviction counters of this cache.
+   */
+  public Stats getStats() {
+    return new Stats(hits.sum(), misses.sum(), revalidations.sum(),
+        resources.stats().evictionCount(), resources.size());
+  }
+
+  private boolean isFresh(CachedResource<V> cached) {
+    return now() - cached.getFetchedAt() < timeToLive;
+  }
+
+  private long now() {
+    return ticker.read();
+  }
+
+  @Getter
+  @AllArgsConstructor
+  private static final class CachedResource<V> {
+    private final V value;
+    private final String eTag;
+    private final long fetchedAt;
+  }
+
+  @Getter
+  @ToString
+  @AllArgsConstructor
+  public static final class Stats {
+    private final long hitCount;
+    private final long missCount;
+    private final long revalidationCount;
+    private final long evictionCount;
+    private final long size;
+  }
+}
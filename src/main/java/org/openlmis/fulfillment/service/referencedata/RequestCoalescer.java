@@ -0,0 +1,104 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Coalesces concurrent calls for the same key. The first caller executes the call and every
+ * caller that arrives while it is in flight waits for and shares its result (or exception).
+ * All callers get the same result instance, so it must not be modified.
+ *
+ * @param <K> type of the call key, for example a resource URL
+ * @param <V> type of the call result
+ */
+public class RequestCoalescer<K, V> {
+  private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+  private final LongAdder executed = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+
+  /**
+   * Executes the given call unless a call with the same key is already in flight, in which case
+   * the result of that call is returned.
+   *
+   * @param key  call key
+   * @param call the call to execute
+   * @return result of the call.
+   */
+  public V execute(K key, Supplier<V> call) {
+    CompletableFuture<V> future = new CompletableFuture<>();
+    CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+
+    if (null != existing) {
+      coalesced.increment();
+      return await(existing);
+    }
+
+    executed.increment();
+
+    try {
+      V result = call.get();
+      future.complete(result);
+      return result;
+    } catch (Throwable ex) {
+      // waiting callers must be released by errors too
+      future.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      inFlight.remove(key, future);
+    }
+  }
+
+  /**
+   * Returns how many calls were executed and how many were saved by sharing an in-flight call.
+   */
+  public Stats getStats() {
+    return new Stats(executed.sum(), coalesced.sum());
+  }
+
+  private V await(CompletableFuture<V> future) {
+    try {
+      return future.join();
+    } catch (CompletionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+
+      if (ex.getCause() instanceof Error) {
+        throw (Error) ex.getCause();
+      }
+
+      throw ex;
+    }
+  }
+
+  @Getter
+  @ToString
+  @AllArgsConstructor
+  public static final class Stats {
+    private final long executedCount;
+    private final long coalescedCount;
+  }
+}
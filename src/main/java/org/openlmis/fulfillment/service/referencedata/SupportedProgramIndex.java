@@ -0,0 +1,195 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compact index of the programs supported by facilities. For each facility only the ids of its
+ * supported programs and whether they are fulfilled locally are kept. Once an entry is older
+ * than the staleness window it is still served while a single revalidation runs in the
+ * background.
+ */
+@Component
+public class SupportedProgramIndex {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SupportedProgramIndex.class);
+
+  private Cache<UUID, Entry> entries = CacheBuilder.newBuilder().build();
+
+  @Autowired
+  private FacilityReferenceDataService facilityReferenceDataService;
+
+  @Autowired(required = false)
+  @Qualifier("referenceDataRefreshExecutor")
+  private Executor refreshExecutor;
+
+  @Value("${referencedata.cache.maxSize}")
+  private long maxSize;
+
+  @Value("${referencedata.supportedPrograms.staleness}")
+  private long staleness;
+
+  /**
+   * Creates the index. The least recently used facilities are removed above the maximum size.
+   */
+  @PostConstruct
+  public void init() {
+    entries = CacheBuilder
+        .newBuilder()
+        .maximumSize(maxSize)
+        .build();
+  }
+
+  /**
+   * Returns how the given program is supported by the given facility.
+   *
+   * @param facilityId facility ID
+   * @param programId  program ID
+   * @return the program support, never null.
+   */
+  public ProgramSupport get(UUID facilityId, UUID programId) {
+    return getEntry(facilityId).get(programId);
+  }
+
+  /**
+   * Adds the facilities that are not indexed yet with a single request.
+   *
+   * @param facilityIds facility IDs
+   */
+  public void prefetch(Collection<UUID> facilityIds) {
+    List<UUID> missing = facilityIds
+        .stream()
+        .filter(facilityId -> null == entries.getIfPresent(facilityId))
+        .collect(Collectors.toList());
+
+    if (missing.isEmpty()) {
+      return;
+    }
+
+    for (FacilityDto facility : facilityReferenceDataService.findByIds(missing)) {
+      entries.put(facility.getId(), new Entry(facility));
+    }
+  }
+
+  private Entry getEntry(UUID facilityId) {
+    Entry current = entries.getIfPresent(facilityId);
+
+    if (null == current) {
+      // concurrent requests for the same facility are coalesced by the reference data service
+      Entry loaded = load(facilityId);
+      entries.put(facilityId, loaded);
+      return loaded;
+    }
+
+    if (current.isStale() && current.refreshing.compareAndSet(false, true)) {
+      if (null == refreshExecutor) {
+        refresh(facilityId, current);
+        return entries.asMap().getOrDefault(facilityId, current);
+      }
+
+      // the executor runs the refresh in the calling thread when its queue is full
+      refreshExecutor.execute(() -> refresh(facilityId, current));
+    }
+
+    return current;
+  }
+
+  private void refresh(UUID facilityId, Entry current) {
+    try {
+      entries.put(facilityId, load(facilityId));
+    } catch (RuntimeException ex) {
+      LOGGER.warn("Unable to refresh supported programs of facility {}", facilityId, ex);
+    } finally {
+      current.refreshing.set(false);
+    }
+  }
+
+  private Entry load(UUID facilityId) {
+    FacilityDto facility = facilityReferenceDataService.findOne(facilityId);
+
+    if (null == facility) {
+      LOGGER.warn("Facility with id {} does not exist, it supports no programs", facilityId);
+    }
+
+    return new Entry(facility);
+  }
+
+  /**
+   * Describes how a program is supported by a facility.
+   */
+  public enum ProgramSupport {
+    NOT_SUPPORTED, SUPPORTED, LOCALLY_FULFILLED;
+
+    public boolean isSupported() {
+      return this != NOT_SUPPORTED;
+    }
+
+    public boolean isLocallyFulfilled() {
+      return this == LOCALLY_FULFILLED;
+    }
+  }
+
+  /**
+   * Immutable supported programs of a single facility.
+   */
+  private final class Entry {
+    private final Map<UUID, ProgramSupport> programs;
+    private final long fetchedAt = System.nanoTime();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    Entry(FacilityDto facility) {
+      Map<UUID, ProgramSupport> supported = new HashMap<>();
+
+      if (null != facility && null != facility.getSupportedPrograms()) {
+        for (ProgramDto program : facility.getSupportedPrograms()) {
+          if (null != program.getId()) {
+            supported.put(program.getId(), program.isSupportLocallyFulfilled()
+                ? ProgramSupport.LOCALLY_FULFILLED
+                : ProgramSupport.SUPPORTED);
+          }
+        }
+      }
+
+      this.programs = Collections.unmodifiableMap(supported);
+    }
+
+    ProgramSupport get(UUID programId) {
+      return programs.getOrDefault(programId, ProgramSupport.NOT_SUPPORTED);
+    }
+
+    boolean isStale() {
+      return System.nanoTime() - fetchedAt >= TimeUnit.SECONDS.toNanos(staleness);
+    }
+  }
+}
@@ -15,6 +15,7 @@
 
 package org.openlmis.fulfillment.service.referencedata;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -25,6 +26,7 @@ import org.openlmis.fulfillment.service.ResultDto;
 import org.openlmis.fulfillment.service.ServiceResponse;
 import org.openlmis.fulfillment.service.request.RequestParameters;
 import org.openlmis.fulfillment.util.BooleanUtils;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
@@ -32,6 +34,9 @@ import org.springframework.util.CollectionUtils;
 @Service
 public class UserReferenceDataService extends BaseReferenceDataService<UserDto> {
 
+  @Value("${referencedata.cache.users.timeToLive}")
+  private long cacheTimeToLive;
+
   @Override
   protected String getUrl() {
     return "/api/users/";
@@ -47,6 +52,11 @@ public class UserReferenceDataService extends BaseReferenceDataService<UserDto>
     return UserDto[].class;
   }
 
+  @Override
+  protected Duration getCacheTimeToLive() {
+    return Duration.ofSeconds(cacheTimeToLive);
+  }
+
   /**
    * This method retrieves a user with given name.
    *
@@ -93,6 +103,7 @@ public class UserReferenceDataService extends BaseReferenceDataService<UserDto>
     if (CollectionUtils.isEmpty(ids)) {
       return Collections.emptyList();
     }
-    return getPage(RequestParameters.init().set("id", ids)).getContent();
+    return findByIds(ids, UserDto::getId,
+        missing -> getPage(RequestParameters.init().set("id", missing)).getContent());
   }
 }
@@ -0,0 +1,71 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.request;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the state of the outbound HTTP connection pool.
+ */
+@Component
+public class OutboundConnectionPoolMonitor {
+
+  @Autowired
+  private PoolingHttpClientConnectionManager outboundConnectionManager;
+
+  /**
+   * Returns the number of leased, pending and idle connections in the whole pool.
+   */
+  public Stats getTotalStats() {
+    return Stats.of(outboundConnectionManager.getTotalStats());
+  }
+
+  /**
+   * Returns the number of leased, pending and idle connections per host.
+   */
+  public Map<String, Stats> getRouteStats() {
+    return outboundConnectionManager
+        .getRoutes()
+        .stream()
+        .collect(Collectors.toMap(
+            route -> route.getTargetHost().toURI(),
+            route -> Stats.of(outboundConnectionManager.getStats(route)),
+            (left, right) -> left));
+  }
+
+  @Getter
+  @ToString
+  @AllArgsConstructor
+  public static final class Stats {
+    private final int leased;
+    private final int pending;
+    private final int idle;
+    private final int max;
+
+    static Stats of(PoolStats stats) {
+      return new Stats(stats.getLeased(), stats.getPending(), stats.getAvailable(),
+          stats.getMax());
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.request;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Configures the HTTP client used for all outbound calls to other services. Connections are
+ * kept alive and pooled per host, so the TCP/TLS setup is not repeated for every request.
+ */
+@Configuration
+public class OutboundHttpClientConfiguration {
+
+  @Value("${http.client.connectTimeout}")
+  private int connectTimeout;
+
+  @Value("${http.client.readTimeout}")
+  private int readTimeout;
+
+  @Value("${http.client.connectionRequestTimeout}")
+  private int connectionRequestTimeout;
+
+  @Value("${http.client.pool.maxTotal}")
+  private int maxTotal;
+
+  @Value("${http.client.pool.maxPerRoute}")
+  private int maxPerRoute;
+
+  @Value("${http.client.pool.idleTimeout}")
+  private long idleTimeout;
+
+  /**
+   * Creates the connection pool shared by all outbound calls.
+   */
+  @Bean(destroyMethod = "close")
+  public PoolingHttpClientConnectionManager outboundConnectionManager() {
+    PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager();
+    manager.setMaxTotal(maxTotal);
+    manager.setDefaultMaxPerRoute(maxPerRoute);
+    return manager;
+  }
+
+  /**
+   * Creates the HTTP client that leases connections from the shared pool.
+   */
+  @Bean(destroyMethod = "close")
+  public CloseableHttpClient outboundHttpClient(
+      PoolingHttpClientConnectionManager outboundConnectionManager) {
+    RequestConfig requestConfig = RequestConfig
+        .custom()
+        .setConnectTimeout(connectTimeout)
+        .setSocketTimeout(readTimeout)
+        .setConnectionRequestTimeout(connectionRequestTimeout)
+        .build();
+
+    return HttpClients
+        .custom()
+        .setConnectionManager(outboundConnectionManager)
+        .setDefaultRequestConfig(requestConfig)
+        .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+        .evictExpiredConnections()
+        .evictIdleConnections(idleTimeout, TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  /**
+   * Creates the rest template used by services that call other services.
+   */
+  @Bean
+  public RestTemplate outboundRestTemplate(CloseableHttpClient outboundHttpClient) {
+    return new RestTemplate(new HttpComponentsClientHttpRequestFactory(outboundHttpClient));
+  }
+
+}
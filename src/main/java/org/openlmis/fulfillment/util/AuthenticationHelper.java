@@ -17,7 +17,9 @@ package org.openlmis.fulfillment.util;
 
 import static org.openlmis.fulfillment.i18n.MessageKeys.USER_NOT_FOUND;
 
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import org.openlmis.fulfillment.service.referencedata.RightDto;
 import org.openlmis.fulfillment.service.referencedata.RightReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.UserDto;
@@ -26,9 +28,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 @Component
 public class AuthenticationHelper {
+  private static final String CURRENT_USER_ATTRIBUTE =
+      AuthenticationHelper.class.getName() + ".currentUser";
+
+  // rights are static reference data so they are retrieved only once
+  private final Map<String, RightDto> rights = new ConcurrentHashMap<>();
 
   @Autowired
   private UserReferenceDataService userReferenceDataService;
@@ -38,7 +47,8 @@ public class AuthenticationHelper {
 
   /**
    * Method returns current user based on Spring context
-   * and fetches his data from reference-data service.
+   * and fetches his data from reference-data service. The user is retrieved once per HTTP
+   * request, across requests it is served from the reference data cache.
    *
    * @return UserDto entity of current user.
    * @throws AuthenticationException if user cannot be found.
@@ -50,7 +60,12 @@ public class AuthenticationHelper {
 
     if (!authentication.isClientOnly()) {
       UUID userId = (UUID) authentication.getPrincipal();
-      user = userReferenceDataService.findOne(userId);
+      user = getRequestUser(userId);
+
+      if (user == null) {
+        user = userReferenceDataService.findOne(userId);
+        setRequestUser(user);
+      }
 
       if (user == null) {
         throw new AuthenticationException(USER_NOT_FOUND, userId.toString());
@@ -68,12 +83,39 @@ public class AuthenticationHelper {
    * @throws AuthenticationException if right cannot be found.
    */
   public RightDto getRight(String name) {
-    RightDto right = rightReferenceDataService.findRight(name);
+    RightDto right = rights.get(name);
 
     if (null == right) {
-      throw new AuthenticationException("Right with name \"" + name + "\" not found");
+      // the remote call is made outside of the map so that it does not block other rights
+      right = rightReferenceDataService.findRight(name);
+
+      if (null == right) {
+        throw new AuthenticationException("Right with name \"" + name + "\" not found");
+      }
+
+      RightDto existing = rights.putIfAbsent(name, right);
+      right = null == existing ? right : existing;
     }
 
     return right;
   }
+
+  private UserDto getRequestUser(UUID userId) {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+    Object user = null == attributes
+        ? null
+        : attributes.getAttribute(CURRENT_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+
+    return user instanceof UserDto && userId.equals(((UserDto) user).getId())
+        ? (UserDto) user
+        : null;
+  }
+
+  private void setRequestUser(UserDto user) {
+    RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+
+    if (null != attributes && null != user) {
+      attributes.setAttribute(CURRENT_USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+    }
+  }
 }
@@ -119,4 +119,27 @@ public final class Pagination {
     return new PageImpl<>(subList, pageable, fullListSize);
   }
 
+  /**
+   * Returns the page size that should be used to retrieve a page together with a probe element
+   * that tells if there is a next page.
+   */
+  public static int getProbeSize(Pageable pageable) {
+    int pageSize = getPageSize(pageable);
+    return pageSize == NO_PAGINATION ? pageSize : pageSize + 1;
+  }
+
+  /**
+   * Returns the Page for the elements retrieved with the {@link #getProbeSize(Pageable)} limit.
+   * The probe element is not part of the page and the total number of elements is only large
+   * enough to tell if there is a next page.
+   */
+  public static <T> Page<T> getProbedPage(List<T> probed, Pageable pageable) {
+    int pageSize = getPageSize(pageable);
+    long offset = (long) getPageNumber(pageable) * pageSize;
+    boolean hasNext = probed.size() > pageSize;
+    List<T> content = hasNext ? probed.subList(0, pageSize) : probed;
+
+    return getPage(content, pageable, offset + content.size() + (hasNext ? 1 : 0));
+  }
+
 }
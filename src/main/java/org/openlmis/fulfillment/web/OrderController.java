@@ -26,24 +26,35 @@ import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletResponse;
 import org.openlmis.fulfillment.domain.CreationDetails;
 import org.openlmis.fulfillment.domain.FileTemplate;
 import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderSummary;
 import org.openlmis.fulfillment.domain.Shipment;
 import org.openlmis.fulfillment.domain.ShipmentLineItem;
 import org.openlmis.fulfillment.domain.Template;
 import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.service.CountMode;
 import org.openlmis.fulfillment.service.ExporterBuilder;
+import org.openlmis.fulfillment.service.ExternalIdFilter;
 import org.openlmis.fulfillment.service.FileTemplateService;
 import org.openlmis.fulfillment.service.JasperReportsViewService;
+import org.openlmis.fulfillment.service.OrderArchiveExporter;
 import org.openlmis.fulfillment.service.OrderCsvHelper;
+import org.openlmis.fulfillment.service.OrderSearchCursor;
 import org.openlmis.fulfillment.service.OrderSearchParams;
 import org.openlmis.fulfillment.service.OrderService;
 import org.openlmis.fulfillment.service.PermissionService;
@@ -72,7 +83,10 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.stereotype.Controller;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -92,16 +106,23 @@ public class OrderController extends BaseController {
   private static final XLogger XLOGGER = XLoggerFactory.getXLogger(OrderController.class);
   private static final String DISPOSITION_BASE = "attachment; filename=";
   private static final String TYPE_CSV = "csv";
+  static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
   @Autowired
   private OrderRepository orderRepository;
 
+  @Autowired
+  private ExternalIdFilter externalIdFilter;
+
   @Autowired
   private OrderService orderService;
 
   @Autowired
   private OrderCsvHelper csvHelper;
 
+  @Autowired
+  private OrderArchiveExporter archiveExporter;
+
   @Autowired
   private FileTemplateService fileTemplateService;
 
@@ -132,6 +153,9 @@ public class OrderController extends BaseController {
   @Autowired
   private ExporterBuilder exporter;
 
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
   @Value("${groupingSeparator}")
   private String groupingSeparator;
 
@@ -153,13 +177,24 @@ public class OrderController extends BaseController {
   @ResponseBody
   public OrderDto createOrder(@RequestBody OrderDto orderDto, OAuth2Authentication authentication) {
     if (orderDto.getExternalId() != null) {
-      Order existingOrder = orderRepository.findByExternalId(orderDto.getExternalId());
+      Order existingOrder = externalIdFilter.findOrder(orderDto.getExternalId());
       if (existingOrder != null) {
         throw new ValidationException(ORDER_EXISTS);
       }
     }
 
-    Order order = createSingleOrder(orderDto, authentication);
+    Order order;
+
+    try {
+      order = createSingleOrder(orderDto, authentication);
+    } catch (RuntimeException ex) {
+      if (ExternalIdFilter.isExternalIdConflict(ex)) {
+        throw new ValidationException(ex, ORDER_EXISTS);
+      }
+
+      throw ex;
+    }
+
     return orderDtoBuilder.build(order);
   }
 
@@ -253,36 +288,151 @@ public class OrderController extends BaseController {
   @RequestMapping(value = "/orders/batch", method = RequestMethod.POST)
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
   public Iterable<BasicOrderDto> batchCreateOrders(@RequestBody List<OrderDto> orders,
       OAuth2Authentication authentication) {
-    List<Order> newOrders = orders
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+    try {
+      return transaction.execute(status ->
+          batchCreateOrders(orders, authentication, externalIdFilter::findOrders));
+    } catch (RuntimeException ex) {
+      if (!ExternalIdFilter.isExternalIdConflict(ex)) {
+        throw ex;
+      }
+
+      // some of the orders were created by another instance since the filter was synced
+      XLOGGER.info("Orders with the given external ids already exist, looking them up");
+      return transaction.execute(status ->
+          batchCreateOrders(orders, authentication, orderRepository::findByExternalIdIn));
+    }
+  }
+
+  private List<BasicOrderDto> batchCreateOrders(List<OrderDto> orders,
+      OAuth2Authentication authentication,
+      Function<Collection<UUID>, List<Order>> existingOrders) {
+    XLOGGER.entry(orders.size());
+    Profiler profiler = new Profiler("BATCH_CREATE_ORDERS");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("FIND_EXISTING_ORDERS");
+    Set<UUID> externalIds = orders
+        .stream()
+        .map(OrderDto::getExternalId)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet());
+    Map<UUID, Order> ordersByExternalId = new HashMap<>();
+
+    if (!externalIds.isEmpty()) {
+      existingOrders
+          .apply(externalIds)
+          .forEach(order -> ordersByExternalId.putIfAbsent(order.getExternalId(), order));
+    }
+
+    // an external id that appears more than once is created only for its first occurrence
+    Set<UUID> newExternalIds = new HashSet<>();
+    List<OrderDto> newOrderDtos = orders
         .stream()
-        .map(order -> createSingleOrder(order, authentication))
+        .filter(dto -> null == dto.getExternalId()
+            || (!ordersByExternalId.containsKey(dto.getExternalId())
+            && newExternalIds.add(dto.getExternalId())))
         .collect(Collectors.toList());
-    return basicOrderDtoBuilder.build(newOrders);
+
+    profiler.start("CHECK_PERMISSIONS");
+    UserDto currentUser = authenticationHelper.getCurrentUser();
+
+    for (OrderDto orderDto : newOrderDtos) {
+      orderDto.setId(null);
+
+      if (!authentication.isClientOnly()) {
+        permissionService.canEditOrder(orderDto);
+      }
+    }
+
+    profiler.start("CREATE_ORDERS");
+    List<Order> newOrders = orderService.createOrders(newOrderDtos,
+        orderDto -> null == currentUser
+            ? orderDto.getLastUpdater().getId()
+            : currentUser.getId());
+
+    profiler.start("CREATE_SHIPMENTS");
+    List<Shipment> shipments = newOrders
+        .stream()
+        .filter(Order::isExternal)
+        .map(this::buildExternalShipment)
+        .collect(Collectors.toList());
+
+    if (!shipments.isEmpty()) {
+      shipmentService.createAll(shipments);
+    }
+
+    profiler.start("BUILD_RESPONSE");
+    Iterator<Order> created = newOrders.iterator();
+    List<Order> result = new ArrayList<>(orders.size());
+
+    for (OrderDto orderDto : orders) {
+      if (null == orderDto.getExternalId()) {
+        result.add(created.next());
+      } else {
+        result.add(ordersByExternalId
+            .computeIfAbsent(orderDto.getExternalId(), externalId -> created.next()));
+      }
+    }
+
+    List<BasicOrderDto> dtos = basicOrderDtoBuilder.build(result);
+
+    profiler.stop().log();
+    XLOGGER.exit(dtos.size());
+    return dtos;
   }
 
   /**
-   * Search through orders with given parameters.
+   * Search through orders with given parameters. If the cursor parameter is present (even empty)
+   * orders are paginated with keyset pagination: the page number is ignored, orders are sorted
+   * from the newest one, the total number of orders is not counted and the cursor of the next
+   * page is returned in the {@value #NEXT_CURSOR_HEADER} header. Otherwise the count parameter
+   * defines how the total number of orders is calculated (exact by default).
    *
    * @param params   order search params
    * @param pageable pagination parameters
+   * @param cursor   cursor returned with the previous page, empty for the first page
+   * @param count    count mode: exact, estimated or none
+   * @param response HttpServletResponse object
    * @return OrderDtos.
    */
   @GetMapping("/orders")
   @ResponseBody
-  public Page<BasicOrderDto> searchOrders(OrderSearchParams params, Pageable pageable) {
+  public Page<BasicOrderDto> searchOrders(OrderSearchParams params, Pageable pageable,
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @RequestParam(name = "count", required = false) String count,
+      HttpServletResponse response) {
     Profiler profiler = new Profiler("SEARCH_ORDERS");
     profiler.setLogger(XLOGGER);
 
     profiler.start("SEARCH_ORDERS_IN_SERVICE");
-    Page<Order> orders = orderService.searchOrders(params, pageable);
+    Page<OrderSummary> orders;
+
+    if (null == cursor) {
+      CountMode countMode = CountMode.fromString(count, CountMode.EXACT);
+      orders = orderService.searchOrderSummaries(params, pageable, countMode);
+      response.setHeader(CountMode.HEADER, countMode.toHeaderValue());
+    } else {
+      orders = orderService.seekOrders(params, OrderSearchCursor.decode(cursor),
+          pageable.getPageSize());
+      response.setHeader(CountMode.HEADER, CountMode.NONE.toHeaderValue());
+
+      if (orders.hasNext()) {
+        List<OrderSummary> content = orders.getContent();
+        response.setHeader(NEXT_CURSOR_HEADER,
+            OrderSearchCursor.of(content.get(content.size() - 1)).encode());
+      }
+    }
 
     profiler.start("TO_DTO");
-    List<BasicOrderDto> dtos = basicOrderDtoBuilder.build(orders.getContent());
+    List<BasicOrderDto> dtos = basicOrderDtoBuilder.buildFromSummaries(orders.getContent());
     Page<BasicOrderDto> dtoPage = new PageImpl<>(
         dtos,
-        pageable, orders.getTotalElements());
+        null == cursor ? pageable : orders.getPageable(), orders.getTotalElements());
 
     profiler.stop().log();
     return dtoPage;
@@ -435,6 +585,58 @@ public class OrderController extends BaseController {
     }
   }
 
+  /**
+   * Exporting many orders to a ZIP archive of csv files, one file per order. Orders are chosen
+   * by the id parameters or, if there are none, by the search parameters. The archive is
+   * streamed to the response while the orders are rendered. The orders are read in short
+   * transactions of the exporter, so no transaction is held while the response is written.
+   *
+   * @param params   order search params, used if no ids are given
+   * @param ids      UUIDs of orders to export
+   * @param type     export type
+   * @param response HttpServletResponse object
+   */
+  @GetMapping("/orders/export")
+  @ResponseStatus(HttpStatus.OK)
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public void exportAll(OrderSearchParams params,
+      @RequestParam(name = "id", required = false) Set<UUID> ids,
+      @RequestParam(value = "type", required = false,
+          defaultValue = TYPE_CSV) String type,
+      HttpServletResponse response) throws IOException {
+    if (!TYPE_CSV.equals(type)) {
+      String msg = "Export type: " + type + " not allowed";
+      XLOGGER.warn(msg);
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, msg);
+      return;
+    }
+
+    boolean byIds = null != ids && !ids.isEmpty();
+
+    if (byIds) {
+      archiveExporter.validateOrders(ids);
+    }
+
+    FileTemplate fileTemplate = fileTemplateService.getOrderFileTemplate();
+
+    if (fileTemplate == null) {
+      String msg = "Could not export Orders, because Order Template File not found";
+      XLOGGER.warn(msg);
+      response.sendError(HttpServletResponse.SC_NOT_FOUND, msg);
+      return;
+    }
+
+    response.setContentType("application/zip");
+    response.addHeader(HttpHeaders.CONTENT_DISPOSITION,
+        DISPOSITION_BASE + fileTemplate.getFilePrefix() + "orders.zip");
+
+    if (byIds) {
+      archiveExporter.exportOrders(ids, fileTemplate, response.getOutputStream());
+    } else {
+      archiveExporter.exportOrders(params, fileTemplate, response.getOutputStream());
+    }
+  }
+
   /**
    * Manually retry for transferring order file via FTP after updating or checking the FTP
    * transfer properties.
@@ -464,15 +666,7 @@ public class OrderController extends BaseController {
     Profiler profiler = new Profiler("CREATE_SINGLE_ORDER");
     profiler.setLogger(XLOGGER);
 
-    profiler.start("CHECK_ORDER_EXISTS");
-    if (orderDto.getExternalId() != null) {
-      Order existingOrder = orderRepository.findByExternalId(orderDto.getExternalId());
-      if (existingOrder != null) {
-        stopProfiler(profiler, orderDto);
-        return existingOrder;
-      }
-    }
-
+    // the caller has already checked that there is no order with the same external id
     orderDto.setId(null);
 
     profiler.start("CHECK_PERMISSIONS");
@@ -491,25 +685,26 @@ public class OrderController extends BaseController {
     Order order = orderService.createOrder(orderDto, userId);
 
     if (order.isExternal()) {
-      profiler.start("GET_SHIPMENT_LINE_ITEMS");
-      List<ShipmentLineItem> items = order
-          .getOrderLineItems()
-          .stream()
-          .map(line -> new ShipmentLineItem(line.getOrderable(), line.getOrderedQuantity()))
-          .collect(Collectors.toList());
-
       profiler.start("CREATE_SHIPMENT");
-      Shipment shipment = new Shipment(
-          order, new CreationDetails(order.getCreatedById(), order.getCreatedDate()),
-          null, items, ImmutableMap.of("external", "true"));
-
-      shipmentService.create(shipment);
+      shipmentService.create(buildExternalShipment(order));
     }
 
     stopProfiler(profiler, orderDto);
     return order;
   }
 
+  private Shipment buildExternalShipment(Order order) {
+    List<ShipmentLineItem> items = order
+        .getOrderLineItems()
+        .stream()
+        .map(line -> new ShipmentLineItem(line.getOrderable(), line.getOrderedQuantity()))
+        .collect(Collectors.toList());
+
+    return new Shipment(
+        order, new CreationDetails(order.getCreatedById(), order.getCreatedDate()),
+        null, items, ImmutableMap.of("external", "true"));
+  }
+
   void stopProfiler(Profiler profiler, Object... exitArgs) {
     profiler.stop().log();
     XLOGGER.exit(exitArgs);
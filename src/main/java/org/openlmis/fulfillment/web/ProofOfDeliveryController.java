@@ -29,6 +29,7 @@ import java.util.UUID;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import javax.servlet.http.HttpServletResponse;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderStatus;
 import org.openlmis.fulfillment.domain.ProofOfDelivery;
@@ -39,6 +40,7 @@ import org.openlmis.fulfillment.domain.UpdateDetails;
 import org.openlmis.fulfillment.domain.VersionEntityReference;
 import org.openlmis.fulfillment.repository.OrderRepository;
 import org.openlmis.fulfillment.repository.ProofOfDeliveryRepository;
+import org.openlmis.fulfillment.service.CountMode;
 import org.openlmis.fulfillment.service.FulfillmentNotificationService;
 import org.openlmis.fulfillment.service.JasperReportsViewService;
 import org.openlmis.fulfillment.service.PermissionService;
@@ -141,7 +143,8 @@ public class ProofOfDeliveryController extends BaseController {
   private String timeZoneId;
 
   /**
-   * Get all proofs of delivery.
+   * Get all proofs of delivery. The count parameter (exact, estimated or none) defines how the
+   * total number of proofs of delivery is calculated.
    *
    * @return proofs of delivery.
    */
@@ -150,13 +153,18 @@ public class ProofOfDeliveryController extends BaseController {
   public Page<ProofOfDeliveryDto> getAllProofsOfDelivery(
       @RequestParam(required = false) UUID orderId,
       @RequestParam(required = false) UUID shipmentId,
-      Pageable pageable) {
+      @RequestParam(required = false) String count,
+      Pageable pageable, HttpServletResponse response) {
     XLOGGER.entry(shipmentId, pageable);
     Profiler profiler = new Profiler("GET_PODS");
     profiler.setLogger(XLOGGER);
 
+    CountMode countMode = CountMode.fromString(count, CountMode.EXACT);
+
     profiler.start("SEARCH_PODS_SERVICE");
-    Page<ProofOfDelivery> result = proofOfDeliveryService.search(shipmentId, orderId, pageable);
+    Page<ProofOfDelivery> result = proofOfDeliveryService
+        .search(shipmentId, orderId, pageable, countMode);
+    response.setHeader(CountMode.HEADER, countMode.toHeaderValue());
 
     profiler.start("BUILD_DTO_PAGE");
     Page<ProofOfDeliveryDto> dtoPage = Pagination.getPage(dtoBuilder.build(result.getContent()),
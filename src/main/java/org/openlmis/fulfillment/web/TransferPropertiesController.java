@@ -134,7 +134,7 @@ public class TransferPropertiesController extends BaseController {
 
     if (!Objects.equals(entity.getClass(), toUpdate.getClass())) {
       LOGGER.debug("Removed old Transfer Properties with id: {}", id);
-      transferPropertiesRepository.delete(toUpdate);
+      transferPropertiesService.delete(toUpdate);
       transferPropertiesRepository.flush();
     }
 
@@ -143,7 +143,7 @@ public class TransferPropertiesController extends BaseController {
       return ResponseEntity.badRequest().body(errors);
     }
 
-    toUpdate = transferPropertiesRepository.save(entity);
+    toUpdate = transferPropertiesService.update(entity);
 
     LOGGER.debug("Updated Transfer Properties with id: {}", toUpdate.getId());
 
@@ -185,7 +185,7 @@ public class TransferPropertiesController extends BaseController {
     if (toDelete == null) {
       return ResponseEntity.notFound().build();
     } else {
-      transferPropertiesRepository.delete(toDelete);
+      transferPropertiesService.delete(toDelete);
       return ResponseEntity.noContent().build();
     }
   }
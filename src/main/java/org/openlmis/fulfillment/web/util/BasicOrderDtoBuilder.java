@@ -15,14 +15,16 @@
 
 package org.openlmis.fulfillment.web.util;
 
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderSummary;
 import org.openlmis.fulfillment.service.referencedata.FacilityDto;
 import org.openlmis.fulfillment.service.referencedata.FacilityReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.PeriodReferenceDataService;
@@ -71,10 +73,13 @@ public class BasicOrderDtoBuilder {
     Profiler profiler = new Profiler("GET_REFERENCE_DATA");
     profiler.setLogger(XLOGGER);
 
-    Map<UUID, FacilityDto> facilities = getFacilities(orders);
-    Map<UUID, ProgramDto> programs = getPrograms(orders);
-    Map<UUID, ProcessingPeriodDto> periods = getPeriods(orders);
-    Map<UUID, UserDto> users = getUsers(orders);
+    Map<UUID, FacilityDto> facilities = getFacilities(orders.stream()
+        .flatMap(order -> Stream.of(order.getFacilityId(), order.getSupplyingFacilityId(),
+            order.getReceivingFacilityId(), order.getRequestingFacilityId())));
+    Map<UUID, ProgramDto> programs = getPrograms(orders.stream().map(Order::getProgramId));
+    Map<UUID, ProcessingPeriodDto> periods = getPeriods(orders.stream()
+        .map(Order::getProcessingPeriodId));
+    Map<UUID, UserDto> users = getUsers(orders.stream().map(Order::getCreatedById));
 
     List<BasicOrderDto> dtos = orders.stream()
         .map(order -> build(order, facilities, programs, periods, users))
@@ -85,6 +90,50 @@ public class BasicOrderDtoBuilder {
     return dtos;
   }
 
+  /**
+   * Create a list of BasicOrderDtos based on data from the list of {@link OrderSummary}s.
+   *
+   * @param orders a list of order summaries
+   * @return a list of basic order dtos
+   */
+  public List<BasicOrderDto> buildFromSummaries(List<OrderSummary> orders) {
+    XLOGGER.entry(orders);
+    Profiler profiler = new Profiler("GET_REFERENCE_DATA");
+    profiler.setLogger(XLOGGER);
+
+    Map<UUID, FacilityDto> facilities = getFacilities(orders.stream()
+        .flatMap(order -> Stream.of(order.getFacilityId(), order.getSupplyingFacilityId(),
+            order.getReceivingFacilityId(), order.getRequestingFacilityId())));
+    Map<UUID, ProgramDto> programs = getPrograms(orders.stream()
+        .map(OrderSummary::getProgramId));
+    Map<UUID, ProcessingPeriodDto> periods = getPeriods(orders.stream()
+        .map(OrderSummary::getProcessingPeriodId));
+    Map<UUID, UserDto> users = getUsers(orders.stream().map(OrderSummary::getCreatedById));
+
+    profiler.start("BUILD_DTOS");
+    List<BasicOrderDto> dtos = new ArrayList<>(orders.size());
+
+    for (OrderSummary order : orders) {
+      BasicOrderDto orderDto = new BasicOrderDto();
+      order.export(orderDto);
+      orderDto.setServiceUrl(serviceUrl);
+
+      orderDto.setFacility(facilities.get(order.getFacilityId()));
+      orderDto.setRequestingFacility(facilities.get(order.getRequestingFacilityId()));
+      orderDto.setReceivingFacility(facilities.get(order.getReceivingFacilityId()));
+      orderDto.setSupplyingFacility(facilities.get(order.getSupplyingFacilityId()));
+      orderDto.setProgram(programs.get(order.getProgramId()));
+      orderDto.setProcessingPeriod(periods.get(order.getProcessingPeriodId()));
+      orderDto.setCreatedBy(users.get(order.getCreatedById()));
+
+      dtos.add(orderDto);
+    }
+
+    profiler.stop().log();
+    XLOGGER.exit(orders);
+    return dtos;
+  }
+
   /**
    * Create a new instance of BasicOrderDto based on data from {@link Order}.
    *
@@ -129,31 +178,24 @@ public class BasicOrderDtoBuilder {
     return orderDto;
   }
 
-  private Map<UUID, FacilityDto> getFacilities(List<Order> orders) {
-    Set<UUID> facilityIds = new HashSet<>();
-    for (Order order : orders) {
-      facilityIds.add(order.getFacilityId());
-      facilityIds.add(order.getSupplyingFacilityId());
-      facilityIds.add(order.getReceivingFacilityId());
-      facilityIds.add(order.getRequestingFacilityId());
-    }
+  private Map<UUID, FacilityDto> getFacilities(Stream<UUID> ids) {
+    Set<UUID> facilityIds = ids.collect(Collectors.toSet());
     return facilityReferenceDataService.findByIds(facilityIds).stream().collect(Collectors.toMap(
         BaseDto::getId,
         Function.identity()
     ));
   }
 
-  private Map<UUID, ProgramDto> getPrograms(List<Order> orders) {
-    Set<UUID> programIds = orders.stream().map(Order::getProgramId).collect(Collectors.toSet());
+  private Map<UUID, ProgramDto> getPrograms(Stream<UUID> ids) {
+    Set<UUID> programIds = ids.collect(Collectors.toSet());
     return programReferenceDataService.findByIds(programIds).stream().collect(Collectors.toMap(
         BaseDto::getId,
         Function.identity()
     ));
   }
 
-  private Map<UUID, ProcessingPeriodDto> getPeriods(List<Order> orders) {
-    Set<UUID> periodIds = orders.stream().map(Order::getProcessingPeriodId)
-        .collect(Collectors.toSet());
+  private Map<UUID, ProcessingPeriodDto> getPeriods(Stream<UUID> ids) {
+    Set<UUID> periodIds = ids.collect(Collectors.toSet());
     return periodReferenceDataService.findByIds(periodIds).stream()
         .collect(Collectors.toMap(
         BaseDto::getId,
@@ -161,8 +203,8 @@ public class BasicOrderDtoBuilder {
     ));
   }
 
-  private Map<UUID, UserDto> getUsers(List<Order> orders) {
-    Set<UUID> userIds = orders.stream().map(Order::getCreatedById).collect(Collectors.toSet());
+  private Map<UUID, UserDto> getUsers(Stream<UUID> ids) {
+    Set<UUID> userIds = ids.collect(Collectors.toSet());
     return userReferenceDataService.findByIds(userIds).stream().collect(Collectors.toMap(
         BaseDto::getId,
         Function.identity()
@@ -0,0 +1 @@
+CREATE INDEX orders_createddate_id_idx ON fulfillment.orders (createddate DESC, id DESC);
@@ -0,0 +1,16 @@
+CREATE TABLE order_post_processing_tasks (
+    id uuid NOT NULL,
+    orderid uuid NOT NULL,
+    status character varying(255) NOT NULL,
+    step character varying(255) NOT NULL,
+    attempts integer NOT NULL,
+    nextattemptdate timestamp with time zone NOT NULL,
+    lasterror text,
+    createddate timestamp with time zone NOT NULL,
+    CONSTRAINT order_post_processing_tasks_pkey PRIMARY KEY (id)
+);
+
+CREATE INDEX order_post_processing_tasks_pending_idx
+    ON order_post_processing_tasks (nextattemptdate) WHERE status = 'PENDING';
+
+CREATE INDEX order_post_processing_tasks_orderid_idx ON order_post_processing_tasks (orderid);
@@ -0,0 +1,3 @@
+-- Each value is the first order number of a block allocated by a single instance, so the
+-- sequence is incremented by the block size (SequenceOrderNumberGenerator.BLOCK_SIZE)
+CREATE SEQUENCE order_number_blocks START WITH 1 INCREMENT BY 100 NO CYCLE;
@@ -0,0 +1,51 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.domain;
+
+import static org.junit.Assert.assertEquals;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import org.junit.Test;
+import org.openlmis.fulfillment.OrderDataBuilder;
+import org.openlmis.fulfillment.testutils.ToStringTestUtils;
+import org.openlmis.fulfillment.web.util.BasicOrderDto;
+
+public class OrderSummaryTest {
+
+  @Test
+  public void equalsContract() {
+    EqualsVerifier.forClass(OrderSummary.class).verify();
+  }
+
+  @Test
+  public void shouldImplementToString() {
+    OrderSummary summary = OrderSummary.of(new OrderDataBuilder().build());
+    ToStringTestUtils.verify(OrderSummary.class, summary);
+  }
+
+  @Test
+  public void shouldExportSameValuesAsOrder() {
+    Order order = new OrderDataBuilder().build();
+
+    BasicOrderDto expected = new BasicOrderDto();
+    order.export(expected);
+
+    BasicOrderDto actual = new BasicOrderDto();
+    OrderSummary.of(order).export(actual);
+
+    assertEquals(expected, actual);
+  }
+}
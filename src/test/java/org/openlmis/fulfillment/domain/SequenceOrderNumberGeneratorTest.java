@@ -0,0 +1,69 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.repository.OrderRepository;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SequenceOrderNumberGeneratorTest {
+
+  @Mock
+  private OrderRepository orderRepository;
+
+  @InjectMocks
+  private SequenceOrderNumberGenerator sequenceOrderNumberGenerator;
+
+  private Order order = mock(Order.class);
+
+  @Test
+  public void shouldHandOutNumbersFromReservedBlocks() {
+    when(orderRepository.nextOrderNumberBlock()).thenReturn(1L, 101L);
+
+    for (int i = 0; i < SequenceOrderNumberGenerator.BLOCK_SIZE; ++i) {
+      assertEquals(1 + i, sequenceOrderNumberGenerator.nextNumber());
+    }
+
+    assertEquals("0000002T", sequenceOrderNumberGenerator.generate(order));
+    assertEquals("0000002U", sequenceOrderNumberGenerator.generate(order));
+
+    verify(orderRepository, times(2)).nextOrderNumberBlock();
+  }
+
+  @Test
+  public void shouldEncodeNumberAsPaddedBase36() {
+    assertEquals("00000000", SequenceOrderNumberGenerator.encode(0));
+    assertEquals("0000000Z", SequenceOrderNumberGenerator.encode(35));
+    assertEquals("00000010", SequenceOrderNumberGenerator.encode(36));
+    assertEquals("ZZZZZZZZ", SequenceOrderNumberGenerator.encode(2821109907455L));
+  }
+
+  @Test
+  public void shouldNotTruncateNumbersThatDoNotFitIntoPaddedLength() {
+    assertEquals("100000000", SequenceOrderNumberGenerator.encode(2821109907456L));
+    assertEquals("1Y2P0IJ32E8E7", SequenceOrderNumberGenerator.encode(Long.MAX_VALUE));
+  }
+}
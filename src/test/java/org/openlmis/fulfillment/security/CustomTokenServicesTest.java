@@ -15,10 +15,18 @@
 
 package org.openlmis.fulfillment.security;
 
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.HashMap;
 import java.util.Map;
 import org.junit.Before;
@@ -33,6 +41,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.oauth2.common.exceptions.InvalidTokenException;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.DefaultAccessTokenConverter;
 import org.springframework.web.client.RestTemplate;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -88,4 +97,93 @@ public class CustomTokenServicesTest {
     this.customTokenServices.setRestTemplate(restTemplate);
     this.customTokenServices.loadAuthentication(ACCESS_TOKEN);
   }
+
+  @Test
+  public void shouldServeValidTokenFromCache() {
+    Instant now = Instant.now();
+    customTokenServices = createCachingTokenServices(now);
+    mockCheckTokenResponse(activeTokenResponse(now.plusSeconds(600)));
+
+    customTokenServices.loadAuthentication(ACCESS_TOKEN);
+    OAuth2Authentication authentication = customTokenServices.loadAuthentication(ACCESS_TOKEN);
+
+    assertNotNull(authentication);
+    verifyCheckTokenCalls(1);
+    assertThat(customTokenServices.getCacheStats().getHitCount(), is(1L));
+    assertThat(customTokenServices.getCacheStats().getMissCount(), is(1L));
+  }
+
+  @Test
+  public void shouldNotServeExpiredTokenFromCache() {
+    Instant now = Instant.now();
+    customTokenServices = createCachingTokenServices(now);
+    mockCheckTokenResponse(activeTokenResponse(now.minusSeconds(1)));
+
+    customTokenServices.loadAuthentication(ACCESS_TOKEN);
+    customTokenServices.loadAuthentication(ACCESS_TOKEN);
+
+    verifyCheckTokenCalls(2);
+  }
+
+  @Test
+  public void shouldServeInvalidTokenFromCache() {
+    Instant now = Instant.now();
+    customTokenServices = createCachingTokenServices(now);
+
+    Map responseAttributes = new HashMap();
+    responseAttributes.put("error", "no_active_token");
+    mockCheckTokenResponse(responseAttributes);
+
+    loadInvalidAuthentication();
+    loadInvalidAuthentication();
+
+    verifyCheckTokenCalls(INVALID_TOKEN_RETRY_LIMIT + 1);
+    assertThat(customTokenServices.getCacheStats().getHitCount(), is(1L));
+  }
+
+  private CustomTokenServices createCachingTokenServices(Instant now) {
+    CustomTokenServices tokenServices = new CustomTokenServices(
+        INVALID_TOKEN_RETRY_LIMIT, 10, Duration.ofMinutes(5), Duration.ofSeconds(5));
+    tokenServices.setClientId(CLIENT_ID);
+    tokenServices.setClientSecret(CLIENT_SECRET);
+    tokenServices.setCheckTokenEndpointUrl(CLIENT_CHECK_TOKEN_ENDPOINT_URI);
+    tokenServices.setAccessTokenConverter(new DefaultAccessTokenConverter());
+    tokenServices.setClock(Clock.fixed(now, ZoneOffset.UTC));
+    tokenServices.setRestTemplate(restTemplate);
+
+    return tokenServices;
+  }
+
+  private Map activeTokenResponse(Instant expiration) {
+    Map responseAttributes = new HashMap();
+    responseAttributes.put("active", true);
+    responseAttributes.put("client_id", CLIENT_ID);
+    responseAttributes.put("exp", expiration.getEpochSecond());
+
+    return responseAttributes;
+  }
+
+  private void mockCheckTokenResponse(Map responseAttributes) {
+    ResponseEntity<Map> response = new ResponseEntity<>(responseAttributes, HttpStatus.OK);
+
+    when(restTemplate.exchange(
+        anyString(), Matchers.any(HttpMethod.class), Matchers.any(HttpEntity.class),
+        Matchers.any(Class.class)
+    )).thenReturn(response);
+  }
+
+  private void verifyCheckTokenCalls(int count) {
+    verify(restTemplate, times(count)).exchange(
+        anyString(), Matchers.any(HttpMethod.class), Matchers.any(HttpEntity.class),
+        Matchers.any(Class.class)
+    );
+  }
+
+  private void loadInvalidAuthentication() {
+    try {
+      customTokenServices.loadAuthentication(ACCESS_TOKEN);
+    } catch (InvalidTokenException ex) {
+      // expected
+    }
+  }
 }
@@ -16,10 +16,12 @@
 package org.openlmis.fulfillment.service;
 
 import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -28,8 +30,15 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.ImmutableList;
+import java.lang.reflect.Array;
 import java.net.URI;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.Getter;
 import org.junit.After;
 import org.junit.Before;
@@ -133,6 +142,48 @@ public abstract class BaseCommunicationServiceTest<T> {
     verify(authService, times(2)).obtainAccessToken();
   }
 
+  @Test
+  public void shouldSendSplitRequestsConcurrentlyAndMergeResults() throws Exception {
+    // given
+    BaseCommunicationService<T> service = prepareService();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    ReflectionTestUtils.setField(service, "maxUrlLength", 200);
+    ReflectionTestUtils.setField(service, "splitRequestExecutor", executor);
+
+    List<UUID> ids = Stream
+        .generate(UUID::randomUUID)
+        .limit(20)
+        .collect(Collectors.toList());
+
+    T[] body = (T[]) Array.newInstance(service.getResultClass(), 1);
+    body[0] = generateInstance();
+
+    ResponseEntity<T[]> response = mock(ResponseEntity.class);
+    when(response.getBody()).thenReturn(body);
+    when(restTemplate.exchange(
+        any(URI.class), eq(HttpMethod.GET), any(HttpEntity.class),
+        eq(service.getArrayResultClass())
+    )).thenReturn(response);
+
+    // when
+    Collection<T> found;
+
+    try {
+      found = service.findAll("", RequestParameters.init().set("id", ids));
+    } finally {
+      executor.shutdown();
+    }
+
+    // then
+    verify(restTemplate, atLeast(2)).exchange(
+        any(URI.class), eq(HttpMethod.GET), any(HttpEntity.class),
+        eq(service.getArrayResultClass())
+    );
+
+    // every chunk returns the same instance which is merged into a single result
+    assertThat(found, hasSize(1));
+  }
+
   protected abstract BaseCommunicationService<T> getService();
 
   protected abstract T generateInstance();
@@ -0,0 +1,47 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.openlmis.fulfillment.web.ValidationException;
+
+public class CountModeTest {
+
+  @Test
+  public void shouldParseCountModeIgnoringCase() {
+    assertEquals(CountMode.EXACT, CountMode.fromString("exact", CountMode.NONE));
+    assertEquals(CountMode.ESTIMATED, CountMode.fromString("Estimated", CountMode.NONE));
+    assertEquals(CountMode.NONE, CountMode.fromString(" NONE ", CountMode.EXACT));
+  }
+
+  @Test
+  public void shouldReturnDefaultModeIfValueIsBlank() {
+    assertEquals(CountMode.EXACT, CountMode.fromString(null, CountMode.EXACT));
+    assertEquals(CountMode.NONE, CountMode.fromString("", CountMode.NONE));
+  }
+
+  @Test(expected = ValidationException.class)
+  public void shouldThrowExceptionIfValueIsInvalid() {
+    CountMode.fromString("approximately", CountMode.EXACT);
+  }
+
+  @Test
+  public void shouldReturnHeaderValue() {
+    assertEquals("estimated", CountMode.ESTIMATED.toHeaderValue());
+  }
+}
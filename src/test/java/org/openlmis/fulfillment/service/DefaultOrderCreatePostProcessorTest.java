@@ -16,11 +16,16 @@
 package org.openlmis.fulfillment.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.openlmis.fulfillment.i18n.MessageKeys.ORDER_TRANSFER_FAILED;
 
+import java.time.ZonedDateTime;
 import java.util.UUID;
 import org.junit.Before;
 import org.junit.Test;
@@ -29,8 +34,8 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.openlmis.fulfillment.domain.FtpTransferProperties;
 import org.openlmis.fulfillment.domain.Order;
-import org.openlmis.fulfillment.domain.OrderStatus;
-import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
+import org.openlmis.fulfillment.domain.OrderPostProcessingTask;
+import org.springframework.test.util.ReflectionTestUtils;
 
 public class DefaultOrderCreatePostProcessorTest {
 
@@ -38,7 +43,7 @@ public class DefaultOrderCreatePostProcessorTest {
   private static final String stringReturnedFalse = "false";
 
   @Mock
-  private TransferPropertiesRepository transferPropertiesRepository;
+  private TransferPropertiesRegistry transferPropertiesRegistry;
 
   @Mock
   private FulfillmentNotificationService notificationService;
@@ -64,8 +69,7 @@ public class DefaultOrderCreatePostProcessorTest {
     when(configurationSettingService
         .getAllowFtpTransferOnRequisitionToOrder())
         .thenReturn(stringReturnedTrue);
-    when(transferPropertiesRepository
-        .findFirstByFacilityIdAndTransferType(any(),any()))
+    when(transferPropertiesRegistry.get(any(), any()))
         .thenReturn(ftpTransferProperties);
     when(configurationSettingService.getAllowSendingEmailOnRequisitionToOrder())
         .thenReturn(stringReturnedTrue);
@@ -87,6 +91,40 @@ public class DefaultOrderCreatePostProcessorTest {
     verify(notificationService).sendOrderCreatedNotification(order);
   }
 
+  @Test
+  public void processShouldOnlyTransferOrderInTransferStep() {
+    // given
+    OrderPostProcessingTask task = OrderPostProcessingTask.newInstance(order.getId(),
+        ZonedDateTime.now());
+
+    // when
+    defaultOrderCreatePostProcessor.process(order, task);
+
+    // then
+    verify(orderStorage).store(order);
+    verify(orderSender).send(order);
+    verify(orderStorage).delete(order);
+
+    verify(notificationService, never()).sendOrderCreatedNotification(any(Order.class));
+  }
+
+  @Test
+  public void processShouldOnlyNotifyInNotificationStep() {
+    // given
+    ZonedDateTime now = ZonedDateTime.now();
+    OrderPostProcessingTask task = OrderPostProcessingTask.newInstance(order.getId(), now);
+    task.nextStep(now);
+
+    // when
+    defaultOrderCreatePostProcessor.process(order, task);
+
+    // then
+    verify(orderStorage, never()).store(any(Order.class));
+    verify(orderSender, never()).send(any(Order.class));
+
+    verify(notificationService).sendOrderCreatedNotification(order);
+  }
+
   @Test
   public void processShouldNotStoreSendOrderIfAllowFtpTransferIsFalse() {
     // given
@@ -124,19 +162,109 @@ public class DefaultOrderCreatePostProcessorTest {
 
 
   @Test
-  public void processShouldSaveOrderAndNotDeleteFileIfFtpSendFailure() {
+  public void processShouldThrowAndNotDeleteFileIfFtpSendFailure() {
     when(orderSender.send(any(Order.class))).thenReturn(false);
 
     // when
-    defaultOrderCreatePostProcessor.process(order);
+    try {
+      defaultOrderCreatePostProcessor.process(order);
+      fail("the post processing should fail to be retried");
+    } catch (OrderTransferException ex) {
+      // then
+      assertEquals(ORDER_TRANSFER_FAILED, ex.getMessageKey());
+    }
 
-    // then
-    assertEquals(OrderStatus.TRANSFER_FAILED, order.getStatus());
+    assertNull(order.getStatus());
 
     verify(orderStorage).store(order);
     verify(orderSender).send(order);
     verify(orderStorage, never()).delete(order);
 
-    verify(notificationService).sendOrderCreatedNotification(order);
+    verify(notificationService, never()).sendOrderCreatedNotification(any(Order.class));
+  }
+
+  @Test
+  public void processShouldSendOrderWithoutStoringItIfStreamingIsEnabled() {
+    ReflectionTestUtils.setField(defaultOrderCreatePostProcessor, "streamOrderFiles", true);
+    when(orderSender.sendDirectly(any(Order.class))).thenReturn(true);
+
+    // when
+    defaultOrderCreatePostProcessor.process(order);
+
+    // then
+    verify(orderSender).sendDirectly(order);
+    verify(orderSender, never()).send(any(Order.class));
+    verify(orderStorage, never()).store(any(Order.class));
+    verify(orderStorage, never()).delete(any(Order.class));
+  }
+
+  @Test
+  public void processShouldStoreOrderAndThrowIfStreamedFtpSendFailure() {
+    ReflectionTestUtils.setField(defaultOrderCreatePostProcessor, "streamOrderFiles", true);
+    when(orderSender.sendDirectly(any(Order.class))).thenReturn(false);
+
+    // when
+    try {
+      defaultOrderCreatePostProcessor.process(order);
+      fail("the post processing should fail to be retried");
+    } catch (OrderTransferException ex) {
+      // then
+      assertEquals(ORDER_TRANSFER_FAILED, ex.getMessageKey());
+    }
+
+    assertNull(order.getStatus());
+
+    verify(orderSender).sendDirectly(order);
+    verify(orderStorage).store(order);
+    verify(orderStorage, never()).delete(any(Order.class));
+  }
+
+  @Test
+  public void processShouldDeleteStoredOrderIfStreamedFtpSendSucceedsOnRetry() {
+    ReflectionTestUtils.setField(defaultOrderCreatePostProcessor, "streamOrderFiles", true);
+    when(orderSender.sendDirectly(any(Order.class))).thenReturn(false, true);
+
+    ZonedDateTime now = ZonedDateTime.now();
+    OrderPostProcessingTask task = OrderPostProcessingTask.newInstance(order.getId(), now);
+
+    // when
+    task.claim(now);
+    try {
+      defaultOrderCreatePostProcessor.process(order, task);
+      fail("the post processing should fail to be retried");
+    } catch (OrderTransferException ex) {
+      // then
+      assertEquals(ORDER_TRANSFER_FAILED, ex.getMessageKey());
+    }
+
+    verify(orderStorage).store(order);
+    verify(orderStorage, never()).delete(any(Order.class));
+
+    // when
+    task.claim(now);
+    defaultOrderCreatePostProcessor.process(order, task);
+
+    // then
+    verify(orderSender, times(2)).sendDirectly(order);
+    verify(orderStorage).store(order);
+    verify(orderStorage).delete(order);
+  }
+
+  @Test
+  public void processShouldNotDeleteOrderIfStreamedFtpSendSucceedsOnFirstAttempt() {
+    ReflectionTestUtils.setField(defaultOrderCreatePostProcessor, "streamOrderFiles", true);
+    when(orderSender.sendDirectly(any(Order.class))).thenReturn(true);
+
+    ZonedDateTime now = ZonedDateTime.now();
+    OrderPostProcessingTask task = OrderPostProcessingTask.newInstance(order.getId(), now);
+
+    // when
+    task.claim(now);
+    defaultOrderCreatePostProcessor.process(order, task);
+
+    // then
+    verify(orderSender).sendDirectly(order);
+    verify(orderStorage, never()).store(any(Order.class));
+    verify(orderStorage, never()).delete(any(Order.class));
   }
 }
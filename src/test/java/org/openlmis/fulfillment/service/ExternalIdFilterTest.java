@@ -0,0 +1,150 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.OrderDataBuilder;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ExternalIdFilterTest {
+
+  @Mock
+  private OrderRepository orderRepository;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @InjectMocks
+  private ExternalIdFilter externalIdFilter;
+
+  private Order order = new OrderDataBuilder().build();
+  private UUID knownId = order.getExternalId();
+  private UUID unknownId = UUID.randomUUID();
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(externalIdFilter, "capacity", 1000L);
+    ReflectionTestUtils.setField(externalIdFilter, "falsePositiveRate", 0.001);
+    ReflectionTestUtils.setField(externalIdFilter, "syncInterval", 60L);
+  }
+
+  @Test
+  public void shouldSkipLookupOfUnknownExternalId() {
+    build();
+
+    assertThat(externalIdFilter.findOrder(unknownId), is(nullValue()));
+
+    verify(orderRepository, never()).findByExternalId(any(UUID.class));
+    assertEquals(1, externalIdFilter.getStats().getSkippedLookups());
+  }
+
+  @Test
+  public void shouldLookUpKnownExternalId() {
+    build();
+    when(orderRepository.findByExternalId(knownId)).thenReturn(order);
+
+    assertThat(externalIdFilter.findOrder(knownId), is(order));
+
+    assertEquals(1, externalIdFilter.getStats().getLookups());
+    assertEquals(0, externalIdFilter.getStats().getFalsePositives());
+  }
+
+  @Test
+  public void shouldLookUpAddedExternalIdAndCountFalsePositive() {
+    build();
+    externalIdFilter.add(unknownId);
+
+    assertThat(externalIdFilter.findOrder(unknownId), is(nullValue()));
+
+    verify(orderRepository).findByExternalId(unknownId);
+    assertEquals(1, externalIdFilter.getStats().getFalsePositives());
+    assertEquals(1.0, externalIdFilter.getStats().getFalsePositiveRate(), 0);
+  }
+
+  @Test
+  public void shouldLookUpOnlyPossiblyKnownExternalIdsInBulk() {
+    build();
+    when(orderRepository.findByExternalIdIn(singletonList(knownId)))
+        .thenReturn(singletonList(order));
+
+    assertThat(externalIdFilter.findOrders(asList(knownId, unknownId)), contains(order));
+
+    assertEquals(1, externalIdFilter.getStats().getSkippedLookups());
+    assertEquals(1, externalIdFilter.getStats().getLookups());
+  }
+
+  @Test
+  public void shouldAddOrdersCreatedByOtherInstancesOnceFilterIsStale() {
+    build();
+    ReflectionTestUtils.setField(externalIdFilter, "syncedAt", ZonedDateTime.now().minusHours(1));
+    when(orderRepository.findExternalIdsCreatedSince(any(ZonedDateTime.class)))
+        .thenReturn(singletonList(unknownId));
+
+    externalIdFilter.findOrder(unknownId);
+
+    verify(orderRepository).findByExternalId(unknownId);
+  }
+
+  @Test
+  public void shouldLookUpEveryExternalIdIfFilterIsDisabled() {
+    ReflectionTestUtils.setField(externalIdFilter, "capacity", 0L);
+    externalIdFilter.run();
+
+    externalIdFilter.findOrder(unknownId);
+
+    verify(orderRepository).findByExternalId(unknownId);
+    verify(orderRepository, never()).streamAllExternalIds();
+  }
+
+  @Test
+  public void shouldLookUpEveryExternalIdIfFilterCannotBeBuilt() {
+    when(orderRepository.streamAllExternalIds()).thenThrow(new IllegalStateException());
+    externalIdFilter.run();
+
+    externalIdFilter.findOrder(unknownId);
+
+    verify(orderRepository).findByExternalId(unknownId);
+  }
+
+  private void build() {
+    when(orderRepository.streamAllExternalIds()).thenReturn(Stream.of(knownId));
+    externalIdFilter.run();
+  }
+}
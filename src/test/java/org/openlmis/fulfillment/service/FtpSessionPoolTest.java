@@ -0,0 +1,223 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.net.ftp.FTP;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.domain.FtpProtocol;
+import org.openlmis.fulfillment.domain.FtpTransferProperties;
+import org.springframework.integration.file.remote.session.Session;
+import org.springframework.integration.file.remote.session.SessionFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FtpSessionPoolTest {
+  private static final String FILE_NAME = "OORDER-1.csv";
+
+  @Mock
+  private SessionFactory<Object> sessionFactory;
+
+  @Mock
+  private Session<Object> session;
+
+  private FtpSessionPool pool;
+  private FtpTransferProperties ftp = new FtpTransferProperties();
+
+  @Before
+  public void setUp() {
+    ftp.setFacilityId(UUID.randomUUID());
+    ftp.setProtocol(FtpProtocol.FTP);
+    ftp.setServerHost("host");
+    ftp.setServerPort(21);
+    ftp.setRemoteDirectory("remote/dir");
+    ftp.setUsername("username");
+    ftp.setPassword("password");
+    ftp.setPassiveMode(true);
+
+    pool = spy(new FtpSessionPool());
+    ReflectionTestUtils.setField(pool, "poolSize", 2);
+    ReflectionTestUtils.setField(pool, "waitTimeout", 1000L);
+    ReflectionTestUtils.setField(pool, "idleTimeout", 300L);
+    doReturn(sessionFactory).when(pool).createSessionFactory(any(FtpTransferProperties.class));
+
+    when(sessionFactory.getSession()).thenReturn(session);
+    when(session.isOpen()).thenReturn(true);
+    when(session.test()).thenReturn(true);
+  }
+
+  @Test
+  public void shouldUploadOrdersOfSameServerOverOneSession() throws IOException {
+    pool.upload(ftp, FILE_NAME, content("first"));
+    pool.upload(ftp, "OORDER-2.csv", content("second"));
+
+    verify(sessionFactory).getSession();
+    verify(session).write(any(InputStream.class), eq("remote/dir/" + FILE_NAME));
+    verify(session).write(any(InputStream.class), eq("remote/dir/OORDER-2.csv"));
+  }
+
+  @Test
+  public void shouldCreateRemoteDirectoriesOnce() throws IOException {
+    pool.upload(ftp, FILE_NAME, content("first"));
+    pool.upload(ftp, FILE_NAME, content("second"));
+
+    verify(session).mkdir("remote");
+    verify(session).mkdir("remote/dir");
+  }
+
+  @Test
+  public void shouldNotReuseSessionAfterFailedUpload() throws IOException {
+    doThrow(new IOException("test purpose"))
+        .doNothing()
+        .when(session).write(any(InputStream.class), anyString());
+
+    try {
+      pool.upload(ftp, FILE_NAME, content("first"));
+      fail("the upload should fail");
+    } catch (IOException ex) {
+      pool.upload(ftp, FILE_NAME, content("second"));
+    }
+
+    verify(sessionFactory, times(2)).getSession();
+    verify(session).close();
+  }
+
+  @Test
+  public void shouldCreateRemoteDirectoriesAgainAfterFailedUpload() throws IOException {
+    doThrow(new IOException("test purpose"))
+        .doNothing()
+        .when(session).write(any(InputStream.class), anyString());
+
+    try {
+      pool.upload(ftp, FILE_NAME, content("first"));
+      fail("the upload should fail");
+    } catch (IOException ex) {
+      pool.upload(ftp, FILE_NAME, content("second"));
+    }
+
+    verify(session, times(2)).mkdir("remote");
+    verify(session, times(2)).mkdir("remote/dir");
+  }
+
+  @Test
+  public void shouldSetTimeoutsOfFtpSessions() {
+    Object factory = new FtpSessionPool().createSessionFactory(ftp);
+
+    assertEquals(10_000, ReflectionTestUtils.getField(factory, "connectTimeout"));
+    assertEquals(300_000, ReflectionTestUtils.getField(factory, "defaultTimeout"));
+    assertEquals(30_000, ReflectionTestUtils.getField(factory, "dataTimeout"));
+  }
+
+  @Test
+  public void shouldTransferFilesOfFtpSessionsInAsciiMode() {
+    Object factory = new FtpSessionPool().createSessionFactory(ftp);
+
+    assertEquals(FTP.ASCII_FILE_TYPE, ReflectionTestUtils.getField(factory, "fileType"));
+  }
+
+  @Test
+  public void shouldSetTimeoutOfSftpSessions() {
+    ftp.setProtocol(FtpProtocol.SFTP);
+
+    Object factory = new FtpSessionPool().createSessionFactory(ftp);
+
+    assertEquals(300_000, ReflectionTestUtils.getField(factory, "timeout"));
+  }
+
+  @Test
+  public void shouldCloseSessionsOfIdleServers() throws IOException {
+    pool.upload(ftp, FILE_NAME, content("first"));
+    ReflectionTestUtils.setField(pool, "idleTimeout", 0L);
+
+    pool.evictIdle();
+
+    assertEquals(0, pool.getServerCount());
+    verify(session).close();
+  }
+
+  @Test
+  public void shouldKeepSessionsOfRecentlyUsedServers() throws IOException {
+    pool.upload(ftp, FILE_NAME, content("first"));
+
+    pool.evictIdle();
+
+    assertEquals(1, pool.getServerCount());
+  }
+
+  @Test
+  public void shouldUseSeparateSessionsForDifferentServers() throws IOException {
+    FtpTransferProperties other = new FtpTransferProperties();
+    other.setFacilityId(UUID.randomUUID());
+    other.setProtocol(FtpProtocol.FTP);
+    other.setServerHost("other");
+    other.setServerPort(21);
+    other.setUsername("username");
+    other.setPassword("password");
+
+    pool.upload(ftp, FILE_NAME, content("first"));
+    pool.upload(other, FILE_NAME, content("second"));
+
+    assertEquals(2, pool.getServerCount());
+    verify(session).write(any(InputStream.class), eq(FILE_NAME));
+  }
+
+  @Test
+  public void shouldRecordStatsPerFacility() throws IOException {
+    doAnswer(invocation -> IOUtils.toByteArray((InputStream) invocation.getArguments()[0]))
+        .doThrow(new IOException("test purpose"))
+        .when(session).write(any(InputStream.class), anyString());
+
+    pool.upload(ftp, FILE_NAME, content("content"));
+
+    try {
+      pool.upload(ftp, FILE_NAME, content("content"));
+      fail("the upload should fail");
+    } catch (IOException ex) {
+      FtpSessionPool.Stats stats = pool.getStats(ftp.getFacilityId());
+      assertEquals(1, stats.getUploads());
+      assertEquals(1, stats.getFailures());
+      assertEquals(7, stats.getBytes());
+    }
+
+    assertEquals(0, pool.getStats(UUID.randomUUID()).getUploads());
+  }
+
+  private InputStream content(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+}
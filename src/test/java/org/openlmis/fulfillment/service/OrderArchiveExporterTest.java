@@ -0,0 +1,213 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.OrderDataBuilder;
+import org.openlmis.fulfillment.domain.FileTemplate;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderSummary;
+import org.openlmis.fulfillment.domain.TemplateType;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.web.MissingPermissionException;
+import org.openlmis.fulfillment.web.OrderNotFoundException;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderArchiveExporterTest {
+
+  @Mock
+  private OrderRepository orderRepository;
+
+  @Mock
+  private OrderService orderService;
+
+  @Mock
+  private OrderCsvHelper csvHelper;
+
+  @Mock
+  private PermissionService permissionService;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @InjectMocks
+  private OrderArchiveExporter exporter;
+
+  private ExecutorService executor = Executors.newFixedThreadPool(2);
+  private FileTemplate template = new FileTemplate("O", false, TemplateType.ORDER,
+      new ArrayList<>());
+
+  private Order first = new OrderDataBuilder().withOrderCode("ORDER-1").build();
+  private Order second = new OrderDataBuilder().withOrderCode("ORDER-2").build();
+  private Order third = new OrderDataBuilder().withOrderCode("ORDER-3").build();
+
+  @Before
+  public void setUp() throws IOException {
+    ReflectionTestUtils.setField(exporter, "orderExportExecutor", executor);
+    ReflectionTestUtils.setField(exporter, "concurrency", 2);
+    ReflectionTestUtils.setField(exporter, "pageSize", 2);
+
+    doAnswer(invocation -> {
+      Order order = (Order) invocation.getArguments()[0];
+      ((Writer) invocation.getArguments()[2]).write("code," + order.getOrderCode());
+      return null;
+    }).when(csvHelper).writeCsvFile(any(Order.class), eq(template), any(Writer.class));
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldExportOrdersWithGivenIdsInGivenOrder() throws IOException {
+    // orders of a page can be returned by the database in any order
+    when(orderRepository.findWithLineItemsByIdIn(asList(third.getId(), first.getId())))
+        .thenReturn(asList(first, third));
+    when(orderRepository.findWithLineItemsByIdIn(singletonList(second.getId())))
+        .thenReturn(singletonList(second));
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    exporter.exportOrders(asList(third.getId(), first.getId(), second.getId()), template,
+        output);
+
+    Map<String, String> entries = readEntries(output);
+    assertThat(entries.keySet(), contains("OORDER-3.csv", "OORDER-1.csv", "OORDER-2.csv"));
+    assertEquals("code,ORDER-1", entries.get("OORDER-1.csv"));
+  }
+
+  @Test
+  public void shouldExportAllPagesOfSearchedOrders() throws IOException {
+    OrderSearchParams params = new OrderSearchParams();
+    when(orderService.seekOrders(eq(params), any(OrderSearchCursor.class), anyInt()))
+        .thenReturn(new PageImpl<>(singletonList(OrderSummary.of(third))));
+    when(orderService.seekOrders(params, null, 2))
+        .thenReturn(new PageImpl<>(asList(OrderSummary.of(first), OrderSummary.of(second)),
+            PageRequest.of(0, 2), 3));
+    when(orderRepository.findWithLineItemsByIdIn(asList(first.getId(), second.getId())))
+        .thenReturn(asList(first, second));
+    when(orderRepository.findWithLineItemsByIdIn(singletonList(third.getId())))
+        .thenReturn(singletonList(third));
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    exporter.exportOrders(params, template, output);
+
+    assertThat(readEntries(output).keySet(),
+        contains("OORDER-1.csv", "OORDER-2.csv", "OORDER-3.csv"));
+    verify(orderService).seekOrders(params, OrderSearchCursor.of(OrderSummary.of(second)), 2);
+  }
+
+  @Test
+  public void shouldWriteEmptyArchiveIfNoOrderMatches() throws IOException {
+    OrderSearchParams params = new OrderSearchParams();
+    when(orderService.seekOrders(params, null, 2))
+        .thenReturn(new PageImpl<>(Collections.emptyList()));
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    exporter.exportOrders(params, template, output);
+
+    assertEquals(0, readEntries(output).size());
+    verify(orderRepository, never()).findWithLineItemsByIdIn(any());
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldRethrowErrorOfRenderedFile() throws IOException {
+    when(orderRepository.findWithLineItemsByIdIn(singletonList(first.getId())))
+        .thenReturn(singletonList(first));
+    doThrow(new IOException("test")).when(csvHelper)
+        .writeCsvFile(eq(first), eq(template), any(Writer.class));
+
+    exporter.exportOrders(singletonList(first.getId()), template, new ByteArrayOutputStream());
+  }
+
+  @Test(expected = OrderNotFoundException.class)
+  public void shouldNotValidateMissingOrder() {
+    when(orderRepository.findAllById(asList(first.getId(), second.getId())))
+        .thenReturn(singletonList(first));
+
+    exporter.validateOrders(asList(first.getId(), second.getId()));
+  }
+
+  @Test(expected = MissingPermissionException.class)
+  public void shouldNotValidateOrderThatUserCannotView() {
+    when(orderRepository.findAllById(singletonList(first.getId())))
+        .thenReturn(singletonList(first));
+    doThrow(new MissingPermissionException("test"))
+        .when(permissionService).canViewOrder(first);
+
+    exporter.validateOrders(singletonList(first.getId()));
+  }
+
+  private Map<String, String> readEntries(ByteArrayOutputStream output) throws IOException {
+    Map<String, String> entries = new LinkedHashMap<>();
+
+    try (ZipInputStream zip = new ZipInputStream(
+        new ByteArrayInputStream(output.toByteArray()), StandardCharsets.UTF_8)) {
+      ZipEntry entry;
+
+      while (null != (entry = zip.getNextEntry())) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+
+        while ((read = zip.read(buffer)) > 0) {
+          content.write(buffer, 0, read);
+        }
+
+        entries.put(entry.getName(), new String(content.toByteArray(), StandardCharsets.UTF_8));
+      }
+    }
+
+    return entries;
+  }
+}
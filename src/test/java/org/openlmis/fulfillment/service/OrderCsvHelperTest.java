@@ -15,10 +15,21 @@
 
 package org.openlmis.fulfillment.service;
 
+import static com.google.common.collect.Sets.newHashSet;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
@@ -42,6 +53,7 @@ import org.openlmis.fulfillment.domain.FileTemplate;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderLineItem;
 import org.openlmis.fulfillment.domain.TemplateType;
+import org.openlmis.fulfillment.domain.VersionEntityReference;
 import org.openlmis.fulfillment.service.referencedata.DispensableDto;
 import org.openlmis.fulfillment.service.referencedata.FacilityDto;
 import org.openlmis.fulfillment.service.referencedata.FacilityReferenceDataService;
@@ -86,14 +98,16 @@ public class OrderCsvHelperTest {
     order = createOrder();
 
     UUID facilityId = order.getFacilityId();
-    when(facilityReferenceDataService.findOne(facilityId)).thenReturn(createFacility());
+    when(facilityReferenceDataService.findByIds(singleton(facilityId)))
+        .thenReturn(singletonList(createFacility()));
 
     UUID periodId = order.getProcessingPeriodId();
-    when(periodReferenceDataService.findOne(periodId)).thenReturn(createPeriod());
+    when(periodReferenceDataService.findByIds(singleton(periodId)))
+        .thenReturn(singletonList(createPeriod()));
 
-    UUID productId = order.getOrderLineItems()
-        .get(0).getOrderable().getId();
-    when(orderableReferenceDataService.findOne(productId)).thenReturn(createProduct());
+    VersionEntityReference product = order.getOrderLineItems().get(0).getOrderable();
+    when(orderableReferenceDataService.findByIdentities(singleton(product)))
+        .thenReturn(singletonList(createProduct()));
   }
 
   @Test
@@ -249,6 +263,107 @@ public class OrderCsvHelperTest {
     assertThat(csv, startsWith("01/16," + date));
   }
 
+  @Test
+  public void shouldEvaluateKeyPathsThatAreNotPropertiesWithJxPath() throws IOException {
+    List<FileColumn> fileColumns = new ArrayList<>();
+    fileColumns.add(new FileColumn(true, HEADER_ORDERABLE, PRODUCT,
+        true, 1, null, LINE_ITEM, "orderable/id", null, null, null));
+    fileColumns.add(new FileColumn(true, HEADER_ORDERABLE, PRODUCT,
+        true, 2, null, "lineItemOrderable", "id", null, null, null));
+
+    FileTemplate fileTemplate = new FileTemplate("O", false, TemplateType.ORDER,
+        fileColumns);
+
+    String csv = writeCsvFile(order, fileTemplate);
+
+    UUID orderableId = order.getOrderLineItems().get(0).getOrderable().getId();
+    assertThat(csv, startsWith(orderableId + "," + orderableId));
+  }
+
+  @Test
+  public void shouldNotRemoveExcludedColumnsFromTemplate() throws IOException {
+    List<FileColumn> fileColumns = new ArrayList<>();
+    fileColumns.add(new FileColumn(true, "header.order.number", ORDER_NUMBER,
+        true, 1, null, ORDER, "orderCode", null, null, null));
+    fileColumns.add(new FileColumn(true, "header.order.date", ORDER_DATE,
+        false, 2, "dd/MM/yy", ORDER, "createdDate", null, null, null));
+
+    FileTemplate fileTemplate = new FileTemplate("O", false, TemplateType.ORDER,
+        fileColumns);
+
+    writeCsvFile(order, fileTemplate);
+
+    assertEquals(2, fileTemplate.getFileColumns().size());
+  }
+
+  @Test
+  public void shouldCompileTemplateOnlyOnceUntilItChanges() {
+    List<FileColumn> fileColumns = new ArrayList<>();
+    fileColumns.add(new FileColumn(true, "header.order.number", ORDER_NUMBER,
+        true, 1, null, ORDER, "orderCode", null, null, null));
+
+    FileTemplate fileTemplate = new FileTemplate("O", false, TemplateType.ORDER,
+        fileColumns);
+    FileTemplate sameTemplate = new FileTemplate("O", false, TemplateType.ORDER,
+        new ArrayList<>(fileColumns));
+
+    OrderCsvPlan plan = orderCsvHelper.getPlan(fileTemplate);
+    assertThat(orderCsvHelper.getPlan(sameTemplate), is(sameInstance(plan)));
+
+    fileTemplate.setHeaderInFile(true);
+    assertThat(orderCsvHelper.getPlan(fileTemplate), is(not(sameInstance(plan))));
+  }
+
+  @Test
+  public void shouldRetrieveRelatedObjectsInBulk() throws IOException {
+    ReflectionTestUtils.setField(orderCsvHelper, "includeZeroQuantity", true);
+    OrderLineItem zeroQuantityItem = order.getOrderLineItems().get(1);
+    OrderableDto zeroQuantityProduct = createProduct();
+    zeroQuantityProduct.setId(zeroQuantityItem.getOrderable().getId());
+    zeroQuantityProduct.setProductCode("otherCode");
+
+    when(orderableReferenceDataService.findByIdentities(newHashSet(
+        order.getOrderLineItems().get(0).getOrderable(), zeroQuantityItem.getOrderable())))
+        .thenReturn(asList(createProduct(), zeroQuantityProduct));
+
+    List<FileColumn> fileColumns = new ArrayList<>();
+    fileColumns.add(new FileColumn(true, "header.facility.code", "Facility code",
+        true, 1, null, ORDER, "facilityId", "Facility", "code", null));
+    fileColumns.add(new FileColumn(true, "header.product.code", PRODUCT_CODE,
+        true, 2, null, LINE_ITEM, ORDERABLE, "Orderable", "productCode", null));
+
+    FileTemplate fileTemplate = new FileTemplate("O", false, TemplateType.ORDER,
+        fileColumns);
+
+    String csv = writeCsvFile(order, fileTemplate);
+
+    assertEquals("facilityCode,productCode\r\nfacilityCode,otherCode\r\n", csv);
+    verify(facilityReferenceDataService).findByIds(singleton(order.getFacilityId()));
+    verify(facilityReferenceDataService, never()).findOne(any(UUID.class));
+    verify(orderableReferenceDataService, never()).findOne(any(UUID.class));
+  }
+
+  @Test
+  public void shouldLookUpRelatedObjectThatWasNotRetrievedInBulkOnlyOnce() throws IOException {
+    ReflectionTestUtils.setField(orderCsvHelper, "includeZeroQuantity", true);
+    UUID facilityId = order.getFacilityId();
+    when(facilityReferenceDataService.findByIds(singleton(facilityId)))
+        .thenReturn(emptyList());
+    when(facilityReferenceDataService.findOne(facilityId)).thenReturn(createFacility());
+
+    List<FileColumn> fileColumns = new ArrayList<>();
+    fileColumns.add(new FileColumn(true, "header.facility.code", "Facility code",
+        true, 1, null, ORDER, "facilityId", "Facility", "code", null));
+
+    FileTemplate fileTemplate = new FileTemplate("O", false, TemplateType.ORDER,
+        fileColumns);
+
+    String csv = writeCsvFile(order, fileTemplate);
+
+    assertEquals("facilityCode\r\nfacilityCode\r\n", csv);
+    verify(facilityReferenceDataService, times(1)).findOne(facilityId);
+  }
+
   private String writeCsvFile(Order order, FileTemplate fileTemplate)
       throws IOException {
     StringWriter writer = new StringWriter();
@@ -277,6 +392,7 @@ public class OrderCsvHelperTest {
 
   private FacilityDto createFacility() {
     FacilityDto facility = new FacilityDto();
+    facility.setId(order.getFacilityId());
     facility.setCode("facilityCode");
 
     return facility;
@@ -284,6 +400,7 @@ public class OrderCsvHelperTest {
 
   private ProcessingPeriodDto createPeriod() {
     ProcessingPeriodDto period = new ProcessingPeriodDto();
+    period.setId(order.getProcessingPeriodId());
     period.setName("periodName");
     period.setStartDate(LocalDate.of(2016, Month.JANUARY, 1));
 
@@ -291,7 +408,10 @@ public class OrderCsvHelperTest {
   }
 
   private OrderableDto createProduct() {
+    VersionEntityReference orderable = order.getOrderLineItems().get(0).getOrderable();
     OrderableDto product = new OrderableDto();
+    product.setId(orderable.getId());
+    product.getMeta().setVersionNumber(orderable.getVersionNumber());
     product.setProductCode("productCode");
     product.setFullProductName("productName");
     product.setDispensable(new DispensableDto("each", "Each"));
@@ -0,0 +1,83 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class OrderFileBufferPoolTest {
+
+  @Test
+  public void shouldReuseReleasedBuffer() throws IOException {
+    OrderFileBufferPool pool = new OrderFileBufferPool(1, 1024 * 1024);
+    OrderFileBufferPool.Buffer buffer = pool.borrow();
+    buffer.write("content".getBytes(StandardCharsets.UTF_8));
+
+    pool.release(buffer);
+    OrderFileBufferPool.Buffer reused = pool.borrow();
+
+    assertThat(reused, is(sameInstance(buffer)));
+    assertEquals(0, reused.size());
+  }
+
+  @Test
+  public void shouldNotKeepBuffersBiggerThanMaxSize() throws IOException {
+    OrderFileBufferPool pool = new OrderFileBufferPool(1, 16 * 1024);
+    OrderFileBufferPool.Buffer buffer = pool.borrow();
+    buffer.write(new byte[32 * 1024]);
+
+    pool.release(buffer);
+
+    assertEquals(0, pool.getPooledCount());
+    assertThat(pool.borrow(), is(not(sameInstance(buffer))));
+  }
+
+  @Test
+  public void shouldNotKeepMoreBuffersThanPoolSize() {
+    OrderFileBufferPool pool = new OrderFileBufferPool(1, 1024 * 1024);
+    OrderFileBufferPool.Buffer first = pool.borrow();
+    OrderFileBufferPool.Buffer second = pool.borrow();
+
+    pool.release(first);
+    pool.release(second);
+
+    assertEquals(1, pool.getPooledCount());
+  }
+
+  @Test
+  public void shouldNotPoolBuffersIfSizeIsZero() {
+    OrderFileBufferPool pool = new OrderFileBufferPool(0, 1024 * 1024);
+    pool.release(pool.borrow());
+
+    assertEquals(0, pool.getPooledCount());
+  }
+
+  @Test
+  public void shouldReadContentOfBufferWithoutCopying() throws IOException {
+    OrderFileBufferPool.Buffer buffer = new OrderFileBufferPool(1, 1024).borrow();
+    buffer.write("content".getBytes(StandardCharsets.UTF_8));
+
+    assertEquals("content", IOUtils.toString(buffer.toInputStream(), StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.OrderDataBuilder;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderPostProcessingTask;
+import org.openlmis.fulfillment.domain.OrderPostProcessingTask.Step;
+import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.extension.ExtensionManager;
+import org.openlmis.fulfillment.extension.point.ExtensionPointId;
+import org.openlmis.fulfillment.extension.point.OrderCreatePostProcessor;
+import org.openlmis.fulfillment.repository.OrderPostProcessingTaskRepository;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.util.DateHelper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OrderPostProcessingServiceTest {
+
+  @Mock
+  private OrderPostProcessingTaskRepository orderPostProcessingTaskRepository;
+
+  @Mock
+  private OrderRepository orderRepository;
+
+  @Mock
+  private ExtensionManager extensionManager;
+
+  @Mock
+  private DateHelper dateHelper;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @Mock
+  private OrderCreatePostProcessor orderCreatePostProcessor;
+
+  @InjectMocks
+  private OrderPostProcessingService orderPostProcessingService;
+
+  @Captor
+  private ArgumentCaptor<List<OrderPostProcessingTask>> tasksCaptor;
+
+  private ZonedDateTime now = ZonedDateTime.now();
+  private Order order = new OrderDataBuilder().withStatus(OrderStatus.IN_ROUTE).build();
+  private OrderPostProcessingTask task;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(orderPostProcessingService, "batchSize", 10);
+    ReflectionTestUtils.setField(orderPostProcessingService, "maxAttempts", 3);
+    ReflectionTestUtils.setField(orderPostProcessingService, "retryDelay", 30L);
+    ReflectionTestUtils.setField(orderPostProcessingService, "lease", 600L);
+
+    when(dateHelper.getCurrentDateTimeWithSystemZone()).thenReturn(now);
+
+    task = OrderPostProcessingTask.newInstance(order.getId(), now);
+    task.setId(UUID.randomUUID());
+  }
+
+  @Test
+  public void shouldEnqueueOrders() {
+    orderPostProcessingService.enqueue(Collections.singletonList(order));
+
+    verify(orderPostProcessingTaskRepository).saveAll(tasksCaptor.capture());
+    OrderPostProcessingTask saved = tasksCaptor.getValue().get(0);
+
+    assertEquals(order.getId(), saved.getOrderId());
+    assertEquals(OrderPostProcessingTask.Status.PENDING, saved.getStatus());
+    assertEquals(now, saved.getNextAttemptDate());
+    verifyZeroInteractions(orderCreatePostProcessor);
+  }
+
+  @Test
+  public void shouldProcessClaimedTasks() {
+    givenDueTask();
+    when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+
+    assertEquals(1, orderPostProcessingService.processDueTasks());
+
+    verify(orderCreatePostProcessor).process(order, task);
+    assertEquals(1, task.getAttempts());
+    assertEquals(now.plusSeconds(600), task.getNextAttemptDate());
+  }
+
+  @Test
+  public void shouldMoveTaskToNextStepAfterSuccessfulStep() {
+    givenDueTask();
+    when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+    when(orderPostProcessingTaskRepository.findById(task.getId())).thenReturn(Optional.of(task));
+
+    orderPostProcessingService.processDueTasks();
+
+    assertEquals(Step.NOTIFICATION, task.getStep());
+    assertEquals(0, task.getAttempts());
+    assertEquals(now, task.getNextAttemptDate());
+    verify(orderPostProcessingTaskRepository, never()).deleteById(any());
+  }
+
+  @Test
+  public void shouldRemoveTaskAfterLastStep() {
+    task.nextStep(now);
+    givenDueTask();
+    when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+    when(orderPostProcessingTaskRepository.findById(task.getId())).thenReturn(Optional.of(task));
+
+    orderPostProcessingService.processDueTasks();
+
+    verify(orderCreatePostProcessor).process(order, task);
+    verify(orderPostProcessingTaskRepository).deleteById(task.getId());
+  }
+
+  @Test
+  public void shouldRunPostProcessorOutsideOfTransactions() {
+    givenDueTask();
+    when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+
+    orderPostProcessingService.processDueTasks();
+
+    // claim and load the order, post-process it and then remove the task
+    InOrder inOrder = inOrder(transactionManager, orderCreatePostProcessor);
+    inOrder.verify(transactionManager, times(2)).commit(any());
+    inOrder.verify(orderCreatePostProcessor).process(order, task);
+    inOrder.verify(transactionManager).getTransaction(any());
+    inOrder.verify(transactionManager).commit(any());
+  }
+
+  @Test
+  public void shouldRemoveTaskOfMissingOrder() {
+    givenDueTask();
+    when(orderRepository.findById(order.getId())).thenReturn(Optional.empty());
+
+    orderPostProcessingService.processDueTasks();
+
+    verify(orderCreatePostProcessor, never())
+        .process(any(Order.class), any(OrderPostProcessingTask.class));
+    verify(orderPostProcessingTaskRepository).deleteById(task.getId());
+  }
+
+  @Test
+  public void shouldNotLookForPostProcessorIfThereAreNoDueTasks() {
+    when(orderPostProcessingTaskRepository.findDueForUpdate(now, 10))
+        .thenReturn(Collections.emptyList());
+
+    assertEquals(0, orderPostProcessingService.processDueTasks());
+
+    verifyZeroInteractions(extensionManager, orderRepository);
+  }
+
+  @Test
+  public void shouldRetryFailedTaskWithBackoff() {
+    givenDueTask();
+    givenFailingPostProcessor();
+
+    orderPostProcessingService.processDueTasks();
+
+    assertEquals(OrderPostProcessingTask.Status.PENDING, task.getStatus());
+    assertEquals(Step.TRANSFER, task.getStep());
+    assertEquals(now.plusSeconds(30), task.getNextAttemptDate());
+    assertEquals("IllegalStateException: FTP server is down", task.getLastError());
+    verify(orderPostProcessingTaskRepository, never()).deleteById(any());
+  }
+
+  @Test
+  public void shouldDoubleRetryDelayWithEachAttempt() {
+    task.claim(now);
+    givenDueTask();
+    givenFailingPostProcessor();
+
+    orderPostProcessingService.processDueTasks();
+
+    assertEquals(now.plusSeconds(60), task.getNextAttemptDate());
+  }
+
+  @Test
+  public void shouldMarkOrderAsTransferFailedAfterLastAttempt() {
+    task.claim(now);
+    task.claim(now);
+    givenDueTask();
+    givenFailingPostProcessor();
+
+    orderPostProcessingService.processDueTasks();
+
+    assertEquals(OrderStatus.TRANSFER_FAILED, order.getStatus());
+    verify(orderRepository).save(order);
+  }
+
+  @Test
+  public void shouldMoveToNotificationAfterLastAttemptOfTransfer() {
+    task.claim(now);
+    task.claim(now);
+    givenDueTask();
+    givenFailingPostProcessor();
+
+    orderPostProcessingService.processDueTasks();
+
+    assertEquals(OrderPostProcessingTask.Status.PENDING, task.getStatus());
+    assertEquals(Step.NOTIFICATION, task.getStep());
+    assertEquals(0, task.getAttempts());
+    assertEquals(now, task.getNextAttemptDate());
+    assertEquals("IllegalStateException: FTP server is down", task.getLastError());
+  }
+
+  @Test
+  public void shouldFailTaskAfterLastAttemptOfLastStep() {
+    task.nextStep(now);
+    task.claim(now);
+    task.claim(now);
+    givenDueTask();
+    givenFailingPostProcessor();
+
+    orderPostProcessingService.processDueTasks();
+
+    assertEquals(OrderPostProcessingTask.Status.FAILED, task.getStatus());
+    assertEquals(Step.NOTIFICATION, task.getStep());
+    assertEquals(OrderStatus.IN_ROUTE, order.getStatus());
+    verify(orderRepository, never()).save(any(Order.class));
+  }
+
+  @Test
+  public void shouldNotChangeStatusOfOrderThatIsNotInRouteAfterLastAttempt() {
+    order.setStatus(OrderStatus.READY_TO_PACK);
+    task.claim(now);
+    task.claim(now);
+    givenDueTask();
+    givenFailingPostProcessor();
+
+    orderPostProcessingService.processDueTasks();
+
+    assertEquals(OrderStatus.READY_TO_PACK, order.getStatus());
+    verify(orderRepository, never()).save(any(Order.class));
+  }
+
+  private void givenDueTask() {
+    when(orderPostProcessingTaskRepository.findDueForUpdate(now, 10))
+        .thenReturn(Collections.singletonList(task));
+    when(extensionManager.getExtension(ExtensionPointId.ORDER_CREATE_POST_POINT_ID,
+        OrderCreatePostProcessor.class)).thenReturn(orderCreatePostProcessor);
+  }
+
+  private void givenFailingPostProcessor() {
+    when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+    when(orderPostProcessingTaskRepository.findById(task.getId())).thenReturn(Optional.of(task));
+    doThrow(new IllegalStateException("FTP server is down"))
+        .when(orderCreatePostProcessor).process(order, task);
+  }
+}
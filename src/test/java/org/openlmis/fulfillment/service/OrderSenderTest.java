@@ -18,39 +18,58 @@ package org.openlmis.fulfillment.service;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.UUID;
-import org.apache.camel.Exchange;
-import org.apache.camel.ProducerTemplate;
+import org.apache.commons.io.IOUtils;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.domain.FileTemplate;
 import org.openlmis.fulfillment.domain.FtpProtocol;
 import org.openlmis.fulfillment.domain.FtpTransferProperties;
 import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.TemplateType;
 import org.openlmis.fulfillment.domain.TransferType;
-import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @RunWith(MockitoJUnitRunner.class)
 public class OrderSenderTest {
 
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
   @Mock
-  private ProducerTemplate producerTemplate;
+  private FtpSessionPool ftpSessionPool;
 
   @Mock
   private OrderStorage orderStorage;
 
   @Mock
-  private TransferPropertiesRepository transferPropertiesRepository;
+  private TransferPropertiesRegistry transferPropertiesRegistry;
+
+  @Mock
+  private OrderCsvHelper csvHelper;
+
+  @Mock
+  private FileTemplateService fileTemplateService;
 
   @InjectMocks
   private OrderFtpSender orderFtpSender;
@@ -58,15 +77,12 @@ public class OrderSenderTest {
   @Mock
   private Order order;
 
-  @Mock
-  private Path path;
-
-  @Mock
-  private File file;
+  private FtpTransferProperties setting = new FtpTransferProperties();
+  private FileTemplate template = new FileTemplate("O", false, TemplateType.ORDER,
+      new ArrayList<>());
 
   @Before
   public void setUp() throws Exception {
-    FtpTransferProperties setting = new FtpTransferProperties();
     setting.setId(UUID.randomUUID());
     setting.setFacilityId(UUID.randomUUID());
     setting.setProtocol(FtpProtocol.FTP);
@@ -79,23 +95,76 @@ public class OrderSenderTest {
     setting.setPassiveMode(true);
     setting.setTransferType(TransferType.ORDER);
 
+    Path path = folder.newFile("OORDER-1.csv").toPath();
+    Files.write(path, "stored content".getBytes(StandardCharsets.UTF_8));
+
     when(orderStorage.getOrderAsPath(order)).thenReturn(path);
-    when(transferPropertiesRepository.findFirstByFacilityIdAndTransferType(any(), any()))
+    when(transferPropertiesRegistry.get(any(), any()))
         .thenReturn(setting);
 
-    when(path.toFile()).thenReturn(file);
+    when(order.getOrderCode()).thenReturn("ORDER-1");
+    when(fileTemplateService.getOrderFileTemplate()).thenReturn(template);
+    doAnswer(invocation -> {
+      ((Writer) invocation.getArguments()[2]).write("csv content");
+      return null;
+    }).when(csvHelper).writeCsvFile(eq(order), eq(template), any(Writer.class));
+
+    ReflectionTestUtils.setField(orderFtpSender, "bufferPoolSize", 1);
+    ReflectionTestUtils.setField(orderFtpSender, "maxPooledBufferSize", 1024 * 1024);
+    orderFtpSender.initBufferPool();
   }
 
   @Test
   public void shouldReturnTrueIfMessageHasBeenSentSuccessfully() throws Exception {
+    expectUpload("stored content");
+
     assertThat(orderFtpSender.send(order), is(true));
+
+    verify(ftpSessionPool).upload(eq(setting), eq("OORDER-1.csv"), any(InputStream.class));
   }
 
   @Test
   public void shouldReturnFalseIfMessageHasNotBeenSentSuccessfully() throws Exception {
-    doThrow(new RuntimeException("test purpose"))
-    .when(producerTemplate).sendBodyAndHeader(anyString(), any(), eq(Exchange.FILE_NAME), any());
+    doThrow(new IOException("test purpose"))
+        .when(ftpSessionPool).upload(eq(setting), eq("OORDER-1.csv"), any(InputStream.class));
 
     assertThat(orderFtpSender.send(order), is(false));
   }
+
+  @Test
+  public void shouldSendGeneratedFileWithoutStoringIt() throws Exception {
+    expectUpload("csv content");
+
+    assertThat(orderFtpSender.sendDirectly(order), is(true));
+
+    verify(ftpSessionPool).upload(eq(setting), eq("OORDER-1.csv"), any(InputStream.class));
+    verify(orderStorage, never()).getOrderAsPath(order);
+  }
+
+  @Test
+  public void shouldReturnFalseIfGeneratedFileHasNotBeenSentSuccessfully() throws Exception {
+    doThrow(new IllegalStateException("test purpose"))
+        .when(ftpSessionPool).upload(eq(setting), eq("OORDER-1.csv"), any(InputStream.class));
+
+    assertThat(orderFtpSender.sendDirectly(order), is(false));
+  }
+
+  @Test
+  public void shouldNotSendFileIfItCouldNotBeGenerated() throws Exception {
+    doThrow(new IOException("test purpose"))
+        .when(csvHelper).writeCsvFile(eq(order), eq(template), any(Writer.class));
+
+    assertThat(orderFtpSender.sendDirectly(order), is(false));
+
+    verify(ftpSessionPool, never()).upload(any(), any(), any());
+  }
+
+  private void expectUpload(String content) throws IOException {
+    doAnswer(invocation -> {
+      // the content is only readable until the upload returns
+      InputStream body = (InputStream) invocation.getArguments()[2];
+      assertThat(IOUtils.toString(body, StandardCharsets.UTF_8), is(content));
+      return null;
+    }).when(ftpSessionPool).upload(eq(setting), eq("OORDER-1.csv"), any(InputStream.class));
+  }
 }
@@ -18,15 +18,18 @@ package org.openlmis.fulfillment.service;
 import static com.google.common.collect.Sets.newHashSet;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.javers.common.collections.Sets.asSet;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anySet;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
-import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.openlmis.fulfillment.service.PermissionService.ORDERS_EDIT;
@@ -41,6 +44,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import javax.persistence.EntityManager;
@@ -63,17 +67,14 @@ import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.OrderLineItem;
 import org.openlmis.fulfillment.domain.OrderNumberConfiguration;
 import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.OrderSummary;
 import org.openlmis.fulfillment.domain.StatusChange;
 import org.openlmis.fulfillment.domain.TransferType;
 import org.openlmis.fulfillment.extension.ExtensionManager;
-import org.openlmis.fulfillment.extension.point.ExtensionPointId;
-import org.openlmis.fulfillment.extension.point.OrderCreatePostProcessor;
 import org.openlmis.fulfillment.extension.point.OrderNumberGenerator;
 import org.openlmis.fulfillment.repository.OrderNumberConfigurationRepository;
 import org.openlmis.fulfillment.repository.OrderRepository;
-import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
 import org.openlmis.fulfillment.service.referencedata.FacilityDto;
-import org.openlmis.fulfillment.service.referencedata.FacilityReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.OrderableDto;
 import org.openlmis.fulfillment.service.referencedata.OrderableReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.PeriodReferenceDataService;
@@ -82,6 +83,8 @@ import org.openlmis.fulfillment.service.referencedata.ProcessingPeriodDto;
 import org.openlmis.fulfillment.service.referencedata.ProgramDto;
 import org.openlmis.fulfillment.service.referencedata.ProgramOrderableDto;
 import org.openlmis.fulfillment.service.referencedata.ProgramReferenceDataService;
+import org.openlmis.fulfillment.service.referencedata.SupportedProgramIndex;
+import org.openlmis.fulfillment.service.referencedata.SupportedProgramIndex.ProgramSupport;
 import org.openlmis.fulfillment.service.referencedata.UserDto;
 import org.openlmis.fulfillment.service.referencedata.UserReferenceDataService;
 import org.openlmis.fulfillment.testutils.FacilityDataBuilder;
@@ -113,7 +116,7 @@ public class OrderServiceTest {
   private OrderNumberConfigurationRepository orderNumberConfigurationRepository;
 
   @Mock
-  private FacilityReferenceDataService facilityReferenceDataService;
+  private SupportedProgramIndex supportedProgramIndex;
 
   @Mock
   private ProgramReferenceDataService programReferenceDataService;
@@ -128,7 +131,7 @@ public class OrderServiceTest {
   private UserReferenceDataService userReferenceDataService;
 
   @Mock
-  private TransferPropertiesRepository transferPropertiesRepository;
+  private TransferPropertiesRegistry transferPropertiesRegistry;
 
   @Mock
   private DateHelper dateHelper;
@@ -146,7 +149,10 @@ public class OrderServiceTest {
   private EntityManager entityManager;
 
   @Mock
-  private DefaultOrderCreatePostProcessor orderCreatePostProcessor;
+  private OrderPostProcessingService orderPostProcessingService;
+
+  @Mock
+  private ExternalIdFilter externalIdFilter;
 
   @InjectMocks
   private ExporterBuilder exporter;
@@ -188,12 +194,15 @@ public class OrderServiceTest {
     validateCreatedOrder(created, order);
     verify(entityManager).persist(orderCaptor.capture());
     assertEquals(OrderStatus.IN_ROUTE, orderCaptor.getValue().getStatus());
+    verify(orderPostProcessingService).enqueue(singletonList(created));
+    verify(externalIdFilter).add(created.getExternalId());
   }
 
   @Test
   public void shouldCreateRegularOrderIfFacilityNotSupportProgram() {
     // given
-    facility.setSupportedPrograms(emptyList());
+    when(supportedProgramIndex.get(facility.getId(), program.getId()))
+        .thenReturn(ProgramSupport.NOT_SUPPORTED);
     order.setId(null);
     OrderDto dto = OrderDto.newInstance(order, exporter);
     order.setStatus(OrderStatus.ORDERED);
@@ -210,7 +219,8 @@ public class OrderServiceTest {
   @Test
   public void shouldCreateOrderForFulfill() {
     // given
-    program.setSupportLocallyFulfilled(true);
+    when(supportedProgramIndex.get(facility.getId(), program.getId()))
+        .thenReturn(ProgramSupport.LOCALLY_FULFILLED);
     order.setId(null);
     OrderDto dto = OrderDto.newInstance(order, exporter);
     order.setStatus(OrderStatus.ORDERED);
@@ -224,6 +234,46 @@ public class OrderServiceTest {
     assertEquals(OrderStatus.ORDERED, orderCaptor.getValue().getStatus());
   }
 
+  @Test
+  public void shouldCreateOrdersInBulk() {
+    // given
+    order.setId(null);
+    OrderDto dto = OrderDto.newInstance(order, exporter);
+    properties.setFacilityId(facility.getId());
+
+    when(programReferenceDataService.findByIds(anySet()))
+        .thenReturn(Collections.singletonList(program));
+    when(transferPropertiesRegistry.getAll(anySet(), eq(TransferType.ORDER)))
+        .thenReturn(Collections.singletonMap(facility.getId(), properties));
+
+    // when
+    List<Order> created = orderService.createOrders(asList(dto, dto), ignored -> userDto.getId());
+
+    // then
+    assertEquals(2, created.size());
+    validateCreatedOrder(created.get(0), order);
+    validateCreatedOrder(created.get(1), order);
+
+    verify(entityManager, times(2)).persist(orderCaptor.capture());
+    verify(entityManager).flush();
+    orderCaptor.getAllValues()
+        .forEach(persisted -> assertEquals(OrderStatus.IN_ROUTE, persisted.getStatus()));
+
+    verify(orderNumberConfigurationRepository).findAll();
+    verify(programReferenceDataService, never()).findOne(any(UUID.class));
+    verify(supportedProgramIndex).prefetch(Collections.singleton(facility.getId()));
+    verify(transferPropertiesRegistry, never()).get(any(), any());
+    verify(orderPostProcessingService).enqueue(created);
+    verify(externalIdFilter, times(2)).add(order.getExternalId());
+  }
+
+  @Test
+  public void shouldNotCreateOrdersIfThereAreNoOrdersInBatch() {
+    assertEquals(emptyList(), orderService.createOrders(emptyList(), ignored -> null));
+
+    verify(entityManager, never()).flush();
+  }
+
   @Test
   public void shouldSaveOrder() {
     // when
@@ -253,7 +303,7 @@ public class OrderServiceTest {
     );
     when(orderRepository.searchOrders(
         params, asSet(order.getProcessingPeriodId()),
-        pageable, newHashSet(order.getSupplyingFacilityId()),
+        pageable, CountMode.EXACT, newHashSet(order.getSupplyingFacilityId()),
         newHashSet(order.getRequestingFacilityId())))
         .thenReturn(new PageImpl<>(Collections.singletonList(order), pageable, 1));
 
@@ -269,9 +319,79 @@ public class OrderServiceTest {
     assertEquals(receivedOrders.getContent().get(0).getProgramId(), order.getProgramId());
 
     verify(orderRepository, atLeastOnce())
+        .searchOrders(anyObject(), anyObject(), anyObject(), anyObject(), anySet(), anySet());
+  }
+
+  @Test
+  public void shouldSearchOrderSummariesForCrossServiceRequest() {
+    Order order = generateOrder();
+    Pageable pageable = PageRequest.of(0, 10);
+
+    OrderSearchParams params = new OrderSearchParams(
+        order.getSupplyingFacilityId(), null, null, order.getProcessingPeriodId(), null, null,
+        null);
+    when(orderRepository.searchOrderSummaries(
+        params, asSet(order.getProcessingPeriodId()), pageable, CountMode.NONE))
+        .thenReturn(new PageImpl<>(Collections.singletonList(OrderSummary.of(order)), pageable,
+            1));
+
+    when(authenticationHelper.getCurrentUser()).thenReturn(null);
+
+    Page<OrderSummary> receivedOrders = orderService
+        .searchOrderSummaries(params, pageable, CountMode.NONE);
+
+    assertEquals(1, receivedOrders.getContent().size());
+    assertEquals(order.getId(), receivedOrders.getContent().get(0).getId());
+    verify(permissionService, never()).getPermissionStrings(anyObject());
+  }
+
+  @Test
+  public void shouldSeekOrdersWithPermissions() {
+    Order order = generateOrder();
+    OrderSearchCursor cursor = new OrderSearchCursor(ZonedDateTime.now(), UUID.randomUUID());
+    UserDto user = new UserDataBuilder().build();
+    PermissionStrings.Handler handler = mock(PermissionStrings.Handler.class);
+    when(handler.getFacilityIds(ORDERS_EDIT, ORDERS_VIEW, SHIPMENTS_EDIT, SHIPMENTS_VIEW))
+        .thenReturn(newHashSet(order.getSupplyingFacilityId()));
+    when(handler.getFacilityIds(PODS_MANAGE, PODS_VIEW))
+        .thenReturn(newHashSet(order.getRequestingFacilityId()));
+
+    when(permissionService.getPermissionStrings(user.getId())).thenReturn(handler);
+    when(authenticationHelper.getCurrentUser()).thenReturn(user);
+
+    OrderSearchParams params = new OrderSearchParams(
+        order.getSupplyingFacilityId(), null, null, order.getProcessingPeriodId(), null, null, null
+    );
+    when(orderRepository.seekOrders(
+        params, asSet(order.getProcessingPeriodId()), cursor, 10,
+        newHashSet(order.getSupplyingFacilityId()), newHashSet(order.getRequestingFacilityId())))
+        .thenReturn(new PageImpl<>(Collections.singletonList(OrderSummary.of(order)),
+            PageRequest.of(0, 10), 1));
+
+    Page<OrderSummary> receivedOrders = orderService.seekOrders(params, cursor, 10);
+
+    assertEquals(1, receivedOrders.getContent().size());
+    assertEquals(order.getId(), receivedOrders.getContent().get(0).getId());
+    verify(orderRepository, never())
         .searchOrders(anyObject(), anyObject(), anyObject(), anySet(), anySet());
   }
 
+  @Test
+  public void shouldNotSeekOrdersIfPeriodsDoNotMatch() {
+    OrderSearchParams params = new OrderSearchParams(
+        null, null, null, UUID.randomUUID(), null, LocalDate.now(), LocalDate.now());
+    when(periodReferenceDataService.search(params.getPeriodStartDate(),
+        params.getPeriodEndDate())).thenReturn(emptyList());
+
+    Page<OrderSummary> receivedOrders = orderService.seekOrders(params, null, 10);
+
+    assertEquals(0, receivedOrders.getContent().size());
+    verify(orderRepository, never())
+        .seekOrders(anyObject(), anyObject(), anyObject(), anyInt(), anySet(), anySet());
+    verify(orderRepository, never())
+        .seekOrders(anyObject(), anyObject(), anyObject(), anyInt());
+  }
+
   @Test
   public void shouldNotCheckPermissionWhenCrossServiceRequest() {
     Order order = generateOrder();
@@ -281,7 +401,7 @@ public class OrderServiceTest {
         order.getSupplyingFacilityId(), order.getRequestingFacilityId(), order.getProgramId(),
         order.getProcessingPeriodId(), Sets.newHashSet(order.getStatus().toString()), null, null);
     when(orderRepository.searchOrders(
-        params, asSet(order.getProcessingPeriodId()), pageable))
+        params, asSet(order.getProcessingPeriodId()), pageable, CountMode.EXACT))
         .thenReturn(new PageImpl<>(Collections.singletonList(order), pageable, 1));
 
     when(authenticationHelper.getCurrentUser()).thenReturn(null);
@@ -295,7 +415,7 @@ public class OrderServiceTest {
     assertEquals(receivedOrders.getContent().get(0).getProgramId(), order.getProgramId());
 
     verify(orderRepository, atLeastOnce())
-        .searchOrders(anyObject(), anyObject(), anyObject());
+        .searchOrders(anyObject(), anyObject(), anyObject(), anyObject());
 
     verify(permissionService, never()).getPermissionStrings(anyObject());
   }
@@ -309,7 +429,7 @@ public class OrderServiceTest {
         order.getSupplyingFacilityId(), order.getRequestingFacilityId(), order.getProgramId(),
         null, Sets.newHashSet(order.getStatus().toString()), startDate, endDate);
     when(orderRepository.searchOrders(
-        params, asSet(period1.getId(), period2.getId()), pageable))
+        params, asSet(period1.getId(), period2.getId()), pageable, CountMode.EXACT))
         .thenReturn(new PageImpl<>(Collections.singletonList(order), pageable, 1));
 
     when(authenticationHelper.getCurrentUser()).thenReturn(null);
@@ -319,7 +439,8 @@ public class OrderServiceTest {
     assertEquals(1, receivedOrders.getContent().size());
     assertEquals(order, receivedOrders.getContent().get(0));
 
-    verify(orderRepository, atLeastOnce()).searchOrders(anyObject(), anyObject(), anyObject());
+    verify(orderRepository, atLeastOnce())
+        .searchOrders(anyObject(), anyObject(), anyObject(), anyObject());
   }
 
   @Test
@@ -337,7 +458,8 @@ public class OrderServiceTest {
 
     assertEquals(0, receivedOrders.getContent().size());
     verify(orderRepository, never())
-        .searchOrders(anyObject(), anyObject(), anyObject(), anyObject(), anyObject());
+        .searchOrders(anyObject(), anyObject(), anyObject(), anyObject(), anyObject(),
+            anyObject());
   }
 
   @Test
@@ -357,7 +479,8 @@ public class OrderServiceTest {
 
     assertEquals(0, receivedOrders.getContent().size());
     verify(orderRepository, never())
-        .searchOrders(anyObject(), anyObject(), anyObject(), anyObject(), anyObject());
+        .searchOrders(anyObject(), anyObject(), anyObject(), anyObject(), anyObject(),
+            anyObject());
   }
 
   @Test
@@ -369,7 +492,7 @@ public class OrderServiceTest {
         order.getSupplyingFacilityId(), order.getRequestingFacilityId(), order.getProgramId(),
         period1.getId(), Sets.newHashSet(order.getStatus().toString()), startDate, endDate);
     when(orderRepository.searchOrders(
-        params, asSet(period1.getId()), pageable))
+        params, asSet(period1.getId()), pageable, CountMode.EXACT))
         .thenReturn(new PageImpl<>(Collections.singletonList(order), pageable, 1));
 
     when(authenticationHelper.getCurrentUser()).thenReturn(null);
@@ -379,7 +502,8 @@ public class OrderServiceTest {
     assertEquals(1, receivedOrders.getContent().size());
     assertEquals(order, receivedOrders.getContent().get(0));
 
-    verify(orderRepository, atLeastOnce()).searchOrders(anyObject(), anyObject(), anyObject());
+    verify(orderRepository, atLeastOnce())
+        .searchOrders(anyObject(), anyObject(), anyObject(), anyObject());
   }
 
   @Test
@@ -515,7 +639,8 @@ public class OrderServiceTest {
 
   private void mockResponses() {
     when(programReferenceDataService.findOne(program.getId())).thenReturn(program);
-    when(facilityReferenceDataService.findOne(facility.getId())).thenReturn(facility);
+    when(supportedProgramIndex.get(facility.getId(), program.getId()))
+        .thenReturn(ProgramSupport.SUPPORTED);
     when(periodReferenceDataService.findOne(period1.getId())).thenReturn(period1);
 
     when(userReferenceDataService.findOne(any())).thenReturn(userDto);
@@ -526,14 +651,7 @@ public class OrderServiceTest {
     when(extensionManager.getExtension(OrderNumberGenerator.POINT_ID, OrderNumberGenerator.class))
         .thenReturn(new Base36EncodedOrderNumberGenerator());
 
-    when(extensionManager.getExtension(ExtensionPointId.ORDER_CREATE_POST_POINT_ID,
-        OrderCreatePostProcessor.class))
-        .thenReturn(orderCreatePostProcessor);
-
-    doNothing().when(orderCreatePostProcessor).process(order);
-
-    when(transferPropertiesRepository
-        .findFirstByFacilityIdAndTransferType(any(),any()))
+    when(transferPropertiesRegistry.get(any(), any()))
         .thenReturn(properties);
 
     when(dateHelper.getCurrentDateTimeWithSystemZone()).thenReturn(ZonedDateTime.now());
@@ -42,7 +42,6 @@ import org.openlmis.fulfillment.domain.FileTemplate;
 import org.openlmis.fulfillment.domain.FtpTransferProperties;
 import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.TransferType;
-import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
@@ -66,7 +65,7 @@ public class OrderStorageTest {
   private FileTemplateService fileTemplateService;
 
   @Mock
-  private TransferPropertiesRepository transferPropertiesRepository;
+  private TransferPropertiesRegistry transferPropertiesRegistry;
 
   @InjectMocks
   private OrderFileStorage orderFileStorage;
@@ -91,8 +90,7 @@ public class OrderStorageTest {
 
     when(Files.newBufferedWriter(any(Path.class))).thenReturn(writer);
     when(fileTemplateService.getOrderFileTemplate()).thenReturn(template);
-    when(transferPropertiesRepository
-        .findFirstByFacilityIdAndTransferType(any(), any()))
+    when(transferPropertiesRegistry.get(any(), any()))
         .thenReturn(properties);
 
     when(order.getOrderCode()).thenReturn(ORDER_CODE);
@@ -130,14 +128,12 @@ public class OrderStorageTest {
 
   @Test
   public void shouldHandleSituationWhenPropertiesDoesNotExist() throws OrderStorageException {
-    when(transferPropertiesRepository
-        .findFirstByFacilityIdAndTransferType(order.getFacilityId(), TransferType.ORDER))
+    when(transferPropertiesRegistry.get(order.getFacilityId(), TransferType.ORDER))
         .thenReturn(null);
 
     orderFileStorage.store(order);
 
-    verify(transferPropertiesRepository)
-        .findFirstByFacilityIdAndTransferType(order.getFacilityId(), TransferType.ORDER);
+    verify(transferPropertiesRegistry).get(order.getFacilityId(), TransferType.ORDER);
     verifyZeroInteractions(fileTemplateService, csvHelper);
   }
 
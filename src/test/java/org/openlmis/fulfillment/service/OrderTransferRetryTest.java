@@ -0,0 +1,215 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.OrderDataBuilder;
+import org.openlmis.fulfillment.domain.FtpTransferProperties;
+import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderPostProcessingTask;
+import org.openlmis.fulfillment.domain.OrderPostProcessingTask.Step;
+import org.openlmis.fulfillment.domain.OrderStatus;
+import org.openlmis.fulfillment.domain.TransferType;
+import org.openlmis.fulfillment.extension.ExtensionManager;
+import org.openlmis.fulfillment.extension.point.ExtensionPointId;
+import org.openlmis.fulfillment.extension.point.OrderCreatePostProcessor;
+import org.openlmis.fulfillment.repository.OrderPostProcessingTaskRepository;
+import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.util.DateHelper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Runs the default order create post processor with the FTP sender through the post processing
+ * workers, so only the FTP server is mocked.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class OrderTransferRetryTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Mock
+  private FtpSessionPool ftpSessionPool;
+
+  @Mock
+  private OrderStorage orderStorage;
+
+  @Mock
+  private TransferPropertiesRegistry transferPropertiesRegistry;
+
+  @Mock
+  private OrderCsvHelper csvHelper;
+
+  @Mock
+  private FileTemplateService fileTemplateService;
+
+  @Mock
+  private FulfillmentNotificationService fulfillmentNotificationService;
+
+  @Mock
+  private ConfigurationSettingService configurationSettingService;
+
+  @Mock
+  private OrderPostProcessingTaskRepository orderPostProcessingTaskRepository;
+
+  @Mock
+  private OrderRepository orderRepository;
+
+  @Mock
+  private ExtensionManager extensionManager;
+
+  @Mock
+  private DateHelper dateHelper;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  private OrderPostProcessingService orderPostProcessingService =
+      new OrderPostProcessingService();
+
+  private ZonedDateTime now = ZonedDateTime.now();
+  private Order order = new OrderDataBuilder().withStatus(OrderStatus.IN_ROUTE).build();
+  private FtpTransferProperties ftp = new FtpTransferProperties();
+  private OrderPostProcessingTask task;
+
+  @Before
+  public void setUp() throws IOException {
+    OrderFtpSender orderSender = new OrderFtpSender();
+    ReflectionTestUtils.setField(orderSender, "ftpSessionPool", ftpSessionPool);
+    ReflectionTestUtils.setField(orderSender, "orderStorage", orderStorage);
+    ReflectionTestUtils.setField(orderSender, "transferPropertiesRegistry",
+        transferPropertiesRegistry);
+    ReflectionTestUtils.setField(orderSender, "csvHelper", csvHelper);
+    ReflectionTestUtils.setField(orderSender, "fileTemplateService", fileTemplateService);
+    ReflectionTestUtils.setField(orderSender, "bufferPoolSize", 1);
+    ReflectionTestUtils.setField(orderSender, "maxPooledBufferSize", 1024);
+    orderSender.initBufferPool();
+
+    DefaultOrderCreatePostProcessor postProcessor = new DefaultOrderCreatePostProcessor();
+    ReflectionTestUtils.setField(postProcessor, "transferPropertiesRegistry",
+        transferPropertiesRegistry);
+    ReflectionTestUtils.setField(postProcessor, "fulfillmentNotificationService",
+        fulfillmentNotificationService);
+    ReflectionTestUtils.setField(postProcessor, "orderStorage", orderStorage);
+    ReflectionTestUtils.setField(postProcessor, "orderSender", orderSender);
+    ReflectionTestUtils.setField(postProcessor, "configurationSettingService",
+        configurationSettingService);
+
+    ReflectionTestUtils.setField(orderPostProcessingService, "orderPostProcessingTaskRepository",
+        orderPostProcessingTaskRepository);
+    ReflectionTestUtils.setField(orderPostProcessingService, "orderRepository", orderRepository);
+    ReflectionTestUtils.setField(orderPostProcessingService, "extensionManager",
+        extensionManager);
+    ReflectionTestUtils.setField(orderPostProcessingService, "dateHelper", dateHelper);
+    ReflectionTestUtils.setField(orderPostProcessingService, "transactionManager",
+        transactionManager);
+    ReflectionTestUtils.setField(orderPostProcessingService, "batchSize", 10);
+    ReflectionTestUtils.setField(orderPostProcessingService, "maxAttempts", 2);
+    ReflectionTestUtils.setField(orderPostProcessingService, "retryDelay", 30L);
+    ReflectionTestUtils.setField(orderPostProcessingService, "lease", 600L);
+
+    Path path = folder.newFile("OORDER-1.csv").toPath();
+    Files.write(path, "stored content".getBytes(StandardCharsets.UTF_8));
+
+    task = OrderPostProcessingTask.newInstance(order.getId(), now);
+    task.setId(UUID.randomUUID());
+
+    when(dateHelper.getCurrentDateTimeWithSystemZone()).thenReturn(now);
+    when(orderPostProcessingTaskRepository.findDueForUpdate(now, 10))
+        .thenReturn(Collections.singletonList(task));
+    when(orderPostProcessingTaskRepository.findById(task.getId()))
+        .thenReturn(Optional.of(task));
+    when(extensionManager.getExtension(ExtensionPointId.ORDER_CREATE_POST_POINT_ID,
+        OrderCreatePostProcessor.class)).thenReturn(postProcessor);
+    when(orderRepository.findById(order.getId())).thenReturn(Optional.of(order));
+    when(configurationSettingService.getAllowFtpTransferOnRequisitionToOrder())
+        .thenReturn("true");
+    when(transferPropertiesRegistry.get(order.getSupplyingFacilityId(), TransferType.ORDER))
+        .thenReturn(ftp);
+    when(orderStorage.getOrderAsPath(order)).thenReturn(path);
+    doThrow(new IOException("FTP server is down"))
+        .when(ftpSessionPool).upload(eq(ftp), eq("OORDER-1.csv"), any(InputStream.class));
+  }
+
+  @Test
+  public void shouldRetryTransferThatFailed() throws IOException {
+    orderPostProcessingService.processDueTasks();
+
+    verify(ftpSessionPool).upload(eq(ftp), eq("OORDER-1.csv"), any(InputStream.class));
+    assertEquals(OrderPostProcessingTask.Status.PENDING, task.getStatus());
+    assertEquals(now.plusSeconds(30), task.getNextAttemptDate());
+    assertTrue(task.getLastError().startsWith(OrderTransferException.class.getSimpleName()));
+    assertEquals(OrderStatus.IN_ROUTE, order.getStatus());
+
+    verify(orderStorage, never()).delete(order);
+    verify(orderPostProcessingTaskRepository, never()).deleteById(any());
+    verify(orderRepository, never()).save(any(Order.class));
+    verify(fulfillmentNotificationService, never()).sendOrderCreatedNotification(order);
+  }
+
+  @Test
+  public void shouldMarkOrderAsTransferFailedWhenLastRetryFailed() throws IOException {
+    orderPostProcessingService.processDueTasks();
+    orderPostProcessingService.processDueTasks();
+
+    verify(ftpSessionPool, times(2))
+        .upload(eq(ftp), eq("OORDER-1.csv"), any(InputStream.class));
+    assertEquals(OrderPostProcessingTask.Status.PENDING, task.getStatus());
+    assertEquals(Step.NOTIFICATION, task.getStep());
+    assertEquals(OrderStatus.TRANSFER_FAILED, order.getStatus());
+
+    verify(orderRepository).save(order);
+  }
+
+  @Test
+  public void shouldNotifyWithoutTransferringAgainWhenLastRetryFailed() throws IOException {
+    orderPostProcessingService.processDueTasks();
+    orderPostProcessingService.processDueTasks();
+    orderPostProcessingService.processDueTasks();
+
+    verify(ftpSessionPool, times(2))
+        .upload(eq(ftp), eq("OORDER-1.csv"), any(InputStream.class));
+    verify(fulfillmentNotificationService).sendOrderCreatedNotification(order);
+    verify(orderPostProcessingTaskRepository).deleteById(task.getId());
+    assertEquals(OrderStatus.TRANSFER_FAILED, order.getStatus());
+  }
+}
@@ -17,7 +17,9 @@ package org.openlmis.fulfillment.service;
 
 import static org.hamcrest.Matchers.arrayContaining;
 import static org.hamcrest.Matchers.hasProperty;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -54,6 +56,7 @@ import org.openlmis.fulfillment.domain.Order;
 import org.openlmis.fulfillment.domain.ProofOfDelivery;
 import org.openlmis.fulfillment.domain.Shipment;
 import org.openlmis.fulfillment.repository.OrderRepository;
+import org.openlmis.fulfillment.service.referencedata.PermissionStrings;
 import org.openlmis.fulfillment.service.referencedata.RightDto;
 import org.openlmis.fulfillment.service.referencedata.UserDto;
 import org.openlmis.fulfillment.service.referencedata.UserReferenceDataService;
@@ -65,6 +68,7 @@ import org.openlmis.fulfillment.web.ValidationException;
 import org.openlmis.fulfillment.web.shipment.ShipmentDto;
 import org.openlmis.fulfillment.web.shipment.ShipmentDtoDataBuilder;
 import org.openlmis.fulfillment.web.util.OrderObjectReferenceDto;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
@@ -86,6 +90,12 @@ public class PermissionServiceTest {
   @Mock
   private OrderRepository orderRepository;
 
+  @Mock
+  private PermissionStrings permissionStrings;
+
+  @Mock
+  private PermissionStrings.Handler permissionStringsHandler;
+
   @InjectMocks
   private PermissionService permissionService;
 
@@ -134,6 +144,7 @@ public class PermissionServiceTest {
         when(authenticationHelper.getRight(right)).thenReturn(details));
 
     when(authenticationHelper.getCurrentUser()).thenReturn(user);
+    when(permissionStrings.forUser(user.getId())).thenReturn(permissionStringsHandler);
     when(securityContext.getAuthentication()).thenReturn(userClient);
 
     ReflectionTestUtils.setField(permissionService, "serviceTokenClientId", SERVICE_CLIENT_ID);
@@ -388,11 +399,42 @@ public class PermissionServiceTest {
     permissionService.canViewShipment(shipment);
   }
 
+  @Test
+  public void shouldCheckRightRemotelyIfPermissionStringsAreNotAvailable() {
+    when(permissionStringsHandler.hasPermission(any(), any(), any()))
+        .thenThrow(new DataRetrievalException("permissionStrings", HttpStatus.BAD_GATEWAY, ""));
+    when(userReferenceDataService.hasRight(user.getId(), rightsMap.get(ORDERS_TRANSFER).getId(),
+        null, null, order.getSupplyingFacilityId()))
+        .thenReturn(new ResultDto<>(true));
+
+    permissionService.canTransferOrder(order);
+
+    verify(userReferenceDataService).hasRight(user.getId(),
+        rightsMap.get(ORDERS_TRANSFER).getId(), null, null, order.getSupplyingFacilityId());
+  }
+
+  @Test
+  public void shouldNotCheckRightRemotelyIfPermissionStringsAreAvailable() {
+    expectException(ORDERS_TRANSFER);
+
+    try {
+      permissionService.canTransferOrder(order);
+    } finally {
+      verify(userReferenceDataService, never())
+          .hasRight(any(), any(), any(), any(), any());
+    }
+  }
+
   private void mockHasRight(String rightName, UUID facility, UUID program,
                             UUID warehouse) {
-    when(userReferenceDataService
-        .hasRight(user.getId(), rightsMap.get(rightName).getId(), program, facility, warehouse))
-        .thenReturn(new ResultDto<>(true));
+    // fulfillment rights are stored in permission strings with the warehouse as facility
+    if (null == warehouse) {
+      when(permissionStringsHandler.hasPermission(rightName, facility, program))
+          .thenReturn(true);
+    } else {
+      when(permissionStringsHandler.hasPermission(rightName, warehouse, null))
+          .thenReturn(true);
+    }
   }
 
   private void expectException(String rightName) {
@@ -410,10 +452,14 @@ public class PermissionServiceTest {
   private void verifyRight(String rightName, UUID facility, UUID program,
                            UUID warehouse) {
     verify(authenticationHelper, atLeastOnce()).getCurrentUser();
-    verify(authenticationHelper).getRight(rightName);
-    verify(userReferenceDataService).hasRight(
-        user.getId(), rightsMap.get(rightName).getId(), program, facility, warehouse
-    );
+
+    if (null == warehouse) {
+      verify(permissionStringsHandler).hasPermission(rightName, facility, program);
+    } else {
+      verify(permissionStringsHandler).hasPermission(rightName, warehouse, null);
+    }
+
+    verifyZeroInteractions(userReferenceDataService);
   }
 
 }
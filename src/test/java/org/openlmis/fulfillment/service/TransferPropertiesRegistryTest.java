@@ -0,0 +1,175 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anySet;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.Sets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.domain.FtpTransferProperties;
+import org.openlmis.fulfillment.domain.LocalTransferProperties;
+import org.openlmis.fulfillment.domain.TransferProperties;
+import org.openlmis.fulfillment.domain.TransferType;
+import org.openlmis.fulfillment.repository.TransferPropertiesRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TransferPropertiesRegistryTest {
+
+  @Mock
+  private TransferPropertiesRepository transferPropertiesRepository;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @InjectMocks
+  private TransferPropertiesRegistry registry;
+
+  private TransferProperties order = properties(new FtpTransferProperties(), TransferType.ORDER);
+  private TransferProperties shipment = properties(new LocalTransferProperties(),
+      TransferType.SHIPMENT);
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(registry, "refreshInterval", 60L);
+  }
+
+  @Test
+  public void shouldLoadAllPropertiesAtStartup() {
+    givenProperties();
+    registry.run();
+
+    verify(transferPropertiesRepository).findAll();
+    assertEquals(2, registry.getSnapshot().size());
+  }
+
+  @Test
+  public void shouldGetPropertiesByFacilityAndTransferTypeWithoutQueryingEachTime() {
+    givenProperties();
+    assertSame(order, registry.get(order.getFacilityId(), TransferType.ORDER));
+    assertSame(shipment, registry.get(shipment.getFacilityId(), TransferType.SHIPMENT));
+    assertNull(registry.get(order.getFacilityId(), TransferType.SHIPMENT));
+    assertNull(registry.get(UUID.randomUUID(), TransferType.ORDER));
+    assertNull(registry.get(null, TransferType.ORDER));
+
+    verify(transferPropertiesRepository).findAll();
+    verify(transferPropertiesRepository, never())
+        .findFirstByFacilityIdAndTransferType(any(UUID.class), any(TransferType.class));
+  }
+
+  @Test
+  public void shouldGetPropertiesOfManyFacilities() {
+    givenProperties();
+    UUID other = UUID.randomUUID();
+
+    Map<UUID, TransferProperties> found = registry
+        .getAll(Sets.newHashSet(order.getFacilityId(), shipment.getFacilityId(), other),
+            TransferType.ORDER);
+
+    assertEquals(Collections.singletonMap(order.getFacilityId(), order), found);
+    verify(transferPropertiesRepository, never())
+        .findByFacilityIdInAndTransferType(anySet(), any(TransferType.class));
+  }
+
+  @Test
+  public void shouldReloadAfterChangeWithoutTransaction() {
+    givenProperties();
+    registry.run();
+
+    TransferProperties changed = properties(new FtpTransferProperties(), TransferType.ORDER);
+    changed.setFacilityId(order.getFacilityId());
+    when(transferPropertiesRepository.findAll()).thenReturn(Collections.singletonList(changed));
+
+    registry.reloadAfterCommit();
+
+    assertSame(changed, registry.get(order.getFacilityId(), TransferType.ORDER));
+    assertNull(registry.get(shipment.getFacilityId(), TransferType.SHIPMENT));
+  }
+
+  @Test
+  public void shouldReloadStaleSnapshot() {
+    givenProperties();
+    ReflectionTestUtils.setField(registry, "refreshInterval", 1L);
+    registry.run();
+    ReflectionTestUtils.setField(registry.getSnapshot(), "loadedAt",
+        System.currentTimeMillis() - 1000);
+
+    registry.get(order.getFacilityId(), TransferType.ORDER);
+
+    verify(transferPropertiesRepository, times(2)).findAll();
+  }
+
+  @Test
+  public void shouldKeepCurrentSnapshotIfReloadFails() {
+    givenProperties();
+    ReflectionTestUtils.setField(registry, "refreshInterval", 1L);
+    registry.run();
+    ReflectionTestUtils.setField(registry.getSnapshot(), "loadedAt",
+        System.currentTimeMillis() - 1000);
+    when(transferPropertiesRepository.findAll()).thenThrow(new IllegalStateException());
+
+    assertSame(order, registry.get(order.getFacilityId(), TransferType.ORDER));
+  }
+
+  @Test
+  public void shouldQueryRepositoryIfRegistryIsDisabled() {
+    ReflectionTestUtils.setField(registry, "refreshInterval", 0L);
+    when(transferPropertiesRepository
+        .findFirstByFacilityIdAndTransferType(order.getFacilityId(), TransferType.ORDER))
+        .thenReturn(order);
+
+    registry.run();
+
+    assertSame(order, registry.get(order.getFacilityId(), TransferType.ORDER));
+    verify(transferPropertiesRepository, never()).findAll();
+  }
+
+  @Test
+  public void shouldReturnNothingForNoFacilities() {
+    assertTrue(registry.getAll(Collections.emptySet(), TransferType.ORDER).isEmpty());
+    verify(transferPropertiesRepository, never()).findAll();
+  }
+
+  private void givenProperties() {
+    when(transferPropertiesRepository.findAll()).thenReturn(Arrays.asList(order, shipment));
+  }
+
+  private TransferProperties properties(TransferProperties properties, TransferType type) {
+    properties.setId(UUID.randomUUID());
+    properties.setFacilityId(UUID.randomUUID());
+    properties.setTransferType(type);
+    return properties;
+  }
+}
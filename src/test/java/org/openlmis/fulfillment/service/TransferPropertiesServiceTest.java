@@ -53,6 +53,9 @@ public class TransferPropertiesServiceTest {
   @Mock
   private ShipmentContextRunner shipmentContextRunner;
 
+  @Mock
+  private TransferPropertiesRegistry transferPropertiesRegistry;
+
   @InjectMocks
   private TransferPropertiesService transferPropertiesService;
 
@@ -73,6 +76,7 @@ public class TransferPropertiesServiceTest {
     // then
     verify(transferPropertiesRepository, atLeastOnce()).save(properties);
     verify(shipmentContextRunner, never()).reCreateShipmentChannel(any());
+    verify(transferPropertiesRegistry).reloadAfterCommit();
   }
 
   @Test
@@ -127,8 +131,7 @@ public class TransferPropertiesServiceTest {
     // given
     TransferProperties properties = randomSetting(TransferType.ORDER);
 
-    when(transferPropertiesRepository
-        .findFirstByFacilityIdAndTransferType(any(UUID.class), any()))
+    when(transferPropertiesRegistry.get(properties.getFacilityId(), TransferType.ORDER))
         .thenReturn(properties);
 
     // when
@@ -144,8 +147,7 @@ public class TransferPropertiesServiceTest {
     // given
     TransferProperties properties = randomSetting(TransferType.ORDER);
 
-    when(transferPropertiesRepository
-        .findFirstByFacilityIdAndTransferType(any(UUID.class), any()))
+    when(transferPropertiesRegistry.get(properties.getFacilityId(), TransferType.ORDER))
         .thenReturn(null);
 
     // when
@@ -156,6 +158,54 @@ public class TransferPropertiesServiceTest {
     assertNull(result);
   }
 
+  @Test
+  public void shouldSaveSettingIfItIsUpdatedWithTheSameId() {
+    // given
+    final TransferProperties properties = randomSetting(TransferType.ORDER);
+    final TransferProperties existing = randomSetting(TransferType.ORDER);
+    existing.setId(UUID.fromString(properties.getId().toString()));
+
+    when(facilityReferenceDataService.findOne(any(UUID.class)))
+        .thenReturn(mock(FacilityDto.class));
+    when(transferPropertiesRepository
+        .findFirstByFacilityIdAndTransferType(any(UUID.class), any()))
+        .thenReturn(existing);
+    when(transferPropertiesRepository.save(properties)).thenReturn(properties);
+
+    // when
+    transferPropertiesService.save(properties);
+
+    // then
+    verify(transferPropertiesRepository).save(properties);
+  }
+
+  @Test
+  public void shouldReloadRegistryAfterUpdate() {
+    // given
+    TransferProperties properties = randomSetting(TransferType.ORDER);
+    when(transferPropertiesRepository.save(properties)).thenReturn(properties);
+
+    // when
+    TransferProperties result = transferPropertiesService.update(properties);
+
+    // then
+    assertEquals(properties, result);
+    verify(transferPropertiesRegistry).reloadAfterCommit();
+  }
+
+  @Test
+  public void shouldReloadRegistryAfterDelete() {
+    // given
+    TransferProperties properties = randomSetting(TransferType.ORDER);
+
+    // when
+    transferPropertiesService.delete(properties);
+
+    // then
+    verify(transferPropertiesRepository).delete(properties);
+    verify(transferPropertiesRegistry).reloadAfterCommit();
+  }
+
   private FtpTransferProperties randomSetting(TransferType transferType) {
     FtpTransferProperties properties = new FtpTransferProperties();
     properties.setId(UUID.randomUUID());
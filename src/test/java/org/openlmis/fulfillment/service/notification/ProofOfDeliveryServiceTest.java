@@ -38,6 +38,7 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.fulfillment.ProofOfDeliveryDataBuilder;
 import org.openlmis.fulfillment.domain.ProofOfDelivery;
 import org.openlmis.fulfillment.repository.ProofOfDeliveryRepository;
+import org.openlmis.fulfillment.service.CountMode;
 import org.openlmis.fulfillment.service.PermissionService;
 import org.openlmis.fulfillment.service.ProofOfDeliveryService;
 import org.openlmis.fulfillment.service.referencedata.PermissionStringDto;
@@ -85,7 +86,8 @@ public class ProofOfDeliveryServiceTest {
     when(authenticationHelper.getCurrentUser())
         .thenReturn(null);
     when(proofOfDeliveryRepository.search(
-        eq(null), eq(null), eq(emptySet()), eq(emptySet()), eq(emptySet()), eq(pageable)))
+        eq(null), eq(null), eq(emptySet()), eq(emptySet()), eq(emptySet()), eq(pageable),
+        eq(CountMode.EXACT)))
         .thenReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     Page<ProofOfDelivery> result = proofOfDeliveryService.search(null, null, pageable);
@@ -98,7 +100,8 @@ public class ProofOfDeliveryServiceTest {
     when(authenticationHelper.getCurrentUser())
         .thenReturn(null);
     when(proofOfDeliveryRepository.search(
-        eq(shipmentId),  eq(null), eq(emptySet()), eq(emptySet()), eq(emptySet()), eq(pageable)))
+        eq(shipmentId),  eq(null), eq(emptySet()), eq(emptySet()), eq(emptySet()), eq(pageable),
+        eq(CountMode.EXACT)))
         .thenReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     Page<ProofOfDelivery> result = proofOfDeliveryService.search(shipmentId, null, pageable);
@@ -111,7 +114,8 @@ public class ProofOfDeliveryServiceTest {
     when(authenticationHelper.getCurrentUser())
         .thenReturn(null);
     when(proofOfDeliveryRepository.search(
-        eq(null),  eq(orderId), eq(emptySet()), eq(emptySet()), eq(emptySet()), eq(pageable)))
+        eq(null),  eq(orderId), eq(emptySet()), eq(emptySet()), eq(emptySet()), eq(pageable),
+        eq(CountMode.EXACT)))
         .thenReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     Page<ProofOfDelivery> result = proofOfDeliveryService.search(null, orderId, pageable);
@@ -119,6 +123,21 @@ public class ProofOfDeliveryServiceTest {
     assertThat(result.getContent(), hasItems(proofOfDelivery));
   }
 
+  @Test
+  public void shouldPassCountModeToRepository() {
+    when(authenticationHelper.getCurrentUser())
+        .thenReturn(null);
+    when(proofOfDeliveryRepository.search(
+        eq(null), eq(null), eq(emptySet()), eq(emptySet()), eq(emptySet()), eq(pageable),
+        eq(CountMode.NONE)))
+        .thenReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
+
+    Page<ProofOfDelivery> result = proofOfDeliveryService
+        .search(null, null, pageable, CountMode.NONE);
+
+    assertThat(result.getContent(), hasItems(proofOfDelivery));
+  }
+
   @Test
   public void shouldReturnEmptyListWhenUserHasNoPermissions() {
     when(authenticationHelper.getCurrentUser())
@@ -148,7 +167,8 @@ public class ProofOfDeliveryServiceTest {
         eq(singleton(proofOfDelivery.getReceivingFacilityId())),
         eq(singleton(proofOfDelivery.getSupplyingFacilityId())),
         eq(singleton(proofOfDelivery.getProgramId())),
-        eq(pageable)))
+        eq(pageable),
+        eq(CountMode.EXACT)))
         .thenReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     Page<ProofOfDelivery> result = proofOfDeliveryService.search(null, null, pageable);
@@ -172,7 +192,8 @@ public class ProofOfDeliveryServiceTest {
         eq(singleton(proofOfDelivery.getReceivingFacilityId())),
         eq(singleton(proofOfDelivery.getSupplyingFacilityId())),
         eq(singleton(proofOfDelivery.getProgramId())),
-        eq(pageable)))
+        eq(pageable),
+        eq(CountMode.EXACT)))
         .thenReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     Page<ProofOfDelivery> result = proofOfDeliveryService.search(orderId, shipmentId, pageable);
@@ -198,7 +219,8 @@ public class ProofOfDeliveryServiceTest {
         eq(singleton(proofOfDelivery.getReceivingFacilityId())),
         eq(singleton(proofOfDelivery.getSupplyingFacilityId())),
         eq(emptySet()),
-        eq(pageable)))
+        eq(pageable),
+        eq(CountMode.EXACT)))
         .thenReturn(Pagination.getPage(singletonList(proofOfDelivery), pageable, 1));
 
     Page<ProofOfDelivery> result = proofOfDeliveryService.search(orderId, shipmentId, pageable);
@@ -23,8 +23,10 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.refEq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import java.net.URI;
 import java.util.Collections;
@@ -34,6 +36,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.openlmis.fulfillment.domain.VersionEntityReference;
 import org.openlmis.fulfillment.util.DynamicPageTypeReference;
+import org.openlmis.fulfillment.web.util.MetadataDto;
 import org.openlmis.fulfillment.web.util.VersionIdentityDto;
 import org.springframework.http.HttpMethod;
 
@@ -128,4 +131,49 @@ public class OrderableReferenceDataServiceTest
     assertAuthHeader(entityCaptor.getValue());
   }
 
+  @Test
+  public void shouldReturnCachedProductsByIdentity() {
+    //given
+    service.setVersionCache(CacheBuilder.newBuilder().build());
+
+    OrderableDto product = mockPageResponseEntityAndGetDto();
+    product.setMeta(new MetadataDto(1L, null));
+
+    VersionEntityReference reference = new VersionEntityReference(product.getId(), 1L);
+
+    //when
+    service.findByIdentities(Collections.singleton(reference));
+    List<OrderableDto> response = service.findByIdentities(Collections.singleton(reference));
+
+    //then
+    verify(restTemplate, times(1)).exchange(
+        uriCaptor.capture(), eq(HttpMethod.POST), entityCaptor.capture(),
+        refEq(new DynamicPageTypeReference<>(OrderableDto.class)));
+
+    assertThat(response, hasItem(product));
+    assertThat(response, hasSize(1));
+  }
+
+  @Test
+  public void shouldNotCacheProductsWithoutMeta() {
+    //given
+    service.setVersionCache(CacheBuilder.newBuilder().build());
+
+    OrderableDto product = mockPageResponseEntityAndGetDto();
+    product.setMeta(null);
+
+    VersionEntityReference reference = new VersionEntityReference(product.getId(), 1L);
+
+    //when
+    service.findByIdentities(Collections.singleton(reference));
+    List<OrderableDto> response = service.findByIdentities(Collections.singleton(reference));
+
+    //then
+    verify(restTemplate, times(2)).exchange(
+        uriCaptor.capture(), eq(HttpMethod.POST), entityCaptor.capture(),
+        refEq(new DynamicPageTypeReference<>(OrderableDto.class)));
+
+    assertThat(response, hasItem(product));
+  }
+
 }
@@ -16,7 +16,9 @@
 package org.openlmis.fulfillment.service.referencedata;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasEntry;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.assertEquals;
@@ -37,16 +39,22 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.openlmis.fulfillment.service.PageDto;
+import org.openlmis.fulfillment.testutils.ProcessingPeriodDataBuilder;
 import org.openlmis.fulfillment.util.DynamicPageTypeReference;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpServerErrorException;
 
 public class PeriodReferenceDataServiceTest
     extends BaseReferenceDataServiceTest<ProcessingPeriodDto> {
@@ -94,6 +102,76 @@ public class PeriodReferenceDataServiceTest
     assertNull(entityCaptor.getValue().getBody());
   }
 
+  @Test
+  public void shouldSearchPeriodsInLocalCalendar() {
+    ReflectionTestUtils.setField(service, "calendarRefreshInterval", 60L);
+    ProcessingPeriodDto january = new ProcessingPeriodDataBuilder()
+        .withStartDate(LocalDate.parse("2018-01-01"))
+        .withEndDate(LocalDate.parse("2018-01-31"))
+        .build();
+    ProcessingPeriodDto february = new ProcessingPeriodDataBuilder()
+        .withStartDate(LocalDate.parse("2018-02-01"))
+        .withEndDate(LocalDate.parse("2018-02-28"))
+        .build();
+    mockCalendarResponse(new PageDto<>(new PageImpl<>(Arrays.asList(february, january))));
+
+    List<ProcessingPeriodDto> first = service
+        .search(LocalDate.parse("2018-01-15"), LocalDate.parse("2018-01-20"));
+    List<ProcessingPeriodDto> second = service
+        .search(LocalDate.parse("2018-01-01"), LocalDate.parse("2018-02-01"));
+
+    assertThat(first, contains(january));
+    assertThat(second, contains(january, february));
+
+    verify(restTemplate).exchange(
+        uriCaptor.capture(), eq(HttpMethod.GET), entityCaptor.capture(),
+        refEq(new DynamicPageTypeReference<>(ProcessingPeriodDto.class)));
+
+    assertEquals(serviceUrl + service.getUrl(), uriCaptor.getValue().toString());
+    assertAuthHeader(entityCaptor.getValue());
+  }
+
+  @Test
+  public void shouldRevalidateStaleCalendarWithETag() {
+    ReflectionTestUtils.setField(service, "calendarRefreshInterval", 60L);
+    ProcessingPeriodDto period = new ProcessingPeriodDataBuilder().build();
+    String etag = "\"etag\"";
+    ProcessingPeriodCalendar stale = new ProcessingPeriodCalendar(
+        Collections.singletonList(period), etag, System.nanoTime() - TimeUnit.MINUTES.toNanos(2));
+    ReflectionTestUtils.setField(service, "calendar", stale);
+
+    ResponseEntity response = mockCalendarResponse(null);
+    when(response.getStatusCode()).thenReturn(HttpStatus.NOT_MODIFIED);
+
+    List<ProcessingPeriodDto> periods = service.search(null, null);
+
+    assertThat(periods, contains(period));
+
+    verify(restTemplate).exchange(
+        any(URI.class), eq(HttpMethod.GET), entityCaptor.capture(),
+        any(ParameterizedTypeReference.class));
+
+    assertThat(entityCaptor.getValue().getHeaders(),
+        hasEntry(HttpHeaders.IF_NONE_MATCH, Collections.singletonList(etag)));
+    assertTrue(service.getCalendar().getFetchedAt() > stale.getFetchedAt());
+  }
+
+  @Test
+  public void shouldKeepCurrentCalendarIfRefreshFails() {
+    ReflectionTestUtils.setField(service, "calendarRefreshInterval", 60L);
+    ProcessingPeriodDto period = new ProcessingPeriodDataBuilder().build();
+    ProcessingPeriodCalendar stale = new ProcessingPeriodCalendar(
+        Collections.singletonList(period), null, System.nanoTime() - TimeUnit.MINUTES.toNanos(2));
+    ReflectionTestUtils.setField(service, "calendar", stale);
+
+    when(restTemplate.exchange(
+        any(URI.class), eq(HttpMethod.GET), any(HttpEntity.class),
+        any(ParameterizedTypeReference.class)
+    )).thenThrow(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR));
+
+    assertThat(service.search(null, null), contains(period));
+  }
+
   @Test
   public void shouldFindPeriodsByIds() {
     // given
@@ -146,4 +224,15 @@ public class PeriodReferenceDataServiceTest
     // then
     Assert.assertThat(periods, empty());
   }
+
+  private ResponseEntity mockCalendarResponse(PageDto<ProcessingPeriodDto> body) {
+    ResponseEntity response = mock(ResponseEntity.class);
+    when(response.getBody()).thenReturn(body);
+    when(restTemplate.exchange(
+        any(URI.class), eq(HttpMethod.GET), any(HttpEntity.class),
+        any(ParameterizedTypeReference.class)
+    )).thenReturn(response);
+
+    return response;
+  }
 }
@@ -25,20 +25,24 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.openlmis.fulfillment.service.PermissionService.PODS_MANAGE;
 
+import com.google.common.cache.Cache;
 import java.lang.reflect.Field;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.fulfillment.service.ServiceResponse;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @RunWith(MockitoJUnitRunner.class)
 public class PermissionStringsTest {
@@ -59,15 +63,15 @@ public class PermissionStringsTest {
     Field handlers = PermissionStrings.class.getDeclaredField(HANDLERS_FIELD_NAME);
     handlers.setAccessible(true);
 
-    Map map = (Map) handlers.get(permissionStrings);
-    assertThat(map.size(), is(0));
+    Cache cache = (Cache) handlers.get(permissionStrings);
+    assertThat(cache.size(), is(0L));
 
     PermissionStrings.Handler handler = permissionStrings.forUser(USER);
 
     assertThat(handler, is(notNullValue()));
 
-    map = (Map) handlers.get(permissionStrings);
-    assertThat(map.size(), is(1));
+    cache = (Cache) handlers.get(permissionStrings);
+    assertThat(cache.size(), is(1L));
   }
 
   @Test
@@ -80,8 +84,8 @@ public class PermissionStringsTest {
     permissionStrings.forUser(USER);
     permissionStrings.forUser(USER);
 
-    Map map = (Map) handlers.get(permissionStrings);
-    assertThat(map.size(), is(1));
+    Cache cache = (Cache) handlers.get(permissionStrings);
+    assertThat(cache.size(), is(1L));
   }
 
   @Test
@@ -146,4 +150,61 @@ public class PermissionStringsTest {
     assertThat(handler.getFacilityIds(PODS_MANAGE), contains(data.getFacilityId()));
   }
 
+  @Test
+  public void shouldCheckPermissionWithPermissionStrings() {
+    PermissionStringDto data = PermissionStringDto.create(PODS_MANAGE, randomUUID(), randomUUID());
+
+    when(userReferenceDataService.getPermissionStrings(USER, null)).thenReturn(response);
+    when(response.isModified()).thenReturn(true);
+    when(response.getBody()).thenReturn(singletonList(data.toString()));
+
+    PermissionStrings.Handler handler = permissionStrings.forUser(USER);
+
+    assertThat(handler.hasPermission(PODS_MANAGE, data.getFacilityId(), data.getProgramId()),
+        is(true));
+    assertThat(handler.hasPermission(PODS_MANAGE, data.getFacilityId(), null), is(false));
+    assertThat(handler.hasPermission(PODS_MANAGE, randomUUID(), data.getProgramId()), is(false));
+  }
+
+  @Test
+  public void shouldNotRevalidateDataWithinStalenessWindow() {
+    ReflectionTestUtils.setField(permissionStrings, "staleness", 60L);
+
+    when(userReferenceDataService.getPermissionStrings(USER, null)).thenReturn(response);
+    when(response.isModified()).thenReturn(true);
+    when(response.getBody()).thenReturn(singletonList(random(5)));
+
+    PermissionStrings.Handler handler = permissionStrings.forUser(USER);
+    Set<PermissionStringDto> one = handler.get();
+    Set<PermissionStringDto> two = handler.get();
+
+    assertThat(one, is(equalTo(two)));
+    verify(userReferenceDataService, times(1)).getPermissionStrings(USER, null);
+  }
+
+  @Test
+  public void shouldRevalidateStaleDataInBackground() {
+    String etag = random(5);
+    ReflectionTestUtils.setField(permissionStrings, "refreshExecutor",
+        (Executor) Runnable::run);
+
+    when(userReferenceDataService.getPermissionStrings(USER, null)).thenReturn(response);
+    when(response.isModified()).thenReturn(true);
+    when(response.getETag()).thenReturn(etag);
+    when(response.getBody()).thenReturn(singletonList(random(5)));
+
+    PermissionStrings.Handler handler = permissionStrings.forUser(USER);
+    Set<PermissionStringDto> one = handler.get();
+
+    when(userReferenceDataService.getPermissionStrings(USER, etag)).thenReturn(response);
+    when(response.getBody()).thenReturn(singletonList(random(5)));
+
+    // the stale data is returned while the refresh is scheduled
+    Set<PermissionStringDto> two = handler.get();
+    Set<PermissionStringDto> three = handler.get();
+
+    assertThat(one, is(equalTo(two)));
+    assertThat(two, is(not(equalTo(three))));
+  }
+
 }
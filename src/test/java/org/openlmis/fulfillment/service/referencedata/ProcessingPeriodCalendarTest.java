@@ -0,0 +1,105 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.time.LocalDate;
+import org.junit.Test;
+import org.openlmis.fulfillment.testutils.ProcessingPeriodDataBuilder;
+
+public class ProcessingPeriodCalendarTest {
+  private static final String ETAG = "etag";
+
+  private ProcessingPeriodDto january = period("2018-01-01", "2018-01-31");
+  private ProcessingPeriodDto february = period("2018-02-01", "2018-02-28");
+  private ProcessingPeriodDto march = period("2018-03-01", "2018-03-31");
+  private ProcessingPeriodDto firstQuarter = period("2017-12-31", "2018-03-31");
+
+  private ProcessingPeriodCalendar calendar = new ProcessingPeriodCalendar(
+      asList(march, firstQuarter, february, january), ETAG, 0);
+
+  @Test
+  public void shouldFindPeriodsOverlappingRange() {
+    assertThat(calendar.search(date("2018-01-15"), date("2018-02-01")),
+        contains(firstQuarter, january, february));
+  }
+
+  @Test
+  public void shouldIncludePeriodsTouchingRangeBoundaries() {
+    assertThat(calendar.search(date("2018-02-28"), date("2018-03-01")),
+        contains(firstQuarter, february, march));
+  }
+
+  @Test
+  public void shouldFindPeriodsWithOnlyStartDate() {
+    assertThat(calendar.search(date("2018-03-01"), null), contains(firstQuarter, march));
+  }
+
+  @Test
+  public void shouldFindPeriodsWithOnlyEndDate() {
+    assertThat(calendar.search(null, date("2018-01-31")), contains(firstQuarter, january));
+  }
+
+  @Test
+  public void shouldReturnAllPeriodsSortedByStartDateWithoutDates() {
+    assertThat(calendar.search(null, null), contains(firstQuarter, january, february, march));
+  }
+
+  @Test
+  public void shouldReturnEmptyListIfNoPeriodOverlapsRange() {
+    assertThat(calendar.search(date("2018-04-01"), date("2018-04-30")), is(empty()));
+    assertThat(calendar.search(date("2017-01-01"), date("2017-12-30")), is(empty()));
+  }
+
+  @Test
+  public void shouldSkipPeriodsWithoutDates() {
+    ProcessingPeriodDto withoutEndDate = new ProcessingPeriodDataBuilder()
+        .withStartDate(date("2018-01-01"))
+        .withEndDate(null)
+        .build();
+
+    ProcessingPeriodCalendar calendar = new ProcessingPeriodCalendar(
+        asList(january, withoutEndDate, null), ETAG, 0);
+
+    assertThat(calendar.size(), is(1));
+    assertThat(calendar.search(null, null), contains(january));
+  }
+
+  @Test
+  public void shouldKeepPeriodsAndETagWhenRevalidated() {
+    ProcessingPeriodCalendar revalidated = calendar.revalidated(10);
+
+    assertThat(revalidated.getFetchedAt(), is(10L));
+    assertThat(revalidated.getETag(), is(ETAG));
+    assertThat(revalidated.search(null, null), contains(firstQuarter, january, february, march));
+  }
+
+  private static ProcessingPeriodDto period(String startDate, String endDate) {
+    return new ProcessingPeriodDataBuilder()
+        .withStartDate(date(startDate))
+        .withEndDate(date(endDate))
+        .build();
+  }
+
+  private static LocalDate date(String date) {
+    return LocalDate.parse(date);
+  }
+}
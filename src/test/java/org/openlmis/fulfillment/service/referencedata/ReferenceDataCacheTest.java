@@ -0,0 +1,128 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.base.Ticker;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.openlmis.fulfillment.service.ServiceResponse;
+import org.springframework.http.HttpHeaders;
+
+public class ReferenceDataCacheTest {
+  private static final String ETAG = "\"etag\"";
+
+  private FakeTicker ticker = new FakeTicker();
+  private ReferenceDataCache<UUID, String> cache =
+      new ReferenceDataCache<>(2, Duration.ofSeconds(10), ticker);
+
+  private UUID key = UUID.randomUUID();
+  private List<String> sentETags = new ArrayList<>();
+
+  @Test
+  public void shouldServeFreshEntryFromCache() {
+    cache.get(key, etag -> respond(etag, "value", true));
+    String value = cache.get(key, etag -> respond(etag, "other", true));
+
+    assertThat(value, is("value"));
+    assertThat(sentETags.size(), is(1));
+    assertThat(cache.getStats().getHitCount(), is(1L));
+    assertThat(cache.getStats().getMissCount(), is(1L));
+  }
+
+  @Test
+  public void shouldRevalidateStaleEntryWithETag() {
+    cache.get(key, etag -> respond(etag, "value", true));
+    ticker.advance(11);
+
+    String value = cache.get(key, etag -> respond(etag, null, false));
+
+    assertThat(value, is("value"));
+    assertThat(sentETags.get(0), is(nullValue()));
+    assertThat(sentETags.get(1), is(ETAG));
+    assertThat(cache.getStats().getRevalidationCount(), is(1L));
+    assertThat(cache.getIfFresh(key), is("value"));
+  }
+
+  @Test
+  public void shouldReplaceStaleEntryIfModified() {
+    cache.get(key, etag -> respond(etag, "value", true));
+    ticker.advance(11);
+
+    String value = cache.get(key, etag -> respond(etag, "other", true));
+
+    assertThat(value, is("other"));
+    assertThat(cache.getIfFresh(key), is("other"));
+  }
+
+  @Test
+  public void shouldRemoveEntryIfResourceDoesNotExistAnymore() {
+    cache.get(key, etag -> respond(etag, "value", true));
+    ticker.advance(11);
+
+    String value = cache.get(key, etag -> new ServiceResponse<>(null, new HttpHeaders(), true));
+
+    assertThat(value, is(nullValue()));
+    assertThat(cache.getStats().getSize(), is(0L));
+  }
+
+  @Test
+  public void shouldNotReturnStaleEntryIfFreshOneIsRequested() {
+    cache.put(key, "value", null);
+    ticker.advance(11);
+
+    assertThat(cache.getIfFresh(key), is(nullValue()));
+  }
+
+  @Test
+  public void shouldEvictEntriesAboveMaximumSize() {
+    cache.put(UUID.randomUUID(), "first", null);
+    cache.put(UUID.randomUUID(), "second", null);
+    cache.put(UUID.randomUUID(), "third", null);
+
+    assertThat(cache.getStats().getSize(), is(2L));
+    assertThat(cache.getStats().getEvictionCount(), is(1L));
+  }
+
+  private ServiceResponse<String> respond(String etag, String body, boolean modified) {
+    sentETags.add(etag);
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setETag(ETAG);
+
+    return new ServiceResponse<>(body, headers, modified);
+  }
+
+  private static final class FakeTicker extends Ticker {
+    private long nanos;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long seconds) {
+      nanos += TimeUnit.SECONDS.toNanos(seconds);
+    }
+  }
+}
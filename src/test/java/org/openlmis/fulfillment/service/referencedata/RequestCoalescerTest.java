@@ -0,0 +1,136 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class RequestCoalescerTest {
+  private static final String KEY = "http://localhost/api/facilities/1";
+
+  private RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+  private ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldShareInFlightCall() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger calls = new AtomicInteger();
+
+    Future<String> first = executor.submit(() -> coalescer.execute(KEY, () -> {
+      calls.incrementAndGet();
+      started.countDown();
+      await(release);
+      return "value";
+    }));
+
+    started.await(5, TimeUnit.SECONDS);
+
+    Future<String> second = executor.submit(() -> coalescer.execute(KEY, () -> {
+      calls.incrementAndGet();
+      return "other";
+    }));
+
+    while (coalescer.getStats().getCoalescedCount() == 0) {
+      Thread.sleep(5);
+    }
+
+    release.countDown();
+
+    assertThat(first.get(5, TimeUnit.SECONDS), is("value"));
+    assertThat(second.get(5, TimeUnit.SECONDS), is("value"));
+    assertThat(calls.get(), is(1));
+    assertThat(coalescer.getStats().getExecutedCount(), is(1L));
+    assertThat(coalescer.getStats().getCoalescedCount(), is(1L));
+  }
+
+  @Test
+  public void shouldExecuteSequentialCallsSeparately() {
+    assertThat(coalescer.execute(KEY, () -> "value"), is("value"));
+    assertThat(coalescer.execute(KEY, () -> "other"), is("other"));
+    assertThat(coalescer.getStats().getExecutedCount(), is(2L));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldRethrowExceptionOfCall() {
+    coalescer.execute(KEY, () -> {
+      throw new IllegalStateException();
+    });
+  }
+
+  @Test
+  public void shouldReleaseWaitingCallersIfCallThrowsError() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    Future<String> first = executor.submit(() -> coalescer.execute(KEY, () -> {
+      started.countDown();
+      await(release);
+      throw new AssertionError("out of memory");
+    }));
+
+    started.await(5, TimeUnit.SECONDS);
+
+    Future<String> second = executor.submit(() -> coalescer.execute(KEY, () -> "other"));
+
+    while (coalescer.getStats().getCoalescedCount() == 0) {
+      Thread.sleep(5);
+    }
+
+    release.countDown();
+
+    assertThat(getCause(first), is(instanceOf(AssertionError.class)));
+    assertThat(getCause(second), is(instanceOf(AssertionError.class)));
+
+    // the failed call is not in flight anymore
+    assertThat(coalescer.execute(KEY, () -> "value"), is("value"));
+  }
+
+  private static Throwable getCause(Future<String> future) throws Exception {
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail("the call should fail");
+      return null;
+    } catch (ExecutionException ex) {
+      return ex.getCause();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.referencedata;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.fulfillment.service.referencedata.SupportedProgramIndex.ProgramSupport;
+import org.openlmis.fulfillment.testutils.FacilityDataBuilder;
+import org.openlmis.fulfillment.testutils.ProgramDataBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SupportedProgramIndexTest {
+
+  @Mock
+  private FacilityReferenceDataService facilityReferenceDataService;
+
+  @InjectMocks
+  private SupportedProgramIndex index;
+
+  private ProgramDto supported = new ProgramDataBuilder().build();
+  private ProgramDto locallyFulfilled = new ProgramDataBuilder().build();
+  private FacilityDto facility;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(index, "maxSize", 10L);
+    ReflectionTestUtils.setField(index, "staleness", 60L);
+    index.init();
+
+    locallyFulfilled.setSupportLocallyFulfilled(true);
+    facility = new FacilityDataBuilder()
+        .withSupportedPrograms(Arrays.asList(supported, locallyFulfilled))
+        .build();
+  }
+
+  @Test
+  public void shouldIndexSupportedProgramsOfFacility() {
+    when(facilityReferenceDataService.findOne(facility.getId())).thenReturn(facility);
+
+    assertThat(index.get(facility.getId(), supported.getId()), is(ProgramSupport.SUPPORTED));
+    assertThat(index.get(facility.getId(), locallyFulfilled.getId()),
+        is(ProgramSupport.LOCALLY_FULFILLED));
+    assertThat(index.get(facility.getId(), UUID.randomUUID()),
+        is(ProgramSupport.NOT_SUPPORTED));
+
+    verify(facilityReferenceDataService, times(1)).findOne(facility.getId());
+  }
+
+  @Test
+  public void shouldNotSupportAnyProgramIfFacilityDoesNotExist() {
+    UUID facilityId = UUID.randomUUID();
+
+    assertThat(index.get(facilityId, supported.getId()), is(ProgramSupport.NOT_SUPPORTED));
+    assertThat(index.get(facilityId, supported.getId()).isSupported(), is(false));
+  }
+
+  @Test
+  public void shouldPrefetchMissingFacilitiesWithSingleRequest() {
+    when(facilityReferenceDataService.findByIds(Collections.singletonList(facility.getId())))
+        .thenReturn(Collections.singletonList(facility));
+
+    index.prefetch(Collections.singleton(facility.getId()));
+    index.prefetch(Collections.singleton(facility.getId()));
+
+    assertThat(index.get(facility.getId(), locallyFulfilled.getId()).isLocallyFulfilled(),
+        is(true));
+    verify(facilityReferenceDataService, times(1)).findByIds(anyCollection());
+    verify(facilityReferenceDataService, never()).findOne(facility.getId());
+  }
+
+  @Test
+  public void shouldRevalidateStaleEntryInBackground() {
+    ReflectionTestUtils.setField(index, "staleness", 0L);
+    ReflectionTestUtils.setField(index, "refreshExecutor", (Executor) Runnable::run);
+    when(facilityReferenceDataService.findOne(facility.getId())).thenReturn(facility);
+
+    ProgramSupport one = index.get(facility.getId(), supported.getId());
+
+    facility.setSupportedPrograms(Collections.emptyList());
+
+    // the stale entry is returned while the refresh is scheduled
+    ProgramSupport two = index.get(facility.getId(), supported.getId());
+    ProgramSupport three = index.get(facility.getId(), supported.getId());
+
+    assertThat(one, is(ProgramSupport.SUPPORTED));
+    assertThat(two, is(ProgramSupport.SUPPORTED));
+    assertThat(three, is(ProgramSupport.NOT_SUPPORTED));
+  }
+
+  @Test
+  public void shouldKeepStaleEntryIfRevalidationFails() {
+    ReflectionTestUtils.setField(index, "staleness", 0L);
+    when(facilityReferenceDataService.findOne(facility.getId()))
+        .thenReturn(facility)
+        .thenThrow(new IllegalStateException());
+
+    index.get(facility.getId(), supported.getId());
+
+    assertThat(index.get(facility.getId(), supported.getId()), is(ProgramSupport.SUPPORTED));
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.service.request;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class OutboundConnectionPoolMonitorTest {
+
+  private PoolingHttpClientConnectionManager connectionManager;
+  private OutboundConnectionPoolMonitor monitor;
+
+  @Before
+  public void setUp() {
+    connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(50);
+
+    monitor = new OutboundConnectionPoolMonitor();
+    ReflectionTestUtils.setField(monitor, "outboundConnectionManager", connectionManager);
+  }
+
+  @After
+  public void tearDown() {
+    connectionManager.close();
+  }
+
+  @Test
+  public void shouldReturnTotalStats() {
+    OutboundConnectionPoolMonitor.Stats stats = monitor.getTotalStats();
+
+    assertThat(stats.getLeased(), is(0));
+    assertThat(stats.getPending(), is(0));
+    assertThat(stats.getIdle(), is(0));
+    assertThat(stats.getMax(), is(50));
+  }
+
+  @Test
+  public void shouldReturnEmptyRouteStatsIfNoConnectionWasOpened() {
+    assertThat(monitor.getRouteStats().isEmpty(), is(true));
+  }
+
+}
@@ -55,4 +55,14 @@ public class ProcessingPeriodDataBuilder {
     this.id = id;
     return this;
   }
+
+  public ProcessingPeriodDataBuilder withStartDate(LocalDate startDate) {
+    this.startDate = startDate;
+    return this;
+  }
+
+  public ProcessingPeriodDataBuilder withEndDate(LocalDate endDate) {
+    this.endDate = endDate;
+    return this;
+  }
 }
@@ -23,10 +23,12 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.UUID;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -37,9 +39,12 @@ import org.openlmis.fulfillment.service.referencedata.RightDto;
 import org.openlmis.fulfillment.service.referencedata.RightReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.UserDto;
 import org.openlmis.fulfillment.service.referencedata.UserReferenceDataService;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 @RunWith(MockitoJUnitRunner.class)
 public class AuthenticationHelperTest {
@@ -67,6 +72,11 @@ public class AuthenticationHelperTest {
     SecurityContextHolder.setContext(securityContext);
   }
 
+  @After
+  public void tearDown() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
   @Test
   public void shouldReturnUser() {
     // given
@@ -126,4 +136,39 @@ public class AuthenticationHelperTest {
     // when
     authenticationHelper.getRight("rightName");
   }
+
+  @Test
+  public void shouldRetrieveUserOncePerRequest() {
+    // given
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+
+    UserDto userDto = new UserDto();
+    userDto.setId(userId);
+    when(authentication.isClientOnly()).thenReturn(false);
+    when(userReferenceDataService.findOne(userId)).thenReturn(userDto);
+
+    // when
+    authenticationHelper.getCurrentUser();
+    UserDto user = authenticationHelper.getCurrentUser();
+
+    // then
+    assertEquals(userDto, user);
+    verify(userReferenceDataService, times(1)).findOne(userId);
+  }
+
+  @Test
+  public void shouldRetrieveRightOnce() {
+    // given
+    RightDto right = mock(RightDto.class);
+    when(rightReferenceDataService.findRight("rightName")).thenReturn(right);
+
+    // when
+    authenticationHelper.getRight("rightName");
+    RightDto dto = authenticationHelper.getRight("rightName");
+
+    // then
+    assertThat(dto, is(right));
+    verify(rightReferenceDataService, times(1)).findRight("rightName");
+  }
 }
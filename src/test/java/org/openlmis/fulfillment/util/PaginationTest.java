@@ -0,0 +1,54 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.fulfillment.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+public class PaginationTest {
+
+  @Test
+  public void shouldAddProbeElementToPageSize() {
+    assertEquals(11, Pagination.getProbeSize(PageRequest.of(0, 10)));
+    assertEquals(Pagination.NO_PAGINATION, Pagination.getProbeSize(null));
+  }
+
+  @Test
+  public void shouldRemoveProbeElementFromPage() {
+    Page<Integer> page = Pagination.getProbedPage(Arrays.asList(1, 2, 3), PageRequest.of(1, 2));
+
+    assertEquals(Arrays.asList(1, 2), page.getContent());
+    assertTrue(page.hasNext());
+    assertEquals(5, page.getTotalElements());
+  }
+
+  @Test
+  public void shouldReturnLastPageIfThereIsNoProbeElement() {
+    Page<Integer> page = Pagination.getProbedPage(Collections.singletonList(1),
+        PageRequest.of(1, 2));
+
+    assertEquals(Collections.singletonList(1), page.getContent());
+    assertFalse(page.hasNext());
+    assertEquals(3, page.getTotalElements());
+  }
+}
@@ -15,13 +15,18 @@
 
 package org.openlmis.fulfillment.web.util;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import org.junit.Before;
@@ -32,10 +37,19 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.fulfillment.OrderDataBuilder;
 import org.openlmis.fulfillment.domain.Order;
+import org.openlmis.fulfillment.domain.OrderSummary;
 import org.openlmis.fulfillment.service.referencedata.FacilityDto;
+import org.openlmis.fulfillment.service.referencedata.FacilityReferenceDataService;
+import org.openlmis.fulfillment.service.referencedata.PeriodReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.ProcessingPeriodDto;
 import org.openlmis.fulfillment.service.referencedata.ProgramDto;
+import org.openlmis.fulfillment.service.referencedata.ProgramReferenceDataService;
 import org.openlmis.fulfillment.service.referencedata.UserDto;
+import org.openlmis.fulfillment.service.referencedata.UserReferenceDataService;
+import org.openlmis.fulfillment.testutils.FacilityDataBuilder;
+import org.openlmis.fulfillment.testutils.ProcessingPeriodDataBuilder;
+import org.openlmis.fulfillment.testutils.ProgramDataBuilder;
+import org.openlmis.fulfillment.testutils.UserDataBuilder;
 
 @RunWith(MockitoJUnitRunner.class)
 public class BasicOrderDtoBuilderTest {
@@ -43,6 +57,18 @@ public class BasicOrderDtoBuilderTest {
   @Mock
   private OrderExportHelper orderExportHelper;
 
+  @Mock
+  private FacilityReferenceDataService facilityReferenceDataService;
+
+  @Mock
+  private ProgramReferenceDataService programReferenceDataService;
+
+  @Mock
+  private PeriodReferenceDataService periodReferenceDataService;
+
+  @Mock
+  private UserReferenceDataService userReferenceDataService;
+
   @InjectMocks
   private BasicOrderDtoBuilder orderDtoBuilder = new BasicOrderDtoBuilder();
 
@@ -85,6 +111,41 @@ public class BasicOrderDtoBuilderTest {
     assertEquals(order.getStatus(), orderDto.getStatus());
   }
 
+  @Test
+  public void shouldBuildDtosFromOrderSummaries() {
+    FacilityDto supplyingFacility = new FacilityDataBuilder()
+        .withId(order.getSupplyingFacilityId()).build();
+    FacilityDto requestingFacility = new FacilityDataBuilder()
+        .withId(order.getRequestingFacilityId()).build();
+    ProgramDto program = new ProgramDataBuilder().withId(order.getProgramId()).build();
+    ProcessingPeriodDto period = new ProcessingPeriodDataBuilder()
+        .withId(order.getProcessingPeriodId()).build();
+    UserDto user = new UserDataBuilder().withId(order.getCreatedById()).build();
+
+    when(facilityReferenceDataService.findByIds(anyCollectionOf(UUID.class)))
+        .thenReturn(asList(supplyingFacility, requestingFacility));
+    when(programReferenceDataService.findByIds(anyCollectionOf(UUID.class)))
+        .thenReturn(singletonList(program));
+    when(periodReferenceDataService.findByIds(anyCollectionOf(UUID.class)))
+        .thenReturn(singletonList(period));
+    when(userReferenceDataService.findByIds(anyCollectionOf(UUID.class)))
+        .thenReturn(singletonList(user));
+
+    List<BasicOrderDto> dtos = orderDtoBuilder
+        .buildFromSummaries(singletonList(OrderSummary.of(order)));
+
+    assertEquals(1, dtos.size());
+    BasicOrderDto orderDto = dtos.get(0);
+    assertEquals(order.getId(), orderDto.getId());
+    assertEquals(order.getOrderCode(), orderDto.getOrderCode());
+    assertEquals(order.getStatus(), orderDto.getStatus());
+    assertEquals(supplyingFacility, orderDto.getSupplyingFacility());
+    assertEquals(requestingFacility, orderDto.getRequestingFacility());
+    assertEquals(program, orderDto.getProgram());
+    assertEquals(period, orderDto.getProcessingPeriod());
+    assertEquals(user, orderDto.getCreatedBy());
+  }
+
   @Test
   public void shouldReturnNullIfOrderIsNull() {
     assertNull(orderDtoBuilder.build((Order) null));